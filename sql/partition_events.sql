@@ -0,0 +1,75 @@
+\set ON_ERROR_STOP
+
+-- This SQL script will convert the comm_event and sign_event tables to be
+-- partitioned by day.  Existing events are kept in a "legacy" partition,
+-- which is dropped when all of its events are older than the purge
+-- threshold.  After conversion, the IRIS server creates new partitions
+-- ahead of time, and purges old events by dropping whole partitions.  Do
+-- not run this script while the IRIS server is online.  Please backup the
+-- database before running this script.  PostgreSQL 11 or later is needed.
+--
+-- psql tms -f partition_events.sql
+
+SET SESSION AUTHORIZATION 'tms';
+BEGIN;
+
+CREATE FUNCTION pg_temp.partition_event(tbl TEXT) RETURNS VOID AS $$
+DECLARE
+	legacy TEXT := tbl || '_legacy';
+	day DATE := current_date + 1;
+	fk RECORD;
+BEGIN
+	EXECUTE format('ALTER TABLE event.%I RENAME TO %I', tbl, legacy);
+	-- Primary key of a partitioned table must include event_date
+	EXECUTE format('ALTER TABLE event.%I DROP CONSTRAINT %I', legacy,
+		tbl || '_pkey');
+	EXECUTE format('ALTER TABLE event.%I ADD PRIMARY KEY '
+		'(event_id, event_date)', legacy);
+	EXECUTE format('CREATE TABLE event.%I (LIKE event.%I INCLUDING '
+		'DEFAULTS, PRIMARY KEY (event_id, event_date)) '
+		'PARTITION BY RANGE (event_date)', tbl, legacy);
+	FOR fk IN SELECT conname, pg_get_constraintdef(oid) AS def
+		FROM pg_constraint
+		WHERE conrelid = ('event.' || legacy)::regclass
+		AND contype = 'f'
+	LOOP
+		EXECUTE format('ALTER TABLE event.%I ADD CONSTRAINT %I %s',
+			tbl, fk.conname || '_p', fk.def);
+	END LOOP;
+	EXECUTE format('CREATE INDEX ON event.%I (event_date)', tbl);
+	EXECUTE format('ALTER TABLE event.%I ATTACH PARTITION event.%I '
+		'FOR VALUES FROM (MINVALUE) TO (%L)', tbl, legacy, day);
+	-- Events which have no partition (server offline for a long
+	-- time) are stored in the default partition
+	EXECUTE format('CREATE TABLE event.%I PARTITION OF event.%I DEFAULT',
+		tbl || '_default', tbl);
+	FOR i IN 1..7 LOOP
+		EXECUTE format('CREATE TABLE event.%I PARTITION OF event.%I '
+			'FOR VALUES FROM (%L) TO (%L)',
+			tbl || '_p' || to_char(day, 'YYYYMMDD'), tbl, day,
+			day + 1);
+		day := day + 1;
+	END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT pg_temp.partition_event('comm_event');
+SELECT pg_temp.partition_event('sign_event');
+
+-- Views must be replaced to use the partitioned tables
+CREATE OR REPLACE VIEW comm_event_view AS
+	SELECT e.event_id, e.event_date, ed.description, e.controller,
+	       c.comm_link, c.drop_id
+	FROM event.comm_event e
+	JOIN event.event_description ed ON e.event_desc_id = ed.event_desc_id
+	LEFT JOIN iris.controller c ON e.controller = c.name;
+
+CREATE OR REPLACE VIEW sign_event_view AS
+	SELECT event_id, event_date, description, device_id,
+	       regexp_replace(replace(replace(message, '[nl]', E'\n'), '[np]',
+	                      E'\n'), '\[.+?\]', ' ', 'g') AS message,
+	       message AS multi, owner
+	FROM event.sign_event JOIN event.event_description
+	ON sign_event.event_desc_id = event_description.event_desc_id;
+
+COMMIT;
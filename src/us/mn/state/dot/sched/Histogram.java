@@ -0,0 +1,137 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2026  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.sched;
+
+/**
+ * A histogram of non-negative values, with logarithmic buckets.  Each power
+ * of two is split into 8 linear sub-buckets, so recorded values are accurate
+ * to within 12.5%.  Recording and draining are synchronized, so a drained
+ * histogram never contains part of a recorded value.
+ *
+ * @author Douglas Lau
+ */
+public final class Histogram {
+
+	/** Number of bits for sub-buckets */
+	static private final int SUB_BITS = 3;
+
+	/** Number of sub-buckets per power of two */
+	static private final int SUB = 1 << SUB_BITS;
+
+	/** Maximum magnitude (bits) of recorded values */
+	static private final int MAX_BITS = 40;
+
+	/** Largest value which can be recorded */
+	static private final long MAX_VALUE = (1L << MAX_BITS) - 1;
+
+	/** Total number of buckets */
+	static private final int BUCKETS = (MAX_BITS - SUB_BITS + 1) * SUB;
+
+	/** Get the bucket index for a value */
+	static private int bucket(long v) {
+		if (v < SUB)
+			return (int) v;
+		int k = 63 - Long.numberOfLeadingZeros(v);
+		int s = (int) (v >> (k - SUB_BITS)) & (SUB - 1);
+		return (k - SUB_BITS + 1) * SUB + s;
+	}
+
+	/** Get the lowest value in a bucket */
+	static private long lowest(int b) {
+		if (b < SUB)
+			return b;
+		int k = b / SUB + SUB_BITS - 1;
+		long s = b % SUB;
+		return (SUB + s) << (k - SUB_BITS);
+	}
+
+	/** Counts for each bucket */
+	private long[] counts = new long[BUCKETS];
+
+	/** Total count of recorded values */
+	private long count;
+
+	/** Sum of recorded values */
+	private long sum;
+
+	/** Maximum recorded value */
+	private long max;
+
+	/** Record a value.
+	 * @param v Value to record (clamped to valid range). */
+	public synchronized void record(long v) {
+		v = Math.max(0, Math.min(v, MAX_VALUE));
+		counts[bucket(v)]++;
+		count++;
+		sum += v;
+		max = Math.max(max, v);
+	}
+
+	/** Get the count of recorded values */
+	public synchronized long getCount() {
+		return count;
+	}
+
+	/** Get the maximum recorded value */
+	public synchronized long getMax() {
+		return max;
+	}
+
+	/** Get the mean of recorded values */
+	public synchronized long getMean() {
+		return (count > 0) ? sum / count : 0;
+	}
+
+	/** Get a percentile value.
+	 * @param p Percentile (0 to 100).
+	 * @return Highest value in the bucket containing the percentile. */
+	public synchronized long getPercentile(double p) {
+		if (count <= 0)
+			return 0;
+		long rank = (long) Math.ceil(count * Math.max(0,
+			Math.min(p, 100)) / 100);
+		long n = 0;
+		for (int b = 0; b < BUCKETS; b++) {
+			n += counts[b];
+			if (n >= rank && n > 0) {
+				long hi = (b + 1 < BUCKETS)
+				        ? lowest(b + 1) - 1
+				        : MAX_VALUE;
+				return Math.min(hi, max);
+			}
+		}
+		return max;
+	}
+
+	/** Move all recorded values to a new histogram.  This histogram is
+	 * reset, so that values recorded afterward are not included in the
+	 * returned snapshot.
+	 * @return Histogram containing the previously recorded values. */
+	public Histogram drain() {
+		Histogram h = new Histogram();
+		synchronized (this) {
+			long[] c = h.counts;
+			h.counts = counts;
+			h.count = count;
+			h.sum = sum;
+			h.max = max;
+			counts = c;
+			count = 0;
+			sum = 0;
+			max = 0;
+		}
+		return h;
+	}
+}
@@ -112,6 +112,11 @@ abstract public class Job implements Comparable<Job> {
 		return next_time - TimeSteward.currentTimeMillis();
 	}
 
+	/** Get the next time this job must be performed */
+	long getNextTime() {
+		return next_time;
+	}
+
 	/** Compute the next time this job will be scheduled.  Warning: the
 	 * sort order for the Comparable interface will change. */
 	void computeNextTime() {
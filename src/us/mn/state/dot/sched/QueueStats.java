@@ -0,0 +1,153 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2026  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.sched;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Queue statistics for a Scheduler or Worker thread.  This records queue
+ * depth, start lag and durations of jobs (or work), by class name.
+ *
+ * @author Douglas Lau
+ */
+public final class QueueStats {
+
+	/** All registered queue statistics */
+	static private final CopyOnWriteArrayList<QueueStats> ALL =
+		new CopyOnWriteArrayList<QueueStats>();
+
+	/** Get a list of all registered queue statistics */
+	static public List<QueueStats> getAll() {
+		return new ArrayList<QueueStats>(ALL);
+	}
+
+	/** Cached names of anonymous classes */
+	static private final ClassValue<String> ANON_NAMES =
+		new ClassValue<String>()
+	{
+		@Override
+		protected String computeValue(Class<?> c) {
+			return anonymousName(c);
+		}
+	};
+
+	/** Get the statistics key for a job or work object */
+	static String getKey(Object o, String name) {
+		if (name != null && name.length() > 0)
+			return name;
+		// Anonymous classes have an empty simple name
+		return ANON_NAMES.get(o.getClass());
+	}
+
+	/** Get a stable name for an anonymous class.  The compiler numbers
+	 * anonymous classes (Outer$5), so use the enclosing class and method
+	 * (Outer.method) instead. */
+	static private String anonymousName(Class<?> c) {
+		Class<?> e = c.getEnclosingClass();
+		String en = "";
+		if (e != null) {
+			en = e.isAnonymousClass()
+			   ? anonymousName(e)
+			   : e.getSimpleName();
+		}
+		Method m = c.getEnclosingMethod();
+		String mn = (m != null)
+		          ? m.getName()
+		          : c.getSuperclass().getSimpleName();
+		return en + '.' + mn;
+	}
+
+	/** Name of queue thread */
+	private final String name;
+
+	/** Histogram of start lag (ms) */
+	private final Histogram lag = new Histogram();
+
+	/** Histograms of durations (us), by job or work name */
+	private final ConcurrentHashMap<String, Histogram> durations =
+		new ConcurrentHashMap<String, Histogram>();
+
+	/** Queue depth when most recent job was started */
+	private volatile int depth;
+
+	/** Maximum queue depth since last drained */
+	private final AtomicInteger max_depth = new AtomicInteger();
+
+	/** Create queue statistics and register them */
+	QueueStats(String n) {
+		name = n;
+		ALL.add(this);
+	}
+
+	/** Unregister the statistics */
+	void dispose() {
+		ALL.remove(this);
+	}
+
+	/** Record the start of a job (on the queue thread).
+	 * @param l Lag from scheduled time to start (ms).
+	 * @param d Queue depth. */
+	void recordStart(long l, int d) {
+		lag.record(l);
+		depth = d;
+		int m = max_depth.get();
+		while (d > m && !max_depth.compareAndSet(m, d))
+			m = max_depth.get();
+	}
+
+	/** Record the duration of a job.
+	 * @param key Job name.
+	 * @param ns Duration (ns). */
+	void recordDuration(String key, long ns) {
+		Histogram h = durations.get(key);
+		if (null == h) {
+			durations.putIfAbsent(key, new Histogram());
+			h = durations.get(key);
+		}
+		h.record(ns / 1000);
+	}
+
+	/** Get the name of the queue thread */
+	public String getName() {
+		return name;
+	}
+
+	/** Get the queue depth when the most recent job was started */
+	public int getDepth() {
+		return depth;
+	}
+
+	/** Get the maximum queue depth since last drained, and reset it */
+	public int drainMaxDepth() {
+		return max_depth.getAndSet(0);
+	}
+
+	/** Get the start lag histogram (ms) */
+	public Histogram getLag() {
+		return lag;
+	}
+
+	/** Get a sorted mapping of job names to duration histograms (us) */
+	public Map<String, Histogram> getDurations() {
+		return new TreeMap<String, Histogram>(durations);
+	}
+}
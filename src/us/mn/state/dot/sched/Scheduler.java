@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2000-2021  Minnesota Department of Transportation
+ * Copyright (C) 2000-2026  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -14,8 +14,12 @@
  */
 package us.mn.state.dot.sched;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * Scheduler for performing jobs in a dedicated thread.
@@ -65,6 +69,42 @@ public final class Scheduler {
 	/** Set of jobs to remove from scheduler */
 	private final TreeSet<Job> toremove = new TreeSet<Job>();
 
+	/** Timer wheel of scheduled jobs (null for TreeSet scheduling) */
+	private final TimerWheel wheel;
+
+	/** Job submissions for timer wheel (from any thread) */
+	private final ConcurrentLinkedQueue<Object> submitted =
+		new ConcurrentLinkedQueue<Object>();
+
+	/** Jobs from timer wheel which are ready to perform, in order */
+	private final LinkedHashSet<Job> ready = new LinkedHashSet<Job>();
+
+	/** Temporary list of jobs expired from timer wheel */
+	private final ArrayList<Job> expired = new ArrayList<Job>();
+
+	/** Flag to indicate scheduler thread is waiting for timer wheel */
+	private volatile boolean sleeping = false;
+
+	/** Removal request for timer wheel scheduling */
+	static private final class Removal {
+		private final Job job;
+		private Removal(Job j) {
+			job = j;
+		}
+	}
+
+	/** Queue statistics */
+	private final QueueStats stats;
+
+	/** Number of queued jobs after the current job (scheduler thread) */
+	private int queued;
+
+	/** Number of queued jobs to be considered overloaded */
+	static private final int OVERLOAD_JOBS = 5000;
+
+	/** Flag indicating the queue is overloaded */
+	private boolean overloaded = false;
+
 	/** Flag to indicate disposing */
 	private boolean disposing = false;
 
@@ -80,12 +120,27 @@ public final class Scheduler {
 
 	/** Create a new job scheduler */
 	public Scheduler(String name, ExceptionHandler h) {
+		this(name, h, false);
+	}
+
+	/** Create a new job scheduler.
+	 * @param name Name of scheduler thread.
+	 * @param h Exception handler.
+	 * @param w Use a timer wheel instead of a sorted set for jobs.  This
+	 *          allows jobs to be added and removed without locking. */
+	public Scheduler(String name, ExceptionHandler h, boolean w) {
 		slog = new DebugLog(name, h);
 		handler = h;
+		stats = new QueueStats(name);
+		wheel = w ? new TimerWheel(TimeSteward.currentTimeMillis())
+		          : null;
 		thread = new Thread(GROUP, name) {
 			public void run() {
 				try {
-					performJobs();
+					if (wheel != null)
+						performWheelJobs();
+					else
+						performJobs();
 				}
 				catch (InterruptedException e) {
 					if (!disposing)
@@ -123,6 +178,8 @@ public final class Scheduler {
 			delay = job.delay();
 		}
 		todo.remove(job);
+		queued = todo.size();
+		checkOverloaded(queued);
 		return job;
 	}
 
@@ -134,9 +191,107 @@ public final class Scheduler {
 		return todo.first();
 	}
 
+	/** Perform jobs from the timer wheel as they are scheduled */
+	private void performWheelJobs() throws InterruptedException {
+		while (!thread.isInterrupted()) {
+			Job job = waitWheelJob();
+			performJob(job);
+			if (job.isRepeating()) {
+				job.computeNextTime();
+				wheel.add(job);
+			}
+		}
+	}
+
+	/** Wait until the next job from the timer wheel needs to be performed.
+	 * @return Job to be performed. */
+	private Job waitWheelJob() throws InterruptedException {
+		while (true) {
+			processSubmitted();
+			Job job = pollReady();
+			if (job != null) {
+				queued = wheel.size() + ready.size();
+				return job;
+			}
+			long now = TimeSteward.currentTimeMillis();
+			wheel.advance(now, expired);
+			ready.addAll(expired);
+			expired.clear();
+			if (ready.isEmpty())
+				sleepWheel(wheel.nextTime() - now);
+		}
+	}
+
+	/** Remove the first ready job.
+	 * @return Job, or null if none are ready. */
+	private Job pollReady() {
+		Iterator<Job> it = ready.iterator();
+		if (it.hasNext()) {
+			Job job = it.next();
+			it.remove();
+			return job;
+		} else
+			return null;
+	}
+
+	/** Process submitted jobs for the timer wheel.  This must be done on
+	 * the scheduler thread in case a job is being performed while it is
+	 * removed. */
+	private void processSubmitted() {
+		Object s = submitted.poll();
+		while (s != null) {
+			if (s instanceof Removal) {
+				Job job = ((Removal) s).job;
+				if (!wheel.remove(job))
+					ready.remove(job);
+			} else {
+				Job job = (Job) s;
+				// Adding a job which is already scheduled
+				// (or ready) has no effect
+				if (!ready.contains(job))
+					wheel.add(job);
+			}
+			s = submitted.poll();
+		}
+		checkOverloaded(wheel.size() + ready.size());
+	}
+
+	/** Sleep until a job is submitted or a delay expires.
+	 * @param delay Delay (ms); Long.MAX_VALUE to wait for a submission. */
+	private synchronized void sleepWheel(long delay)
+		throws InterruptedException
+	{
+		sleeping = true;
+		try {
+			// Check after setting sleeping flag, in case a job was
+			// submitted without notifying
+			if (submitted.isEmpty()) {
+				if (delay == Long.MAX_VALUE)
+					wait();
+				else if (delay > 0)
+					TimeSteward.wait(this, delay);
+			}
+		}
+		finally {
+			sleeping = false;
+		}
+	}
+
+	/** Submit a job addition or removal for the timer wheel */
+	private void submit(Object s) {
+		submitted.offer(s);
+		if (sleeping) {
+			synchronized (this) {
+				notify();
+			}
+		}
+	}
+
 	/** Perform a job */
 	private void performJob(Job job) {
+		stats.recordStart(-job.delay(), queued);
 		boolean op = slog.isOpen();
+		long start = System.nanoTime();
 		try {
 			if (op)
 				slog.log("Starting " + job);
@@ -152,6 +307,8 @@ public final class Scheduler {
 			System.exit(1);
 		}
 		finally {
+			stats.recordDuration(QueueStats.getKey(job,
+				job.getName()), System.nanoTime() - start);
 			if (op)
 				slog.log("Finished " + job);
 		}
@@ -164,21 +321,49 @@ public final class Scheduler {
 	}
 
 	/** Add a job for this scheduler to perform */
-	public synchronized void addJob(Job job) {
+	public void addJob(Job job) {
+		if (wheel != null)
+			submit(job);
+		else
+			addTodo(job);
+	}
+
+	/** Check if the queue is overloaded, logging when it changes.
+	 * @param n Number of queued jobs. */
+	private void checkOverloaded(int n) {
+		boolean o = n > OVERLOAD_JOBS;
+		if (o != overloaded) {
+			overloaded = o;
+			if (slog.isOpen()) {
+				slog.log((o ? "OVERLOADED: " : "RECOVERED: ")
+					+ n);
+			}
+		}
+	}
+
+	/** Add a job to the "todo" list */
+	private synchronized void addTodo(Job job) {
 		todo.add(job);
-		if (slog.isOpen() && todo.size() > 5000)
-			slog.log("OVERLOADED: " + todo.size());
+		checkOverloaded(todo.size());
 		notify();
 	}
 
 	/** Remove a job from this scheduler */
-	public synchronized void removeJob(Job job) {
+	public void removeJob(Job job) {
 		if (job != null) {
-			toremove.add(job);
-			notify();
+			if (wheel != null)
+				submit(new Removal(job));
+			else
+				addRemove(job);
 		}
 	}
 
+	/** Add a job to the "toremove" list */
+	private synchronized void addRemove(Job job) {
+		toremove.add(job);
+		notify();
+	}
+
 	/** Remove jobs which need to be removed.  This needs to be done on the
 	 * scheduler thread in case the job is being performed while removeJob
 	 * is called. */
@@ -193,9 +378,15 @@ public final class Scheduler {
 		return Thread.currentThread() == thread;
 	}
 
+	/** Get the queue statistics */
+	public QueueStats getStats() {
+		return stats;
+	}
+
 	/** Dispose of the scheduler */
 	public void dispose() {
 		disposing = true;
+		stats.dispose();
 		thread.interrupt();
 	}
 }
@@ -0,0 +1,257 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2026  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.sched;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * A hierarchical timer wheel holds scheduled jobs with constant time insert
+ * and removal.  Each level has 256 slots, with one millisecond ticks on the
+ * lowest level.  Jobs due later than the highest level can hold are kept on
+ * an overflow list.  A timer wheel is not thread-safe; it must only be used
+ * from a scheduler thread.
+ *
+ * @author Douglas Lau
+ */
+final class TimerWheel {
+
+	/** Number of bits for slot index on each level */
+	static private final int BITS = 8;
+
+	/** Number of slots on each level */
+	static private final int SLOTS = 1 << BITS;
+
+	/** Slot index mask */
+	static private final int MASK = SLOTS - 1;
+
+	/** Number of wheel levels */
+	static private final int LEVELS = 4;
+
+	/** Get the tick granularity of one slot on a level */
+	static private long granularity(int level) {
+		return 1L << (BITS * level);
+	}
+
+	/** Entry for one job in the wheel (doubly-linked slot list) */
+	static private final class Entry {
+		private final Job job;
+		private final long time;
+		private int level;
+		private int slot;
+		private Entry prev;
+		private Entry next;
+		private Entry(Job j, long t) {
+			job = j;
+			time = t;
+		}
+	}
+
+	/** Slot list heads for each level */
+	private final Entry[][] slots = new Entry[LEVELS + 1][SLOTS];
+
+	/** Count of entries on each level (last level is overflow) */
+	private final int[] counts = new int[LEVELS + 1];
+
+	/** Mapping of jobs to wheel entries */
+	private final HashMap<Job, Entry> entries = new HashMap<Job, Entry>();
+
+	/** Current tick (all earlier ticks have been expired) */
+	private long cur;
+
+	/** Create a new timer wheel.
+	 * @param now Current time (ms). */
+	TimerWheel(long now) {
+		cur = now;
+	}
+
+	/** Get the number of jobs in the wheel */
+	int size() {
+		return entries.size();
+	}
+
+	/** Add a job to the wheel.
+	 * @param job Job to add.
+	 * @return true if the job was added, false if already present. */
+	boolean add(Job job) {
+		if (entries.containsKey(job))
+			return false;
+		Entry e = new Entry(job, job.getNextTime());
+		entries.put(job, e);
+		insert(e);
+		return true;
+	}
+
+	/** Insert an entry into the proper slot */
+	private void insert(Entry e) {
+		long t = Math.max(e.time, cur);
+		long delta = t - cur;
+		int level = 0;
+		while (level < LEVELS && delta >= granularity(level + 1))
+			level++;
+		int i = (level < LEVELS)
+		      ? (int) ((t >> (BITS * level)) & MASK)
+		      : 0;
+		e.level = level;
+		e.slot = i;
+		e.prev = null;
+		e.next = slots[level][i];
+		if (e.next != null)
+			e.next.prev = e;
+		slots[level][i] = e;
+		counts[level]++;
+	}
+
+	/** Remove a job from the wheel.
+	 * @param job Job to remove.
+	 * @return true if the job was removed. */
+	boolean remove(Job job) {
+		Entry e = entries.remove(job);
+		if (e != null) {
+			unlink(e);
+			return true;
+		} else
+			return false;
+	}
+
+	/** Unlink an entry from its slot list */
+	private void unlink(Entry e) {
+		if (e.prev != null)
+			e.prev.next = e.next;
+		else
+			slots[e.level][e.slot] = e.next;
+		if (e.next != null)
+			e.next.prev = e.prev;
+		e.prev = null;
+		e.next = null;
+		counts[e.level]--;
+	}
+
+	/** Advance the wheel, collecting all jobs due up to a time.
+	 * @param now Current time (ms).
+	 * @param due List to append due jobs, in scheduled order. */
+	void advance(long now, List<Job> due) {
+		while (cur <= now) {
+			if ((cur & MASK) == 0)
+				cascade(1);
+			expire(due);
+			cur++;
+			skipEmpty(now);
+		}
+	}
+
+	/** Expire all entries in the current lowest-level slot */
+	private void expire(List<Job> due) {
+		int i = (int) (cur & MASK);
+		Entry e = slots[0][i];
+		if (e == null)
+			return;
+		slots[0][i] = null;
+		int n = due.size();
+		while (e != null) {
+			Entry nx = e.next;
+			e.prev = null;
+			e.next = null;
+			counts[0]--;
+			entries.remove(e.job);
+			due.add(e.job);
+			e = nx;
+		}
+		// Jobs within one tick must run in the same order as the
+		// TreeSet scheduler would run them
+		if (due.size() - n > 1)
+			Collections.sort(due.subList(n, due.size()));
+	}
+
+	/** Cascade entries from one level down to lower levels */
+	private void cascade(int level) {
+		if (level < LEVELS) {
+			int i = (int) ((cur >> (BITS * level)) & MASK);
+			if (i == 0)
+				cascade(level + 1);
+			reinsert(level, i);
+		} else
+			reinsert(LEVELS, 0);
+	}
+
+	/** Reinsert all entries from one slot */
+	private void reinsert(int level, int i) {
+		Entry e = slots[level][i];
+		slots[level][i] = null;
+		while (e != null) {
+			Entry nx = e.next;
+			counts[level]--;
+			insert(e);
+			e = nx;
+		}
+	}
+
+	/** Skip ahead over ticks where nothing can happen */
+	private void skipEmpty(long now) {
+		int level = 0;
+		while (level <= LEVELS && counts[level] == 0)
+			level++;
+		if (level == 0)
+			return;
+		long t = (level <= LEVELS) ? roundUp(cur, level) : now + 1;
+		if (t > cur)
+			cur = Math.min(t, now + 1);
+	}
+
+	/** Round a tick up to a level boundary */
+	static private long roundUp(long t, int level) {
+		long g = granularity(level);
+		return (t + g - 1) / g * g;
+	}
+
+	/** Get the next time the wheel needs to be advanced.
+	 * @return Time (ms), or Long.MAX_VALUE if the wheel is empty. */
+	long nextTime() {
+		long t = Long.MAX_VALUE;
+		if (counts[0] > 0) {
+			for (int i = 0; i < SLOTS; i++) {
+				int s = (int) ((cur + i) & MASK);
+				if (slots[0][s] != null) {
+					t = cur + i;
+					break;
+				}
+			}
+		}
+		for (int level = 1; level < LEVELS; level++) {
+			if (counts[level] > 0)
+				t = Math.min(t, nextCascade(level));
+		}
+		if (counts[LEVELS] > 0)
+			t = Math.min(t, roundUp(cur, LEVELS));
+		return t;
+	}
+
+	/** Get the next time a non-empty slot on a level will cascade */
+	private long nextCascade(int level) {
+		int shift = BITS * level;
+		long b = cur >> shift;
+		if ((cur & (granularity(level) - 1)) == 0) {
+			// Current slot cascades at this tick
+			if (slots[level][(int) (b & MASK)] != null)
+				return cur;
+		}
+		for (int i = 1; i <= SLOTS; i++) {
+			if (slots[level][(int) ((b + i) & MASK)] != null)
+				return (b + i) << shift;
+		}
+		return Long.MAX_VALUE;
+	}
+}
@@ -30,6 +30,9 @@ abstract public class Work implements Comparable<Work> {
 	/** Unique work identifier */
 	private final long id = next_id.getAndIncrement();
 
+	/** Time work was queued (ns, from System.nanoTime) */
+	long queued;
+
 	/** Flag to indicate work complete */
 	private boolean is_complete = false;
 
@@ -40,12 +40,19 @@ public final class Worker {
 	/** Set of work to do */
 	private final PriorityQueue<Work> todo = new PriorityQueue<Work>();
 
+	/** Queue statistics */
+	private final QueueStats stats;
+
+	/** Number of queued work after the current work (worker thread) */
+	private int queued;
+
 	/** Flag to indicate disposing */
 	private boolean disposing = false;
 
 	/** Create a Worker */
 	public Worker(String name, ExceptionHandler h) {
 		handler = h;
+		stats = new QueueStats(name);
 		thread = new Thread(GROUP, name) {
 			public void run() {
 				try {
@@ -75,11 +82,15 @@ public final class Worker {
 	private synchronized Work waitWork() throws InterruptedException {
 		while (todo.isEmpty())
 			wait();
-		return todo.poll();
+		Work w = todo.poll();
+		queued = todo.size();
+		return w;
 	}
 
 	/** Perform Work */
 	private void performWork(Work w) {
+		long start = System.nanoTime();
+		stats.recordStart((start - w.queued) / 1000000, queued);
 		try {
 			w.performWork();
 		}
@@ -92,10 +103,16 @@ public final class Worker {
 			System.err.println("FATAL: RESTARTING");
 			System.exit(1);
 		}
+		finally {
+			stats.recordDuration(QueueStats.getKey(w,
+				w.getClass().getSimpleName()),
+				System.nanoTime() - start);
+		}
 	}
 
 	/** Add work to perform */
 	public synchronized void addWork(Work w) {
+		w.queued = System.nanoTime();
 		todo.add(w);
 		notify();
 	}
@@ -108,9 +125,15 @@ public final class Worker {
 	/** Dispose of the worker */
 	public void dispose() {
 		disposing = true;
+		stats.dispose();
 		thread.interrupt();
 	}
 
+	/** Get the queue statistics */
+	public QueueStats getStats() {
+		return stats;
+	}
+
 	/** Get the count of work in the queue */
 	public synchronized int size() {
 		return todo.size();
@@ -59,6 +59,14 @@ public class ByteBufferOutputStream extends OutputStream {
 		return buffer;
 	}
 
+	/** Get the byte buffer, expanded if needed to have at least n_bytes
+	 * remaining.  Bytes can then be put directly into the buffer. */
+	public ByteBuffer reserve(int n_bytes) {
+		if (buffer.remaining() < n_bytes)
+			expand(n_bytes);
+		return buffer;
+	}
+
 	/** Write a single byte to the output stream */
 	@Override
 	public void write(int b) {
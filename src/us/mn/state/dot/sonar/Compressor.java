@@ -0,0 +1,183 @@
+/*
+ * SONAR -- Simple Object Notification And Replication
+ * Copyright (C) 2026  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.sonar;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A compressor handles DEFLATE compression of the SONAR message stream for
+ * one connection.  A preset dictionary of common type and attribute names
+ * is used, since they are repeated in every enumerated record.  Data is
+ * flushed (SYNC_FLUSH) each time it is compressed, so small messages are
+ * not delayed.
+ *
+ * @author Douglas Lau
+ */
+public class Compressor {
+
+	/** LOGIN option to request compression */
+	static public final String DEFLATE = "deflate";
+
+	/** Size of compression scratch buffer */
+	static private final int SCRATCH_SIZE = 8192;
+
+	/** Preset dictionary of common names.  Must be identical on both
+	 * ends of a connection.  The most common names are last. */
+	static private final byte[] DICTIONARY = (
+		"camera\u001fbeacon\u001fgate_arm\u001flane_marking\u001f" +
+		"ramp_meter\u001fweather_sensor\u001fcomm_link\u001f" +
+		"sign_config\u001fsign_message\u001fsign_group\u001f" +
+		"dms_sign_group\u001fdms\u001fr_node\u001fstation\u001f" +
+		"detector\u001fgeo_loc\u001f" +
+		"msgCurrent\u001fmsgSched\u001fsignConfig\u001fstyles\u001f" +
+		"operation\u001fopStatus\u001fdeviceRequest\u001fpin\u001f" +
+		"laneType\u001flaneNumber\u001fabandoned\u001fforceFail\u001f" +
+		"autoFail\u001ffieldLength\u001ffake\u001fnodeType\u001f" +
+		"pickable\u001ftransition\u001flanes\u001fattachSide\u001f" +
+		"shift\u001factive\u001fstationId\u001f" +
+		"speedLimit\u001froadway\u001froadDir\u001fcrossStreet\u001f" +
+		"crossDir\u001fcrossMod\u001flandmark\u001flat\u001flon\u001f" +
+		"notes\u001fcontroller\u001fgeoLoc\u001ffalse\u001ftrue\u001f"
+	).getBytes(Charset.forName("UTF-8"));
+
+	/** Ensure a buffer has at least n_bytes remaining */
+	static ByteBuffer ensureRemaining(ByteBuffer buf, int n_bytes) {
+		if (buf.remaining() >= n_bytes)
+			return buf;
+		int cap = Math.max(buf.capacity() * 2,
+			buf.position() + n_bytes);
+		ByteBuffer b = ByteBuffer.allocate(cap);
+		buf.flip();
+		b.put(buf);
+		return b;
+	}
+
+	/** Deflater for outgoing data (created on first use) */
+	private Deflater deflater;
+
+	/** Inflater for incoming data (created on first use) */
+	private Inflater inflater;
+
+	/** Scratch buffer for compressed data */
+	private final byte[] scratch = new byte[SCRATCH_SIZE];
+
+	/** Count of uncompressed bytes */
+	private long n_raw = 0;
+
+	/** Count of compressed bytes */
+	private long n_compressed = 0;
+
+	/** Flag to indicate disposed */
+	private boolean disposed = false;
+
+	/** Get the deflater, creating it if necessary */
+	private Deflater getDeflater() {
+		if (null == deflater) {
+			deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+			deflater.setDictionary(DICTIONARY);
+		}
+		return deflater;
+	}
+
+	/** Get the inflater, creating it if necessary */
+	private Inflater getInflater() {
+		if (null == inflater)
+			inflater = new Inflater();
+		return inflater;
+	}
+
+	/** Get the count of uncompressed bytes */
+	public long getRawBytes() {
+		return n_raw;
+	}
+
+	/** Get the count of compressed bytes */
+	public long getCompressedBytes() {
+		return n_compressed;
+	}
+
+	/** Compress all remaining data from a buffer.
+	 * @param src Source buffer (read mode).
+	 * @param dst Destination buffer (write mode).
+	 * @return Destination buffer, which may have been expanded. */
+	public ByteBuffer compress(ByteBuffer src, ByteBuffer dst) {
+		int len = src.remaining();
+		if (len == 0 || disposed)
+			return dst;
+		Deflater d = getDeflater();
+		d.setInput(src.array(), src.arrayOffset() + src.position(), len);
+		int n;
+		do {
+			n = d.deflate(scratch, 0, scratch.length,
+				Deflater.SYNC_FLUSH);
+			dst = ensureRemaining(dst, n);
+			dst.put(scratch, 0, n);
+			n_compressed += n;
+		} while (n == scratch.length);
+		src.position(src.limit());
+		n_raw += len;
+		return dst;
+	}
+
+	/** Decompress data from a buffer, as much as will fit.
+	 * @param src Source buffer (read mode).
+	 * @param dst Destination buffer (write mode). */
+	public void decompress(ByteBuffer src, ByteBuffer dst)
+		throws IOException
+	{
+		int len = src.remaining();
+		if (disposed)
+			throw new IOException("Compressor disposed");
+		Inflater inf = getInflater();
+		inf.setInput(src.array(), src.arrayOffset() + src.position(),
+			len);
+		try {
+			while (dst.hasRemaining()) {
+				int n = inf.inflate(dst.array(),
+					dst.arrayOffset() + dst.position(),
+					dst.remaining());
+				dst.position(dst.position() + n);
+				n_raw += n;
+				if (n == 0) {
+					if (inf.needsDictionary())
+						inf.setDictionary(DICTIONARY);
+					else
+						break;
+				}
+			}
+		}
+		catch (DataFormatException e) {
+			throw new IOException("Decompression error: " +
+				e.getMessage());
+		}
+		int used = len - inf.getRemaining();
+		src.position(src.position() + used);
+		n_compressed += used;
+	}
+
+	/** Dispose of the compressor */
+	public void dispose() {
+		disposed = true;
+		if (deflater != null)
+			deflater.end();
+		if (inflater != null)
+			inflater.end();
+	}
+}
@@ -28,7 +28,7 @@ abstract public class Conduit {
 	abstract public String getName();
 
 	/** Flag to indicate that the conduit is connected */
-	protected boolean connected = false;
+	protected volatile boolean connected = false;
 
 	/** Test if the conduit is connected */
 	public boolean isConnected() {
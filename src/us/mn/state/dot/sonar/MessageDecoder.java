@@ -14,7 +14,7 @@
  */
 package us.mn.state.dot.sonar;
 
-import java.io.InputStreamReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
@@ -23,7 +23,9 @@ import java.util.List;
 
 /**
  * A message decoder provides a Java API for decoding messages from the SONAR
- * wire protocol.
+ * wire protocol.  Separators are ASCII, so records are split by scanning the
+ * UTF-8 bytes directly; each parameter is then decoded into a String in one
+ * step from the backing array of the input buffer.
  *
  * @author Douglas Lau
  */
@@ -32,32 +34,55 @@ public class MessageDecoder {
 	/** Everything on the wire is encoded to UTF-8 */
 	static private final Charset UTF8 = Charset.forName("UTF-8");
 
-	/** Byte buffer to store incoming SONAR data */
-	private final ByteBuffer app_in;
+	/** Record separator byte */
+	static private final byte RECORD_SEP = (byte) Message.RECORD_SEP.code;
 
-	/** Byte buffer input stream */
-	private final ByteBufferInputStream in_buf;
+	/** Unit separator byte */
+	static private final byte UNIT_SEP = (byte) Message.UNIT_SEP.code;
 
-	/** Char reader input stream */
-	private InputStreamReader reader;
+	/** Shared strings for single-byte ASCII parameters (message codes) */
+	static private final String[] ASCII = new String[128];
+	static {
+		for (int i = 0; i < ASCII.length; i++)
+			ASCII[i] = String.valueOf((char) i);
+	}
 
-	/** String builder to build decoded parameters */
-	private final StringBuilder m_buf = new StringBuilder();
+	/** Byte buffer to store incoming SONAR data */
+	private final ByteBuffer app_in;
+
+	/** Bytes of a parameter which was not complete at the end of the
+	 * input buffer */
+	private final ByteArrayOutputStream partial =
+		new ByteArrayOutputStream();
 
 	/** List of decoded parameters */
 	private ArrayList<String> params = new ArrayList<String>();
 
 	/** Create a new SONAR message decoder */
 	public MessageDecoder(ByteBuffer in) throws IOException {
+		if (!in.hasArray())
+			throw new IllegalArgumentException("No backing array");
 		app_in = in;
-		in_buf = new ByteBufferInputStream(in);
-		reader = new InputStreamReader(in_buf, UTF8);
 	}
 
 	/** Complete the current parameter */
-	private void completeParameter() {
-		params.add(m_buf.toString());
-		m_buf.setLength(0);
+	private void completeParameter(byte[] b, int off, int len) {
+		params.add(decodeParameter(b, off, len));
+	}
+
+	/** Decode one parameter */
+	private String decodeParameter(byte[] b, int off, int len) {
+		if (partial.size() > 0) {
+			partial.write(b, off, len);
+			String p = new String(partial.toByteArray(), UTF8);
+			partial.reset();
+			return p;
+		}
+		if (len == 0)
+			return "";
+		if (len == 1 && b[off] >= 0)
+			return ASCII[b[off]];
+		return new String(b, off, len, UTF8);
 	}
 
 	/** Decode messages */
@@ -72,22 +97,27 @@ public class MessageDecoder {
 	}
 
 	/** Decode messages */
-	private List<String> _decode() throws IOException {
-		while (reader.ready()) {
-			int ch = reader.read();
-			if (ch < 0)
-				break;
-			char c = (char) ch;
-			if (Message.RECORD_SEP.code == c) {
-				completeParameter();
+	private List<String> _decode() {
+		byte[] b = app_in.array();
+		int base = app_in.arrayOffset();
+		int start = base + app_in.position();
+		int end = base + app_in.limit();
+		for (int i = start; i < end; i++) {
+			byte c = b[i];
+			if (RECORD_SEP == c) {
+				completeParameter(b, start, i - start);
+				app_in.position(i + 1 - base);
 				List<String> p = params;
 				params = new ArrayList<String>();
 				return p;
-			} else if (Message.UNIT_SEP.code == c)
-				completeParameter();
-			else
-				m_buf.append(c);
+			} else if (UNIT_SEP == c) {
+				completeParameter(b, start, i - start);
+				start = i + 1;
+			}
 		}
+		// Save incomplete parameter, so the buffer can be refilled
+		partial.write(b, start, end - start);
+		app_in.position(end - base);
 		return null;
 	}
 
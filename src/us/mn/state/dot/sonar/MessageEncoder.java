@@ -15,87 +15,143 @@
 package us.mn.state.dot.sonar;
 
 import java.io.IOException;
-import java.io.OutputStreamWriter;
 import java.nio.ByteBuffer;
-import java.nio.charset.Charset;
 
 /**
  * A message encoder provides a Java API for encoding messages to the SONAR
- * wire protocol.
+ * wire protocol.  Everything on the wire is encoded to UTF-8, which is
+ * written directly into the output buffer without creating any temporary
+ * strings.
  *
  * @author Douglas Lau
  */
 public class MessageEncoder {
 
-	/** Everything on the wire is encoded to UTF-8 */
-	static protected final Charset UTF8 = Charset.forName("UTF-8");
+	/** Maximum number of UTF-8 bytes per code point */
+	static private final int MAX_BYTES_PER_CODE_POINT = 4;
 
-	/** Strip message delimiters and terminators from a string */
-	static protected String stripString(String s) {
-		s = s.replace(Message.UNIT_SEP.code, ' ');
-		return s.replace(Message.RECORD_SEP.code, ' ');
-	}
+	/** Replacement for unpaired surrogate chars */
+	static private final byte REPLACEMENT = (byte) '?';
 
 	/** Byte buffer output stream */
 	protected final ByteBufferOutputStream out_buf;
 
-	/** Char writer output stream */
-	protected final OutputStreamWriter writer;
-
 	/** Create a new SONAR message encoder */
 	public MessageEncoder(int n_bytes) throws IOException {
 		out_buf = new ByteBufferOutputStream(n_bytes);
-		writer = new OutputStreamWriter(out_buf, UTF8);
 	}
 
 	/** Encode one message with the given code.
-	 * This may only be called on the Task Processor thread. */
+	 * Encoding is synchronized, so this may be called from any thread. */
 	public void encode(Message m) throws IOException {
 		encode(m, null, null);
 	}
 
 	/** Encode one message with the given code and name.
-	 * This may only be called on the Task Processor thread. */
+	 * Encoding is synchronized, so this may be called from any thread. */
 	public void encode(Message m, String name) throws IOException {
 		encode(m, name, null);
 	}
 
 	/** Encode one message with the given code, name and parameters.
-	 * This may only be called on the Task Processor thread. */
-	public void encode(Message m, String name, String[] params)
-		throws IOException
+	 * Encoding is synchronized, so this may be called from any thread. */
+	public synchronized void encode(Message m, String name,
+		String[] params) throws IOException
 	{
-		writer.write(m.code);
-		if(name != null) {
-			writer.write(Message.UNIT_SEP.code);
-			writer.write(name);
-			if(params != null) {
-				for(String p: params) {
-					writer.write(Message.UNIT_SEP.code);
-					writer.write(stripString(p));
+		writeCode(m.code);
+		if (name != null) {
+			writeCode(Message.UNIT_SEP.code);
+			writeString(name, false);
+			if (params != null) {
+				for (String p: params) {
+					writeCode(Message.UNIT_SEP.code);
+					writeString(p, true);
 				}
 			}
 		}
-		writer.write(Message.RECORD_SEP.code);
+		writeCode(Message.RECORD_SEP.code);
+	}
+
+	/** Write messages which were encoded previously.
+	 * @param b Encoded bytes, which must contain whole records. */
+	public synchronized void writeEncoded(byte[] b) {
+		out_buf.reserve(b.length).put(b);
+	}
+
+	/** Write an ASCII message code */
+	private void writeCode(char c) {
+		out_buf.reserve(1).put((byte) c);
+	}
+
+	/** Write a string as UTF-8.  Space is reserved for one byte per
+	 * char, and expanded as needed when a non-ASCII char is found, so the
+	 * buffer only grows to the encoded length.
+	 * @param s String to write.
+	 * @param strip Replace message delimiters and terminators with
+	 *              spaces. */
+	private void writeString(String s, boolean strip) {
+		int len = s.length();
+		ByteBuffer buf = out_buf.reserve(len);
+		for (int i = 0; i < len; i++) {
+			char c = s.charAt(i);
+			if (c < 0x80) {
+				if (strip && (c == Message.UNIT_SEP.code ||
+				              c == Message.RECORD_SEP.code))
+					c = ' ';
+				buf.put((byte) c);
+				continue;
+			}
+			// Room for this code point, plus one byte for each
+			// remaining char
+			int n_bytes = MAX_BYTES_PER_CODE_POINT + len - i - 1;
+			if (buf.remaining() < n_bytes)
+				buf = out_buf.reserve(n_bytes);
+			if (c < 0x800) {
+				buf.put((byte) (0xC0 | (c >> 6)));
+				buf.put((byte) (0x80 | (c & 0x3F)));
+			} else if (Character.isHighSurrogate(c)) {
+				if (i + 1 < len &&
+				    Character.isLowSurrogate(s.charAt(i + 1)))
+				{
+					i++;
+					putCodePoint(buf, Character.toCodePoint(
+						c, s.charAt(i)));
+				} else
+					buf.put(REPLACEMENT);
+			} else if (Character.isLowSurrogate(c))
+				buf.put(REPLACEMENT);
+			else {
+				buf.put((byte) (0xE0 | (c >> 12)));
+				buf.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+				buf.put((byte) (0x80 | (c & 0x3F)));
+			}
+		}
 	}
 
-	/** Flush the encoded data */
-	public void flush() throws IOException {
-		writer.flush();
+	/** Put a supplementary code point (4 UTF-8 bytes) */
+	static private void putCodePoint(ByteBuffer buf, int cp) {
+		buf.put((byte) (0xF0 | (cp >> 18)));
+		buf.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+		buf.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+		buf.put((byte) (0x80 | (cp & 0x3F)));
 	}
 
+	/** Flush the encoded data.  Data is encoded directly into the output
+	 * buffer, so there is nothing left to flush. */
+	public synchronized void flush() throws IOException { }
+
 	/** Get the current output buffer */
 	public ByteBuffer getBuffer() {
 		return out_buf.getBuffer();
 	}
 
 	/** Check if there is any encoded data */
-	public boolean hasData() {
+	public synchronized boolean hasData() {
 		return getBuffer().position() > 0;
 	}
 
 	/** Compact the output buffer */
-	public void compact() {
+	public synchronized void compact() {
 		out_buf.compact();
 	}
 }
@@ -1,6 +1,6 @@
 /*
  * SONAR -- Simple Object Notification And Replication
- * Copyright (C) 2006-2019  Minnesota Department of Transportation
+ * Copyright (C) 2006-2026  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -300,6 +300,19 @@ abstract public class Namespace {
 	 * @return Iterator of all objects of the type. */
 	abstract public Iterator<SonarObject> iterator(String tname);
 
+	/** Get an iterator for objects of a type with an attribute value,
+	 * using a secondary index.
+	 * @param tname Sonar type name.
+	 * @param aname Attribute name.
+	 * @param v Attribute value.
+	 * @return Iterator of matching objects, or null if the attribute is
+	 *         not indexed. */
+	public Iterator<SonarObject> lookupIndex(String tname, String aname,
+		Object v)
+	{
+		return null;
+	}
+
 	/** Get a count of the number of objects of the specified type.
 	 * @param tname Sonar type name
 	 * @return Total number of objects of the specified type */
@@ -106,6 +106,21 @@ public class SSLState {
 	/** Encoder for messages to send */
 	public final MessageEncoder encoder;
 
+	/** Compressor for message stream (null for no compression) */
+	private volatile Compressor compressor;
+
+	/** Count of encoded bytes to send uncompressed, before compression
+	 * starts (protected by encoder lock) */
+	private int plain_bytes = 0;
+
+	/** Buffer of compressed data to wrap (protected by encoder lock).
+	 * This is null unless outgoing data is compressed. */
+	private ByteBuffer z_out;
+
+	/** Buffer of compressed data to decompress.  This is null unless
+	 * incoming data is compressed. */
+	private ByteBuffer z_in;
+
 	/** Create a new SONAR SSL state */
 	public SSLState(Conduit c, SSLContext context, Properties props,
 		boolean client) throws SSLException, IOException
@@ -136,14 +151,68 @@ public class SSLState {
 		return net_in;
 	}
 
+	/** Start compressing outgoing data.  Data which has already been
+	 * encoded is sent uncompressed. */
+	public void startCompression() {
+		synchronized (encoder) {
+			plain_bytes = encoder.getBuffer().position();
+			z_out = ByteBuffer.allocate(ssl_out.capacity());
+			compressor = new Compressor();
+		}
+	}
+
+	/** Start decompressing incoming data.  Any data which has been
+	 * received, but not yet decoded, must be compressed.
+	 * This may only be called on the thread processing the connection. */
+	public void startDecompression() {
+		z_in = ByteBuffer.allocate(app_in.capacity());
+		app_in.flip();
+		z_in.put(app_in);
+		app_in.clear();
+		compressor = new Compressor();
+	}
+
+	/** Get the count of uncompressed bytes (0 if not compressed) */
+	public long getRawBytes() {
+		Compressor c = compressor;
+		return (c != null) ? c.getRawBytes() : 0;
+	}
+
+	/** Get the count of compressed bytes (0 if not compressed) */
+	public long getCompressedBytes() {
+		Compressor c = compressor;
+		return (c != null) ? c.getCompressedBytes() : 0;
+	}
+
+	/** Dispose of the SSL state */
+	public void dispose() {
+		synchronized (encoder) {
+			if (compressor != null)
+				compressor.dispose();
+		}
+	}
+
 	/** Read available data from network input buffer.
-	 * This may only be called on the Task Processor thread. */
-	public boolean doRead() throws SSLException {
+	 * This may only be called on the thread processing the connection. */
+	public boolean doRead() throws IOException {
 		doUnwrap();
 		while (doHandshake());
+		if (z_in != null)
+			doDecompress();
 		return app_in.position() > 0;
 	}
 
+	/** Decompress received data into application buffer */
+	private void doDecompress() throws IOException {
+		z_in.flip();
+		try {
+			compressor.decompress(z_in, app_in);
+		}
+		finally {
+			z_in.compact();
+		}
+	}
+
 	/** Do something to progress handshaking */
 	private boolean doHandshake() throws SSLException {
 		SSLEngineResult.HandshakeStatus hs = engine.getHandshakeStatus();
@@ -173,7 +242,7 @@ public class SSLState {
 	}
 
 	/** Write data to the network output buffer.
-	 * This may only be called on the Task Processor thread. */
+	 * This may only be called on the thread processing the connection. */
 	public void doWrite() throws SSLException {
 		if (canWrite())
 			doWrap();
@@ -182,9 +251,17 @@ public class SSLState {
 	}
 
 	/** Check if data should be written.
-	 * This may only be called on the Task Processor thread. */
+	 * This may only be called on the thread processing the connection. */
 	public boolean shouldWrite() {
-		return encoder.hasData() && canWrite();
+		return hasData() && canWrite();
+	}
+
+	/** Check if there is any data to write */
+	private boolean hasData() {
+		synchronized (encoder) {
+			return encoder.hasData() ||
+			      (z_out != null && z_out.position() > 0);
+		}
 	}
 
 	/** Check if data can be written to network buffer */
@@ -203,25 +280,61 @@ public class SSLState {
 
 	/** Wrap application data into SSL buffer */
 	private void doWrap() throws SSLException {
-		ssl_out.clear();
-		ByteBuffer app_out = encoder.getBuffer();
-		app_out.flip();
-		try {
-			engine.wrap(app_out, ssl_out);
-		}
-		finally {
-			encoder.compact();
-		}
-		ssl_out.flip();
 		int n_bytes;
-		synchronized (net_out) {
-			net_out.put(ssl_out);
-			n_bytes = net_out.position();
+		// Encoder lock is held so that messages encoded on another
+		// thread are not compacted away before being wrapped
+		synchronized (encoder) {
+			ssl_out.clear();
+			ByteBuffer app_out = encoder.getBuffer();
+			app_out.flip();
+			try {
+				if (z_out != null && plain_bytes == 0)
+					wrapCompressed(app_out);
+				else
+					wrapPlain(app_out);
+			}
+			finally {
+				encoder.compact();
+			}
+			ssl_out.flip();
+			synchronized (net_out) {
+				net_out.put(ssl_out);
+				n_bytes = net_out.position();
+			}
 		}
 		if (n_bytes > 0)
 			conduit.enableWrite();
 	}
 
+	/** Wrap uncompressed application data */
+	private void wrapPlain(ByteBuffer app_out) throws SSLException {
+		if (z_out != null) {
+			int lim = app_out.limit();
+			int pos = app_out.position();
+			app_out.limit(Math.min(lim, pos + plain_bytes));
+			try {
+				engine.wrap(app_out, ssl_out);
+			}
+			finally {
+				plain_bytes -= app_out.position() - pos;
+				app_out.limit(lim);
+			}
+		} else
+			engine.wrap(app_out, ssl_out);
+	}
+
+	/** Compress all application data, then wrap compressed data */
+	private void wrapCompressed(ByteBuffer app_out) throws SSLException {
+		z_out = compressor.compress(app_out, z_out);
+		z_out.flip();
+		try {
+			engine.wrap(z_out, ssl_out);
+		}
+		finally {
+			z_out.compact();
+		}
+	}
+
 	/** Unwrap SSL data into appcliation buffer */
 	private boolean doUnwrap() throws SSLException {
 		synchronized (net_in) {
@@ -232,7 +345,12 @@ public class SSLState {
 					ssl_in.clear();
 					engine.unwrap(net_in, ssl_in);
 					ssl_in.flip();
-					app_in.put(ssl_in);
+					if (z_in != null) {
+						z_in = Compressor.ensureRemaining(
+							z_in, ssl_in.remaining());
+						z_in.put(ssl_in);
+					} else
+						app_in.put(ssl_in);
 				}
 				return net_in.remaining() < n_rem;
 			}
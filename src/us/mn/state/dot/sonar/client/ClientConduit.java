@@ -26,6 +26,7 @@ import java.util.List;
 import java.util.Properties;
 import javax.naming.AuthenticationException;
 import us.mn.state.dot.sched.ExceptionHandler;
+import us.mn.state.dot.sonar.Compressor;
 import us.mn.state.dot.sonar.Conduit;
 import us.mn.state.dot.sonar.ConfigurationError;
 import us.mn.state.dot.sonar.Message;
@@ -126,6 +127,19 @@ class ClientConduit extends Conduit {
 	/** Name of connection */
 	private String connection = null;
 
+	/** Flag to request compression from the server.  This is cleared
+	 * if the server does not support compression. */
+	private boolean compress;
+
+	/** Flag indicating the server acknowledged compression */
+	private boolean compressing = false;
+
+	/** User name for pending login (null when not logging in) */
+	private String login_name;
+
+	/** Password for pending login (null when not logging in) */
+	private String login_pwd;
+
 	/** Get the connection name */
 	public String getConnection() {
 		return connection;
@@ -148,6 +162,8 @@ class ClientConduit extends Conduit {
 		namespace = new ClientNamespace();
 		handler = h;
 		connected = false;
+		compress = Boolean.parseBoolean(props.getProperty(
+			"sonar.compress"));
 	}
 
 	/** Dispose of the conduit */
@@ -211,6 +227,7 @@ class ClientConduit extends Conduit {
 	@Override
 	protected void disconnect() {
 		super.disconnect();
+		state.dispose();
 		closeChannel();
 		closeSelector();
 		loggedIn = false;
@@ -323,6 +340,7 @@ class ClientConduit extends Conduit {
 		else {
 			namespace.setCurrentType("");
 			loggedIn = true;
+			clearLogin();
 			notifyLogin();
 		}
 	}
@@ -351,12 +369,26 @@ class ClientConduit extends Conduit {
 	public void doShow(List<String> p) throws SonarException {
 		if (p.size() != 2)
 			throw ProtocolError.wrongParameterCount();
-		if (!loggedIn)
-			notifyLogin();
 		String m = p.get(1);
+		if (!loggedIn) {
+			if (isCompressRejected(m)) {
+				retryLogin();
+				return;
+			}
+			clearLogin();
+			notifyLogin();
+		}
 		// First SHOW message after login is the connection name
 		if (loggedIn && connection == null)
 			connection = m;
+		// Server acknowledges compression after connection name
+		else if (compress && !compressing && loggedIn &&
+		         Compressor.DEFLATE.equals(m))
+		{
+			// Everything after the acknowledgement is compressed
+			compressing = true;
+			state.startDecompression();
+		}
 		// NOTE: this is a bit fragile
 		else if (m.contains("Authentication failed"))
 			handler.handle(new AuthenticationException(m));
@@ -366,9 +398,43 @@ class ClientConduit extends Conduit {
 			handler.handle(new SonarShowException(m));
 	}
 
+	/** Check if a SHOW message rejects a compression request.  Servers
+	 * without compression support reject a LOGIN with the extra
+	 * parameter. */
+	private boolean isCompressRejected(String m) {
+		return compress && login_name != null && m.equals(
+			ProtocolError.wrongParameterCount().getMessage());
+	}
+
+	/** Retry a rejected login without requesting compression */
+	private void retryLogin() {
+		compress = false;
+		try {
+			login(login_name, login_pwd);
+		}
+		catch (IOException e) {
+			clearLogin();
+			notifyLogin();
+		}
+	}
+
+	/** Clear pending login credentials */
+	private void clearLogin() {
+		login_name = null;
+		login_pwd = null;
+	}
+
 	/** Attempt to log in to the SONAR server */
 	void login(String name, String pwd) throws IOException {
-		state.encoder.encode(Message.LOGIN, name, new String[] {pwd});
+		String[] p;
+		if (compress) {
+			// Keep credentials in case server rejects request
+			login_name = name;
+			login_pwd = pwd;
+			p = new String[] { pwd, Compressor.DEFLATE };
+		} else
+			p = new String[] { pwd };
+		state.encoder.encode(Message.LOGIN, name, p);
 		flush();
 	}
 
@@ -14,8 +14,12 @@
  */
 package us.mn.state.dot.sonar.server;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.Arrays;
@@ -27,6 +31,8 @@ import us.mn.state.dot.sonar.SonarObject;
 /**
  * An attribute dispatcher is an adapter for SonarObjects. It provides
  * a pair of simple methods to set and get attributes of those objects.
+ * Methods are found by reflection once, then compiled into method handles
+ * so that getting and setting attributes avoids reflective invocation.
  *
  * @author Douglas Lau
  */
@@ -47,6 +53,71 @@ public class AttributeDispatcher {
 	/** Empty array of strings */
 	static private final String[] EMPTY_STRING = new String[0];
 
+	/** Method lookup for creating method handles */
+	static private final MethodHandles.Lookup LOOKUP =
+		MethodHandles.lookup();
+
+	/** Generic type for compiled invokers */
+	static private final MethodType INVOKER_TYPE = MethodType.methodType(
+		Object.class, Object.class, Object[].class);
+
+	/** An invoker is a method compiled into a method handle */
+	static private final class Invoker {
+
+		/** Parameter types of the method */
+		private final Class[] p_types;
+
+		/** Method handle with signature (Object, Object[])Object */
+		private final MethodHandle handle;
+
+		/** Create a new invoker */
+		private Invoker(Method m) {
+			p_types = m.getParameterTypes();
+			handle = unreflect(m).asSpreader(Object[].class,
+				p_types.length).asType(INVOKER_TYPE);
+		}
+
+		/** Invoke the method on an object */
+		private Object invoke(SonarObject o, Object[] params)
+			throws SonarException
+		{
+			try {
+				return handle.invokeExact((Object) o, params);
+			}
+			catch (VirtualMachineError e) {
+				throw e;
+			}
+			catch (Throwable e) {
+				// Wrap like Method.invoke, so exception
+				// causes are the same as with reflection
+				throw new SonarException(
+					new InvocationTargetException(e));
+			}
+		}
+	}
+
+	/** Create a method handle for a method */
+	static private MethodHandle unreflect(Method m) {
+		try {
+			return LOOKUP.unreflect(m);
+		}
+		catch (IllegalAccessException e) {
+			// Public method of a non-public class
+			m.setAccessible(true);
+			try {
+				return LOOKUP.unreflect(m);
+			}
+			catch (IllegalAccessException e2) {
+				throw new IllegalStateException(e2);
+			}
+		}
+	}
+
+	/** Create an invoker for a method (may be null) */
+	static private Invoker create_invoker(Method m) {
+		return (m != null) ? new Invoker(m) : null;
+	}
+
 	/** Test if a class is an interface extending SonarObject */
 	static private boolean is_sonar_iface(Class iface) {
 		return iface.isInterface() &&
@@ -118,22 +189,31 @@ public class AttributeDispatcher {
 	private final Constructor constructor;
 
 	/** Method to store an object */
-	private final Method storer;
+	private final Invoker storer;
 
 	/** Method to destroy an object */
-	private final Method destroyer;
+	private final Invoker destroyer;
 
 	/** Mapping of attribute names to setter methods */
-	private final HashMap<String, Method> setters =
-		new HashMap<String, Method>();
+	private final HashMap<String, Invoker> setters =
+		new HashMap<String, Invoker>();
 
 	/** Mapping of attribute names to getter methods */
-	private final HashMap<String, Method> getters =
-		new HashMap<String, Method>();
+	private final HashMap<String, Invoker> getters =
+		new HashMap<String, Invoker>();
+
+	/** Array of gettable attributes */
+	private final String[] gettable;
 
 	/** Get an array of gettable attributes */
 	public String[] getGettableAttributes() {
-		return getters.keySet().toArray(EMPTY_STRING);
+		return gettable.clone();
+	}
+
+	/** Get the shared array of gettable attributes, without copying.
+	 * It must not be modified. */
+	String[] getGettable() {
+		return gettable;
 	}
 
 	/** Test if an attribute is gettable */
@@ -148,9 +228,10 @@ public class AttributeDispatcher {
 		the_class = c;
 		namespace = ns;
 		lookup_attributes(c);
+		gettable = getters.keySet().toArray(EMPTY_STRING);
 		constructor = lookup_constructor(c);
-		storer = lookup_storer(c);
-		destroyer = lookup_destroyer(c);
+		storer = create_invoker(lookup_storer(c));
+		destroyer = create_invoker(lookup_destroyer(c));
 	}
 
 	/** Lookup all the attributes of the specified class */
@@ -182,7 +263,7 @@ public class AttributeDispatcher {
 	private void lookup_setter(Method im) {
 		Method m = lookup__etter(im);
 		if (m != null)
-			setters.put(attribute_name(im.getName()), m);
+			setters.put(attribute_name(im.getName()), new Invoker(m));
 	}
 
 	/** Lookup a getter method.
@@ -190,7 +271,7 @@ public class AttributeDispatcher {
 	private void lookup_getter(Method im) {
 		Method m = lookup__etter(im);
 		if (m != null)
-			getters.put(attribute_name(im.getName()), m);
+			getters.put(attribute_name(im.getName()), new Invoker(m));
 	}
 
 	/** Lookup a setter or getter method.
@@ -240,24 +321,11 @@ public class AttributeDispatcher {
 	}
 
 	/** Invoke a method on the given SONAR object */
-	private Object _invoke(SonarObject o, Method method, Object[] params)
-		throws SonarException
-	{
-		try {
-			return method.invoke(o, params);
-		}
-		catch (Exception e) {
-			throw new SonarException(e);
-		}
-	}
-
-	/** Invoke a method on the given SONAR object */
-	private Object invoke(SonarObject o, Method method, String[] v)
+	private Object invoke(SonarObject o, Invoker method, String[] v)
 		throws SonarException
 	{
-		Class[] p_types = method.getParameterTypes();
-		Object[] params = namespace.unmarshall(p_types, v);
-		return _invoke(o, method, params);
+		Object[] params = namespace.unmarshall(method.p_types, v);
+		return method.invoke(o, params);
 	}
 
 	/** Store the given object */
@@ -278,7 +346,7 @@ public class AttributeDispatcher {
 	public void setValue(SonarObject o, String a, String[] v)
 		throws SonarException
 	{
-		Method m = setters.get(a);
+		Invoker m = setters.get(a);
 		if (m == null)
 			throw PermissionDenied.cannotWrite(a);
 		invoke(o, m, v);
@@ -323,10 +391,10 @@ public class AttributeDispatcher {
 	public String[] getValue(SonarObject o, String a)
 		throws SonarException
 	{
-		Method m = getters.get(a);
+		Invoker m = getters.get(a);
 		if (m == null)
 			throw PermissionDenied.cannotRead(a);
-		Object result = _invoke(o, m, NO_PARAMS);
+		Object result = m.invoke(o, NO_PARAMS);
 		if (result instanceof Object[]) {
 			Object[] r = (Object [])result;
 			String[] res = new String[r.length];
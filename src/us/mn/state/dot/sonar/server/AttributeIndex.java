@@ -0,0 +1,92 @@
+/*
+ * SONAR -- Simple Object Notification And Replication
+ * Copyright (C) 2026  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.sonar.server;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import us.mn.state.dot.sonar.SonarObject;
+
+/**
+ * An attribute index maps values of one attribute to the objects of a type
+ * having that value.  Values are marshalled attribute strings.
+ *
+ * @author Douglas Lau
+ */
+class AttributeIndex {
+
+	/** Attribute name */
+	public final String attr;
+
+	/** Mapping of attribute values to objects */
+	private final HashMap<String, LinkedHashSet<SonarObject>> objs =
+		new HashMap<String, LinkedHashSet<SonarObject>>();
+
+	/** Mapping of object names to indexed values */
+	private final HashMap<String, String> values =
+		new HashMap<String, String>();
+
+	/** Create a new attribute index */
+	public AttributeIndex(String a) {
+		attr = a;
+	}
+
+	/** Update the indexed value of an object.
+	 * @param o Object to update.
+	 * @param v New attribute value. */
+	public synchronized void update(SonarObject o, String v) {
+		String n = o.getName();
+		String ov = values.put(n, v);
+		if (ov != null) {
+			if (ov.equals(v))
+				return;
+			removeValue(ov, o);
+		}
+		LinkedHashSet<SonarObject> set = objs.get(v);
+		if (null == set) {
+			set = new LinkedHashSet<SonarObject>();
+			objs.put(v, set);
+		}
+		set.add(o);
+	}
+
+	/** Remove an object from the index */
+	public synchronized void remove(SonarObject o) {
+		String ov = values.remove(o.getName());
+		if (ov != null)
+			removeValue(ov, o);
+	}
+
+	/** Remove an object from the set for one value */
+	private void removeValue(String v, SonarObject o) {
+		LinkedHashSet<SonarObject> set = objs.get(v);
+		if (set != null) {
+			set.remove(o);
+			if (set.isEmpty())
+				objs.remove(v);
+		}
+	}
+
+	/** Lookup all objects with an attribute value.
+	 * @param v Attribute value.
+	 * @return List of matching objects (a copy). */
+	public synchronized List<SonarObject> lookup(String v) {
+		LinkedHashSet<SonarObject> set = objs.get(v);
+		return (set != null)
+		      ? new ArrayList<SonarObject>(set)
+		      : new ArrayList<SonarObject>(0);
+	}
+}
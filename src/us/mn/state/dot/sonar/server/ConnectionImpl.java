@@ -24,11 +24,14 @@ import java.nio.channels.SocketChannel;
 import java.util.Date;
 import java.util.EnumSet;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import javax.net.ssl.SSLException;
 import static us.mn.state.dot.sched.TimeSteward.currentTimeMillis;
+import us.mn.state.dot.sonar.Compressor;
 import us.mn.state.dot.sonar.Conduit;
 import us.mn.state.dot.sonar.Connection;
 import us.mn.state.dot.sonar.Message;
@@ -104,8 +107,9 @@ public class ConnectionImpl extends Conduit implements Connection {
 	}
 
 	/** User logged in on the connection.
-	 * May be null (before a successful login). */
-	protected UserImpl user;
+	 * May be null (before a successful login).  This is set on the Task
+	 * Processor thread, and read on the connection's worker. */
+	protected volatile UserImpl user;
 
 	/** Get the user logged in on the connection.
 	 * May be null (before a successful login). */
@@ -154,6 +158,26 @@ public class ConnectionImpl extends Conduit implements Connection {
 	 * in the database. */
 	protected SonarObject phantom;
 
+	/** Attribute notifications pending until the next flush.  Repeated
+	 * notifications for the same name are coalesced to the latest value.
+	 * Lock this before the encoder when both are needed. */
+	private final LinkedHashMap<String, String[]> pending =
+		new LinkedHashMap<String, String[]>();
+
+	/** Flag to compress data after login */
+	private boolean compress = false;
+
+	/** Count of attribute notifications coalesced (protected by pending
+	 * lock) */
+	private long n_coalesced = 0;
+
+	/** Get the count of attribute notifications coalesced */
+	public long getCoalescedCount() {
+		synchronized (pending) {
+			return n_coalesced;
+		}
+	}
+
 	/** Create a new connection */
 	public ConnectionImpl(TaskProcessor p, SelectionKey k, SocketChannel c)
 		throws SSLException, IOException
@@ -218,13 +242,18 @@ public class ConnectionImpl extends Conduit implements Connection {
 	}
 
 	/** Disconnect the client connection.
-	 * This may only be called on the Task Processor thread. */
+	 * This may only be called on a Task Processor worker. */
 	protected void disconnect() {
 		super.disconnect();
 		synchronized (watching) {
 			watching.clear();
 		}
+		synchronized (pending) {
+			pending.clear();
+		}
 		processor.disconnect(skey);
+		debugCompression();
+		state.dispose();
 		try {
 			channel.close();
 		}
@@ -234,8 +263,18 @@ public class ConnectionImpl extends Conduit implements Connection {
 		}
 	}
 
+	/** Debug compressed byte counts */
+	private void debugCompression() {
+		long raw = state.getRawBytes();
+		if (raw > 0 && TaskProcessor.DEBUG.isOpen()) {
+			TaskProcessor.DEBUG.log("Compressed " + raw + " to " +
+				state.getCompressedBytes() + " bytes on " +
+				getName());
+		}
+	}
+
 	/** Disconnect the client connection.
-	 * This may only be called on the Task Processor thread. */
+	 * This may only be called on a Task Processor worker. */
 	protected void disconnect(String msg) {
 		TaskProcessor.DEBUG.log(msg + " on " + getName() + ", " +
 			getUserName());
@@ -285,10 +324,16 @@ public class ConnectionImpl extends Conduit implements Connection {
 	}
 
 	/** Notify the client of a new object being added.
-	 * This may only be called on the Task Processor thread. */
+	 * This may only be called on a Task Processor worker. */
 	protected void notifyObject(SonarObject o) {
 		try {
-			namespace.enumerateObject(state.encoder, o);
+			// Hold pending lock so that a flush on the connection
+			// shard cannot encode attributes between the records
+			// of this object
+			synchronized (pending) {
+				encodePending();
+				namespace.enumerateObject(state.encoder, o);
+			}
 			flush();
 		}
 		catch (SonarException e) {
@@ -300,14 +345,14 @@ public class ConnectionImpl extends Conduit implements Connection {
 	}
 
 	/** Notify the client of a new object being added.
-	 * This may only be called on the Task Processor thread. */
+	 * This may only be called on a Task Processor worker. */
 	void notifyObject(Name name, SonarObject o) {
 		if (isWatching(name))
 			notifyObject(o);
 	}
 
 	/** Notify the client of an attribute change.
-	 * This may only be called on the Task Processor thread. */
+	 * This may only be called on a Task Processor worker. */
 	void notifyAttribute(Name name, String[] params) {
 		User u = user;
 		if (u != null &&
@@ -318,20 +363,37 @@ public class ConnectionImpl extends Conduit implements Connection {
 		}
 	}
 
-	/** Notify the client of an attribute change.
-	 * This may only be called on the Task Processor thread. */
+	/** Notify the client of an attribute change.  The notification is
+	 * queued until the next flush, replacing any pending notification for
+	 * the same name.
+	 * This may only be called on a Task Processor worker. */
 	private void notifyAttribute(String name, String[] params) {
-		try {
-			state.encoder.encode(Message.ATTRIBUTE, name, params);
-			flush();
+		boolean first;
+		synchronized (pending) {
+			first = pending.isEmpty();
+			if (pending.put(name, params) != null) {
+				n_coalesced++;
+				processor.countCoalesced();
+			}
 		}
-		catch (IOException e) {
-			disconnect("I/O error: notifyAttribute " + name);
+		if (first)
+			processor.flush(this);
+	}
+
+	/** Encode all pending attribute notifications.  This must be called
+	 * before encoding any other message, to preserve message order. */
+	private void encodePending() throws IOException {
+		synchronized (pending) {
+			for (Map.Entry<String, String[]> e: pending.entrySet()) {
+				state.encoder.encode(Message.ATTRIBUTE,
+					e.getKey(), e.getValue());
+			}
+			pending.clear();
 		}
 	}
 
 	/** Notify the client of a name being removed.
-	 * This may only be called on the Task Processor thread. */
+	 * This may only be called on a Task Processor worker. */
 	void notifyRemove(Name name) {
 		if (isWatching(name)) {
 			notifyRemove(name.toString());
@@ -340,9 +402,10 @@ public class ConnectionImpl extends Conduit implements Connection {
 	}
 
 	/** Notify the client of a name being removed.
-	 * This may only be called on the Task Processor thread. */
+	 * This may only be called on a Task Processor worker. */
 	protected void notifyRemove(String name) {
 		try {
+			encodePending();
 			state.encoder.encode(Message.REMOVE, name);
 			flush();
 		}
@@ -358,7 +421,7 @@ public class ConnectionImpl extends Conduit implements Connection {
 	}
 
 	/** Process any incoming messages.
-	 * This may only be called on the Task Processor thread. */
+	 * This may only be called on a Task Processor worker. */
 	void processMessages() {
 		if (!isConnected())
 			return;
@@ -374,7 +437,7 @@ public class ConnectionImpl extends Conduit implements Connection {
 	}
 
 	/** Process any incoming messages.
-	 * This may only be called on the Task Processor thread. */
+	 * This may only be called on a Task Processor worker. */
 	protected void _processMessages() throws SSLException, IOException {
 		while (state.doRead()) {
 			List<String> params = state.decoder.decode();
@@ -387,7 +450,7 @@ public class ConnectionImpl extends Conduit implements Connection {
 	}
 
 	/** Process one message from the client.
-	 * This may only be called on the Task Processor thread. */
+	 * This may only be called on a Task Processor worker. */
 	protected void processMessage(List<String> params)
 		throws IOException
 	{
@@ -396,6 +459,7 @@ public class ConnectionImpl extends Conduit implements Connection {
 				_processMessage(params);
 		}
 		catch (SonarException e) {
+			encodePending();
 			state.encoder.encode(Message.SHOW, e.getMessage());
 			TaskProcessor.DEBUG.log("Message error: " +
 				e.getMessage());
@@ -403,7 +467,7 @@ public class ConnectionImpl extends Conduit implements Connection {
 	}
 
 	/** Process one message from the client.
-	 * This may only be called on the Task Processor thread. */
+	 * This may only be called on a Task Processor worker. */
 	protected void _processMessage(List<String> params)
 		throws SonarException
 	{
@@ -414,14 +478,14 @@ public class ConnectionImpl extends Conduit implements Connection {
 	}
 
 	/** Process one message from the client.
-	 * This may only be called on the Task Processor thread. */
+	 * This may only be called on a Task Processor worker. */
 	private void _processMessage(Message m, List<String> params)
 		throws SonarException
 	{
 		final boolean op = TaskProcessor.DEBUG_TIME.isOpen();
 		final long st = (op) ? currentTimeMillis() : 0;
 		try {
-			m.handle(this, params);
+			processor.handleMessage(this, m, params);
 		}
 		finally {
 			if (op) {
@@ -432,17 +496,18 @@ public class ConnectionImpl extends Conduit implements Connection {
 	}
 
 	/** Start writing data to client.
-	 * This may only be called on the Task Processor thread. */
+	 * This may only be called on a Task Processor worker. */
 	protected void startWrite() throws IOException {
 		if (state.shouldWrite())
 			state.doWrite();
 	}
 
 	/** Tell the I/O thread to flush the output buffer.
-	 * This may only be called on the Task Processor thread. */
+	 * This may only be called on a Task Processor worker. */
 	@Override
 	public void flush() {
 		try {
+			encodePending();
 			state.encoder.flush();
 			if (isConnected())
 				startWrite();
@@ -456,15 +521,18 @@ public class ConnectionImpl extends Conduit implements Connection {
 	}
 
 	/** Respond to a LOGIN message.
-	 * This may only be called on the Task Processor thread. */
+	 * This may only be called on a Task Processor worker. */
 	@Override
 	public void doLogin(List<String> params) throws SonarException {
 		if (user != null)
 			throw ProtocolError.alreadyLoggedIn();
-		if (params.size() != 3)
+		if (params.size() < 3 || params.size() > 4)
 			throw ProtocolError.wrongParameterCount();
 		String name = params.get(1);
 		String password = params.get(2);
+		// Optional parameter to request compression
+		if (params.size() > 3)
+			compress = Compressor.DEFLATE.equals(params.get(3));
 		doLogin(name, password.toCharArray());
 	}
 
@@ -474,7 +542,7 @@ public class ConnectionImpl extends Conduit implements Connection {
 	}
 
 	/** Finish a LOGIN after user has been authenticated.
-	 * This may only be called on the Task Processor thread. */
+	 * This may only be called on a Task Processor worker. */
 	public void finishLogin(UserImpl u) {
 		try {
 			user = u;
@@ -482,6 +550,13 @@ public class ConnectionImpl extends Conduit implements Connection {
 			state.encoder.encode(Message.TYPE);
 			// Send the connection name to the client first
 			state.encoder.encode(Message.SHOW, hostport);
+			if (compress) {
+				// Acknowledge compression request; everything
+				// after this is compressed
+				state.encoder.encode(Message.SHOW,
+					Compressor.DEFLATE);
+				state.startCompression();
+			}
 			flush();
 		}
 		catch (IOException e) {
@@ -490,7 +565,7 @@ public class ConnectionImpl extends Conduit implements Connection {
 	}
 
 	/** Fail a LOGIN attempt.
-	 * This may only be called on the Task Processor thread. */
+	 * This may only be called on a Task Processor worker. */
 	public void failLogin() {
 		try {
 			state.encoder.encode(Message.SHOW, PermissionDenied.
@@ -516,6 +591,7 @@ public class ConnectionImpl extends Conduit implements Connection {
 	/** Fail a PASSWORD change attempt */
 	public void failPassword(String msg) {
 		try {
+			encodePending();
 			state.encoder.encode(Message.SHOW, msg);
 			flush();
 		}
@@ -525,14 +601,14 @@ public class ConnectionImpl extends Conduit implements Connection {
 	}
 
 	/** Respond to a QUIT message.
-	 * This may only be called on the Task Processor thread. */
+	 * This may only be called on a Task Processor worker. */
 	@Override
 	public void doQuit(List<String> params) {
 		disconnect();
 	}
 
 	/** Respond to an ENUMERATE message.
-	 * This may only be called on the Task Processor thread. */
+	 * This may only be called on a Task Processor worker. */
 	@Override
 	public void doEnumerate(List<String> params) throws SonarException {
 		checkLoggedIn();
@@ -543,6 +619,7 @@ public class ConnectionImpl extends Conduit implements Connection {
 			throw PermissionDenied.create(name);
 		startWatching(name);
 		try {
+			encodePending();
 			namespace.enumerate(state.encoder, name);
 		}
 		catch (IOException e) {
@@ -558,7 +635,7 @@ public class ConnectionImpl extends Conduit implements Connection {
 	}
 
 	/** Respond to an IGNORE message.
-	 * This may only be called on the Task Processor thread. */
+	 * This may only be called on a Task Processor worker. */
 	@Override
 	public void doIgnore(List<String> params) throws SonarException {
 		checkLoggedIn();
@@ -569,7 +646,7 @@ public class ConnectionImpl extends Conduit implements Connection {
 	}
 
 	/** Respond to an OBJECT message.
-	 * This may only be called on the Task Processor thread. */
+	 * This may only be called on a Task Processor worker. */
 	@Override
 	public void doObject(List<String> params) throws SonarException {
 		checkLoggedIn();
@@ -585,7 +662,7 @@ public class ConnectionImpl extends Conduit implements Connection {
 	}
 
 	/** Create a new object in the server namespace.
-	 * This may only be called on the Task Processor thread. */
+	 * This may only be called on a Task Processor worker. */
 	private void createObject(Name name) throws SonarException {
 		SonarObject o = getObject(name);
 		processor.doStoreObject(o);
@@ -593,7 +670,7 @@ public class ConnectionImpl extends Conduit implements Connection {
 	}
 
 	/** Get the specified object (either phantom or new object).
-	 * This may only be called on the Task Processor thread. */
+	 * This may only be called on a Task Processor worker. */
 	private SonarObject getObject(Name name) throws SonarException {
 		if (isPhantom(name))
 			return phantom;
@@ -602,7 +679,7 @@ public class ConnectionImpl extends Conduit implements Connection {
 	}
 
 	/** Check if the specified name refers to the phantom object.
-	 * This may only be called on the Task Processor thread. */
+	 * This may only be called on a Task Processor worker. */
 	protected boolean isPhantom(Name name) {
 		return phantom != null &&
 		       phantom.getTypeName().equals(name.getTypePart()) &&
@@ -610,7 +687,7 @@ public class ConnectionImpl extends Conduit implements Connection {
 	}
 
 	/** Respond to a REMOVE message.
-	 * This may only be called on the Task Processor thread. */
+	 * This may only be called on a Task Processor worker. */
 	@Override
 	public void doRemove(List<String> params) throws SonarException {
 		checkLoggedIn();
@@ -628,7 +705,7 @@ public class ConnectionImpl extends Conduit implements Connection {
 	}
 
 	/** Respond to an ATTRIBUTE message.
-	 * This may only be called on the Task Processor thread. */
+	 * This may only be called on a Task Processor worker. */
 	@Override
 	public void doAttribute(List<String> params) throws SonarException {
 		checkLoggedIn();
@@ -649,7 +726,7 @@ public class ConnectionImpl extends Conduit implements Connection {
 	}
 
 	/** Set the value of an attribute.
-	 * This may only be called on the Task Processor thread. */
+	 * This may only be called on a Task Processor worker. */
 	private void setAttribute(Name name, List<String> params)
 		throws SonarException
 	{
@@ -1,6 +1,6 @@
 /*
  * SONAR -- Simple Object Notification And Replication
- * Copyright (C) 2006-2017  Minnesota Department of Transportation
+ * Copyright (C) 2006-2026  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -18,6 +18,7 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.util.Iterator;
 import java.util.HashMap;
+import java.util.List;
 import us.mn.state.dot.sonar.EmptyIterator;
 import us.mn.state.dot.sonar.GroupChecker;
 import us.mn.state.dot.sonar.Message;
@@ -110,6 +111,16 @@ public class ServerNamespace extends Namespace {
 		}
 	}
 
+	/** Invalidate the enumeration snapshot of an object after an
+	 * attribute change */
+	void invalidate(Name name) {
+		TypeNode t = _getTypeNode(name.getTypePart());
+		if (t != null) {
+			t.invalidate(name.getObjectPart(),
+				name.getAttributePart());
+		}
+	}
+
 	/** Get the value of an attribute */
 	String[] getAttribute(Name name) throws SonarException {
 		TypeNode t = getTypeNode(name);
@@ -260,6 +271,24 @@ public class ServerNamespace extends Namespace {
 			return new EmptyIterator();
 	}
 
+	/** Get an iterator for objects of a type with an attribute value,
+	 * using a secondary index.
+	 * @param tname Sonar type name.
+	 * @param aname Attribute name.
+	 * @param v Attribute value.
+	 * @return Iterator of matching objects, or null if the attribute is
+	 *         not indexed. */
+	@Override
+	public Iterator<SonarObject> lookupIndex(String tname, String aname,
+		Object v)
+	{
+		TypeNode t = _getTypeNode(tname);
+		List<SonarObject> objs = (t != null)
+			? t.lookupIndex(aname, marshall(v))
+			: null;
+		return (objs != null) ? objs.iterator() : null;
+	}
+
 	/** Get a count of the number of objects of the specified type.
 	 * @param tname Sonar type name
 	 * @return Total number of objects of the specified type */
@@ -26,6 +26,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLException;
 import us.mn.state.dot.sched.DebugLog;
@@ -34,9 +35,11 @@ import us.mn.state.dot.sched.Work;
 import us.mn.state.dot.sched.Worker;
 import static us.mn.state.dot.sched.TimeSteward.currentTimeMillis;
 import us.mn.state.dot.sonar.ConfigurationError;
+import us.mn.state.dot.sonar.Message;
 import us.mn.state.dot.sonar.Name;
 import us.mn.state.dot.sonar.Namespace;
 import us.mn.state.dot.sonar.NamespaceError;
+import us.mn.state.dot.sonar.Props;
 import us.mn.state.dot.sonar.Security;
 import us.mn.state.dot.sonar.SonarException;
 import us.mn.state.dot.sonar.SonarObject;
@@ -44,7 +47,14 @@ import us.mn.state.dot.sonar.SSLState;
 import us.mn.state.dot.sonar.User;
 
 /**
- * The task processor handles all SONAR tasks.
+ * The task processor handles all SONAR tasks.  Namespace tasks are performed
+ * on the "sonar_proc" worker.  Per-connection tasks (processing messages and
+ * flushing) can be sharded across several workers, hashed by connection so
+ * that each connection keeps its order.  Namespace tasks and messages which
+ * read or change the namespace are serialized by one namespace lock, so
+ * those are still processed one at a time.  Only TLS, message decoding,
+ * flushing and messages which affect a single connection (LOGIN, PASSWORD,
+ * QUIT and IGNORE) run in parallel.
  *
  * @author Douglas Lau
  */
@@ -84,8 +94,24 @@ public class TaskProcessor {
 			DEBUG_TIME.log(msg + " ELAPSED: " + Long.toString(el));
 	}
 
+	/** Default number of per-connection worker threads */
+	static private final int DEFAULT_PROC_THREADS = 1;
+
+	/** Maximum number of per-connection worker threads */
+	static private final int MAX_PROC_THREADS = 32;
+
+	/** Get the number of per-connection worker threads */
+	static private int getProcThreads(Properties props)
+		throws ConfigurationError
+	{
+		if (props.getProperty("sonar.proc.threads") == null)
+			return DEFAULT_PROC_THREADS;
+		int n = Props.getIntProp(props, "sonar.proc.threads");
+		return Math.max(1, Math.min(n, MAX_PROC_THREADS));
+	}
+
 	/** Task processor work */
-	static abstract private class TaskWork extends Work {
+	abstract private class TaskWork extends Work {
 		private final String name;
 		private final ConnectionImpl conn;
 		private TaskWork(String n, ConnectionImpl c) {
@@ -95,6 +121,34 @@ public class TaskProcessor {
 		private TaskWork(String n) {
 			this(n, null);
 		}
+		@Override public final void perform() throws Exception {
+			final boolean op = DEBUG_TIME.isOpen();
+			final long st = (op) ? currentTimeMillis() : 0;
+			try {
+				debugTask(name, conn);
+				synchronized (ns_lock) {
+					doPerform();
+				}
+			}
+			finally {
+				if (op) {
+					long el = currentTimeMillis() - st;
+					debugElapsed(name, el);
+				}
+			}
+		}
+		abstract protected void doPerform() throws Exception;
+	}
+
+	/** Connection work, performed on a connection shard without holding
+	 * the namespace lock */
+	abstract private class ConnWork extends Work {
+		private final String name;
+		private final ConnectionImpl conn;
+		private ConnWork(String n, ConnectionImpl c) {
+			name = n;
+			conn = c;
+		}
 		@Override public final void perform() throws Exception {
 			final boolean op = DEBUG_TIME.isOpen();
 			final long st = (op) ? currentTimeMillis() : 0;
@@ -124,10 +178,8 @@ public class TaskProcessor {
 	/** SSL context */
 	private final SSLContext context;
 
-	/** Task processor worker */
-	private final Worker processor = new Worker("sonar_proc",
- 		new ExceptionHandler()
-	{
+	/** Exception handler for task workers */
+	private final ExceptionHandler handler = new ExceptionHandler() {
 		public boolean handle(Exception e) {
 			if (e instanceof CancelledKeyException)
 				DEBUG.log("Key already cancelled");
@@ -139,7 +191,17 @@ public class TaskProcessor {
 			}
 			return true;
 		}
-	});
+	};
+
+	/** Task processor worker */
+	private final Worker processor = new Worker("sonar_proc", handler);
+
+	/** Per-connection workers.  With only one shard, this is just the
+	 * task processor worker. */
+	private final Worker[] shards;
+
+	/** Lock to serialize namespace tasks and message handling */
+	private final Object ns_lock = new Object();
 
 	/** Authenticator for user credentials */
 	private final Authenticator authenticator;
@@ -158,6 +220,20 @@ public class TaskProcessor {
 	/** User for current message processing */
 	private String proc_user = null;
 
+	/** Count of attribute notifications coalesced on all connections */
+	private final AtomicLong n_coalesced = new AtomicLong();
+
+	/** Count one coalesced attribute notification */
+	void countCoalesced() {
+		n_coalesced.incrementAndGet();
+	}
+
+	/** Get the count of attribute notifications coalesced on all
+	 * connections */
+	public long getCoalescedCount() {
+		return n_coalesced.get();
+	}
+
 	/** Create a task processor */
 	public TaskProcessor(ServerNamespace n, Properties p,
 		AccessMonitor am) throws IOException, ConfigurationError
@@ -174,6 +250,53 @@ public class TaskProcessor {
 				addProvider(new LDAPProvider(url));
 		}
 		session_file = props.getProperty("sonar.session.file");
+		shards = createShards(getProcThreads(props));
+	}
+
+	/** Create per-connection workers */
+	private Worker[] createShards(int n) {
+		Worker[] w = new Worker[n];
+		if (n > 1) {
+			for (int i = 0; i < n; i++)
+				w[i] = new Worker("sonar_conn_" + i, handler);
+		} else
+			w[0] = processor;
+		return w;
+	}
+
+	/** Get the worker for a connection */
+	private Worker getShard(ConnectionImpl c) {
+		int h = System.identityHashCode(c) & Integer.MAX_VALUE;
+		return shards[h % shards.length];
+	}
+
+	/** Get the queue depth of each per-connection worker */
+	public int[] getShardSizes() {
+		int[] sizes = new int[shards.length];
+		for (int i = 0; i < shards.length; i++)
+			sizes[i] = shards[i].size();
+		return sizes;
+	}
+
+	/** Debug queue depths of all workers */
+	private void debugQueues(String msg) {
+		if (DEBUG_TASK.isOpen()) {
+			StringBuilder sb = new StringBuilder();
+			sb.append(msg);
+			sb.append(": coalesced=");
+			sb.append(n_coalesced.get());
+			sb.append(", sonar_proc=");
+			sb.append(processor.size());
+			if (shards.length > 1) {
+				for (int i = 0; i < shards.length; i++) {
+					sb.append(", sonar_conn_");
+					sb.append(i);
+					sb.append('=');
+					sb.append(shards[i].size());
+				}
+			}
+			DEBUG_TASK.log(sb.toString());
+		}
 	}
 
 	/** Create SSL state */
@@ -269,8 +392,17 @@ public class TaskProcessor {
 		});
 	}
 
-	/** Disconnect the client associated with the selection key. */
+	/** Disconnect the client associated with the selection key.  This
+	 * may be called from a connection shard, so it must hold the
+	 * namespace lock. */
 	void disconnect(SelectionKey skey) {
+		synchronized (ns_lock) {
+			doDisconnect(skey);
+		}
+	}
+
+	/** Disconnect the client associated with the selection key. */
+	private void doDisconnect(SelectionKey skey) {
 		skey.cancel();
 		ConnectionImpl c;
 		synchronized (clients) {
@@ -310,18 +442,51 @@ public class TaskProcessor {
 
 	/** Process messages on one connection */
 	void processMessages(final ConnectionImpl c) {
-		processor.addWork(new TaskWork("Processing msgs", c) {
+		getShard(c).addWork(new ConnWork("Processing msgs", c) {
 			protected void doPerform() {
-				proc_user = c.getUserName();
 				c.processMessages();
-				proc_user = null;
 			}
 		});
 	}
 
+	/** Check if a message only affects its own connection.  These
+	 * messages do not read or change the namespace. */
+	static private boolean isConnectionOnly(Message m) {
+		switch (m) {
+		case LOGIN:
+		case PASSWORD:
+		case QUIT:
+		case IGNORE:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/** Handle one message from a connection.  Message handling can
+	 * mutate the namespace, so it is serialized with namespace tasks
+	 * (unless the message only affects its own connection). */
+	void handleMessage(ConnectionImpl c, Message m, List<String> params)
+		throws SonarException
+	{
+		if (isConnectionOnly(m)) {
+			m.handle(c, params);
+			return;
+		}
+		synchronized (ns_lock) {
+			proc_user = c.getUserName();
+			try {
+				m.handle(c, params);
+			}
+			finally {
+				proc_user = null;
+			}
+		}
+	}
+
 	/** Flush outgoing data for one connection */
 	void flush(final ConnectionImpl c) {
-		processor.addWork(new TaskWork("Flush", c) {
+		getShard(c).addWork(new ConnWork("Flush", c) {
 			protected void doPerform() {
 				c.flush();
 			}
@@ -424,10 +589,7 @@ public class TaskProcessor {
 
 	/** Notify all connections watching a name of an attribute change. */
 	void notifyAttribute(Name name, String[] params) {
-		if (DEBUG_TASK.isOpen()) {
-			debugTask("Notify attribute", name.toString() + " (" +
-				processor.size() + ")");
-		}
+		debugQueues("Notify attribute " + name);
 		if (namespace.isGettable(name)) {
 			for (ConnectionImpl c: getConnectionList())
 				c.notifyAttribute(name, params);
@@ -459,8 +621,9 @@ public class TaskProcessor {
 	/** Create (synchronously) an object in the server's namespace */
 	public void storeObject(final SonarObject o) throws SonarException {
 		// Calling waitForCompletion will hang if we're
-		// running on the task processor thread.
-		if (processor.isCurrentThread()) {
+		// running on the task processor thread, or holding
+		// the namespace lock on a connection shard.
+		if (processor.isCurrentThread() || Thread.holdsLock(ns_lock)) {
 			doStoreObject(o);
 			return;
 		}
@@ -524,6 +687,7 @@ public class TaskProcessor {
 
 	/** Perform a "set attribute" task. */
 	private void doSetAttribute(Name name) throws SonarException {
+		namespace.invalidate(name);
 		String[] v = namespace.getAttribute(name);
 		notifyAttribute(name, v);
 	}
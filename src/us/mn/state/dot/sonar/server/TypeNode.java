@@ -1,6 +1,6 @@
 /*
  * SONAR -- Simple Object Notification And Replication
- * Copyright (C) 2006-2017  Minnesota Department of Transportation
+ * Copyright (C) 2006-2026  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -15,9 +15,14 @@
 package us.mn.state.dot.sonar.server;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 import us.mn.state.dot.sonar.GroupChecker;
 import us.mn.state.dot.sonar.Message;
 import us.mn.state.dot.sonar.MessageEncoder;
@@ -38,6 +43,20 @@ public class TypeNode {
 	/** Initial capacity of type hash */
 	static private final int INITIAL_CAPACITY = 256;
 
+	/** Maximum total size of cached snapshots for one type (bytes) */
+	static private final long MAX_SNAPSHOT_BYTES = 8 * 1024 * 1024;
+
+	/** Pre-encoded enumeration of an object, with the attribute values
+	 * it was encoded from */
+	static private final class Snapshot {
+		private final String[][] values;
+		private final byte[] data;
+		private Snapshot(String[][] v, byte[] d) {
+			values = v;
+			data = d;
+		}
+	}
+
 	/** Type name */
 	public final String name;
 
@@ -54,11 +73,118 @@ public class TypeNode {
 	/** An attribute dispatcher can set and get attributes on objects */
 	private final AttributeDispatcher dispatcher;
 
+	/** Pre-encoded enumeration of each object, by name.  An entry is
+	 * removed whenever the object is stored, removed or has an attribute
+	 * changed through SONAR.  Attributes can also be changed directly
+	 * on the object, so a snapshot is only used when the current values
+	 * still match the values it was encoded from. */
+	private final ConcurrentHashMap<String, Snapshot> snapshots =
+		new ConcurrentHashMap<String, Snapshot>(INITIAL_CAPACITY,
+		0.75f, 1);
+
+	/** Total size of cached snapshots (bytes) */
+	private final AtomicLong snap_bytes = new AtomicLong();
+
+	/** Encoder for building snapshots (protected by its own lock) */
+	private final MessageEncoder snap_enc;
+
+	/** Secondary attribute indexes.  An object is indexed when it is
+	 * stored or added, and indexed again when the attribute is changed
+	 * through SONAR (a doSet* method or notifyAttribute).  A change made
+	 * directly on the object is only indexed once it is noticed while
+	 * enumerating, so indexed attributes should always be changed through
+	 * SONAR. */
+	private final CopyOnWriteArrayList<AttributeIndex> indexes =
+		new CopyOnWriteArrayList<AttributeIndex>();
+
 	/** Create a namespace type node */
 	public TypeNode(Namespace ns, String n, Class c, GroupChecker gc) {
 		name = n;
 		group_chk = gc;
 		dispatcher = new AttributeDispatcher(c, ns);
+		try {
+			snap_enc = new MessageEncoder(0);
+		}
+		catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/** Invalidate the snapshot of an object after an attribute change.
+	 * @param n Object name.
+	 * @param a Name of changed attribute. */
+	public void invalidate(String n, String a) {
+		discardSnapshot(snapshots.remove(n));
+		AttributeIndex idx = lookupIndex(a);
+		if (idx != null) {
+			SonarObject o = children.get(n);
+			if (o != null)
+				updateIndex(idx, o);
+		}
+	}
+
+	/** Add a secondary index for an attribute.  Objects of the type can
+	 * then be looked up by the attribute value.
+	 * @param a Attribute name (must be gettable). */
+	public void addIndex(String a) {
+		if (!isGettable(a)) {
+			throw new IllegalArgumentException("Not gettable: " +
+				a);
+		}
+		AttributeIndex idx = new AttributeIndex(a);
+		synchronized (children) {
+			for (SonarObject o: children.values())
+				updateIndex(idx, o);
+			indexes.add(idx);
+		}
+	}
+
+	/** Lookup an attribute index */
+	private AttributeIndex lookupIndex(String a) {
+		for (AttributeIndex idx: indexes) {
+			if (idx.attr.equals(a))
+				return idx;
+		}
+		return null;
+	}
+
+	/** Lookup all objects with an attribute value.
+	 * @param a Attribute name.
+	 * @param v Marshalled attribute value.
+	 * @return List of matching objects, or null if the attribute is not
+	 *         indexed. */
+	public List<SonarObject> lookupIndex(String a, String v) {
+		AttributeIndex idx = lookupIndex(a);
+		return (idx != null) ? idx.lookup(v) : null;
+	}
+
+	/** Update all indexes for an object */
+	private void updateIndexes(SonarObject o) {
+		for (AttributeIndex idx: indexes)
+			updateIndex(idx, o);
+	}
+
+	/** Update one index for an object */
+	private void updateIndex(AttributeIndex idx, SonarObject o) {
+		try {
+			updateIndex(idx, o, getValue(o, idx.attr));
+		}
+		catch (SonarException e) {
+			idx.remove(o);
+		}
+	}
+
+	/** Update one index for an object with an attribute value */
+	private void updateIndex(AttributeIndex idx, SonarObject o,
+		String[] v)
+	{
+		idx.update(o, (v.length == 1) ? v[0] : String.join(",", v));
+	}
+
+	/** Remove an object from all indexes */
+	private void removeIndexes(SonarObject o) {
+		for (AttributeIndex idx: indexes)
+			idx.remove(o);
 	}
 
 	/** Create a new object in the type node */
@@ -76,6 +202,8 @@ public class TypeNode {
 				throw NamespaceError.nameExists(name);
 			dispatcher.storeObject(o);
 			children.put(name, o);
+			discardSnapshot(snapshots.remove(name));
+			updateIndexes(o);
 		}
 	}
 
@@ -85,8 +213,11 @@ public class TypeNode {
 		synchronized (children) {
 			if (children.containsKey(name))
 				throw NamespaceError.nameExists(name);
-			else
+			else {
 				children.put(name, o);
+				discardSnapshot(snapshots.remove(name));
+				updateIndexes(o);
+			}
 		}
 	}
 
@@ -95,15 +226,18 @@ public class TypeNode {
 		String n = o.getName();
 		synchronized (children) {
 			SonarObject obj = children.remove(n);
+			discardSnapshot(snapshots.remove(n));
 			if (obj == null)
 				throw NamespaceError.nameUnknown(n);
 			if (obj != o)
 				throw NamespaceError.nameExists(n);
+			removeIndexes(o);
 			try {
 				dispatcher.destroyObject(o);
 			}
 			catch (SonarException e) {
 				children.put(n, o);
+				updateIndexes(o);
 				throw e;
 			}
 		}
@@ -126,21 +260,116 @@ public class TypeNode {
 		return dispatcher.getValue(o, a);
 	}
 
-	/** Enumerate all attributes of the named object */
+	/** Enumerate all attributes of the named object, using a snapshot
+	 * if one is available */
 	public void enumerateObject(MessageEncoder enc, SonarObject o)
 		throws SonarException, IOException
+	{
+		enc.writeEncoded(getSnapshot(o));
+	}
+
+	/** Get the snapshot of an object, encoding it if necessary */
+	private byte[] getSnapshot(SonarObject o) throws SonarException,
+		IOException
+	{
+		String n = o.getName();
+		String[][] values = getValues(o);
+		Snapshot snap = snapshots.get(n);
+		if (snap != null && Arrays.deepEquals(snap.values, values))
+			return snap.data;
+		String[][] ov = (snap != null) ? snap.values : null;
+		snap = new Snapshot(values, encodeSnapshot(o, values));
+		// Only cache snapshots of objects in the namespace
+		if (children.get(n) == o) {
+			reindexChanged(o, ov, values);
+			cacheSnapshot(n, o, snap);
+		}
+		return snap.data;
+	}
+
+	/** Cache the snapshot of an object, if there is room */
+	private void cacheSnapshot(String n, SonarObject o, Snapshot snap) {
+		long len = snap.data.length;
+		if (snap_bytes.addAndGet(len) > MAX_SNAPSHOT_BYTES) {
+			snap_bytes.addAndGet(-len);
+			discardSnapshot(snapshots.remove(n));
+			return;
+		}
+		discardSnapshot(snapshots.put(n, snap));
+		// Object may have been removed since it was checked
+		if (children.get(n) != o && snapshots.remove(n, snap))
+			discardSnapshot(snap);
+	}
+
+	/** Discard a snapshot which was removed from the cache */
+	private void discardSnapshot(Snapshot snap) {
+		if (snap != null)
+			snap_bytes.addAndGet(-snap.data.length);
+	}
+
+	/** Update indexes for attributes which may have been changed
+	 * directly on an object.
+	 * @param o Object to update.
+	 * @param ov Previous values (null if unknown).
+	 * @param values Current values. */
+	private void reindexChanged(SonarObject o, String[][] ov,
+		String[][] values)
+	{
+		if (indexes.isEmpty())
+			return;
+		String[] attrs = dispatcher.getGettable();
+		for (int i = 0; i < attrs.length; i++) {
+			if (ov == null || !Arrays.equals(ov[i], values[i])) {
+				AttributeIndex idx = lookupIndex(attrs[i]);
+				if (idx != null)
+					updateIndex(idx, o, values[i]);
+			}
+		}
+	}
+
+	/** Get the values of all gettable attributes of an object */
+	private String[][] getValues(SonarObject o) throws SonarException {
+		String[] attrs = dispatcher.getGettable();
+		String[][] values = new String[attrs.length][];
+		for (int i = 0; i < attrs.length; i++)
+			values[i] = getValue(o, attrs[i]);
+		return values;
+	}
+
+	/** Encode a snapshot of an object */
+	private byte[] encodeSnapshot(SonarObject o, String[][] values)
+		throws IOException
+	{
+		synchronized (snap_enc) {
+			byte[] snap;
+			try {
+				encodeObject(snap_enc, o, values);
+			}
+			finally {
+				// Always drain the encoder, even on error
+				ByteBuffer buf = snap_enc.getBuffer();
+				buf.flip();
+				snap = new byte[buf.remaining()];
+				buf.get(snap);
+				snap_enc.compact();
+			}
+			return snap;
+		}
+	}
+
+	/** Encode all attribute values of the named object */
+	private void encodeObject(MessageEncoder enc, SonarObject o,
+		String[][] values) throws IOException
 	{
 		assert(o.getTypeName() == name);
-		boolean first = true;
-		for (String a: dispatcher.getGettableAttributes()) {
-			String[] v = getValue(o, a);
-			if (first) {
+		String[] attrs = dispatcher.getGettable();
+		for (int i = 0; i < attrs.length; i++) {
+			String a = attrs[i];
+			if (i == 0)
 				a = new Name(o, a).toString();
-				first = false;
-			}
-			enc.encode(Message.ATTRIBUTE, a, v);
+			enc.encode(Message.ATTRIBUTE, a, values[i]);
 		}
-		if (first)
+		if (attrs.length == 0)
 			enc.encode(Message.TYPE, name);
 		enc.encode(Message.OBJECT, o.getName());
 	}
@@ -169,6 +398,7 @@ public class TypeNode {
 		SonarObject o = children.get(oname);
 		if (o != null) {
 			dispatcher.setValue(o, aname, v);
+			invalidate(oname, aname);
 			return null;
 		} else {
 			o = dispatcher.createObject(oname);
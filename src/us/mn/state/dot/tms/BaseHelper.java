@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2009-2016  Minnesota Department of Transportation
+ * Copyright (C) 2009-2026  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -14,8 +14,10 @@
  */
 package us.mn.state.dot.tms;
 
+import java.util.Iterator;
 import us.mn.state.dot.sonar.Name;
 import us.mn.state.dot.sonar.Namespace;
+import us.mn.state.dot.sonar.SonarObject;
 import us.mn.state.dot.sonar.User;
 
 /**
@@ -42,6 +44,23 @@ abstract public class BaseHelper {
 		assert false;
 	}
 
+	/** Get an iterator of objects which may have an attribute value.
+	 * If the attribute is indexed, only matching objects are returned;
+	 * otherwise, all objects of the type are.  Callers must still check
+	 * the attribute of each object.
+	 * @param tname Sonar type name.
+	 * @param aname Attribute name.
+	 * @param v Attribute value. */
+	static protected <T extends SonarObject> Iterator<T> indexIterator(
+		String tname, String aname, Object v)
+	{
+		Iterator<SonarObject> it = namespace.lookupIndex(tname, aname,
+			v);
+		return new IteratorWrapper<T>((it != null)
+			? it
+			: namespace.iterator(tname));
+	}
+
 	/** Check if a type can be read */
 	static protected boolean canRead(String tname) {
 		return (user != null)
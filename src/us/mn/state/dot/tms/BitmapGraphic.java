@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2006-2019  Minnesota Department of Transportation
+ * Copyright (C) 2006-2026  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -14,8 +14,13 @@
  */
 package us.mn.state.dot.tms;
 
+import java.nio.ByteBuffer;
+
 /**
  * BitmapGraphic is a simple 1-bit graphic bitmap for DMS display feedback.
+ * Pixels are packed in rows, with the first pixel in the high bit of each
+ * byte.  Rows are not padded to byte boundaries.  Operations between bitmaps
+ * work on runs of pixels instead of single pixels.
  *
  * @author Douglas Lau
  */
@@ -75,28 +80,206 @@ public class BitmapGraphic extends RasterGraphic {
 			pixels[by] &= bi ^ 0xff;
 	}
 
-	/** Set all pixels adjacent to lit pixels (clearing lit pixels) */
-	public void outline() {
-		BitmapGraphic b = createBlankCopy();
-		b.copy(this);
-		for (int x = 0; x < width; x++) {
-			for (int y = 0; y < height; y++) {
-				if (b.getPixel(x, y).isLit())
-					setNeighbors(x, y);
+	/** Get a run of pixels.
+	 * @param pos Bit position of first pixel.
+	 * @param n Number of pixels (1 to 8).
+	 * @return Pixel bits, with the last pixel in the low bit. */
+	private int getBits(int pos, int n) {
+		int by = pos >> 3;
+		int w = (pixels[by] & 0xFF) << 8;
+		if (by + 1 < pixels.length)
+			w |= pixels[by + 1] & 0xFF;
+		return (w >> (16 - (pos & 7) - n)) & ((1 << n) - 1);
+	}
+
+	/** Set a run of pixels.
+	 * @param pos Bit position of first pixel.
+	 * @param n Number of pixels (1 to 8).
+	 * @param v Pixel bits, with the last pixel in the low bit.
+	 * @param keep Keep lit pixels (OR) instead of replacing them. */
+	private void setBits(int pos, int n, int v, boolean keep) {
+		int by = pos >> 3;
+		int sh = 16 - (pos & 7) - n;
+		int m = ((1 << n) - 1) << sh;
+		int w = (v << sh) & m;
+		if (keep)
+			m = 0;
+		pixels[by] = (byte) ((pixels[by] & ~(m >> 8)) | (w >> 8));
+		if (sh < 8) {
+			by++;
+			pixels[by] = (byte) ((pixels[by] & ~m) | w);
+		}
+	}
+
+	/** Copy a rectangle of pixels from another bitmap.
+	 * @param b Source bitmap.
+	 * @param sx Source X-position.
+	 * @param sy Source Y-position.
+	 * @param dx Destination X-position.
+	 * @param dy Destination Y-position.
+	 * @param w Width of rectangle.
+	 * @param h Height of rectangle.
+	 * @param keep Keep lit pixels (OR) instead of replacing them. */
+	private void blit(BitmapGraphic b, int sx, int sy, int dx, int dy,
+		int w, int h, boolean keep)
+	{
+		for (int y = 0; y < h; y++) {
+			int sp = (sy + y) * b.width + sx;
+			int dp = (dy + y) * width + dx;
+			for (int x = 0; x < w; x += 8) {
+				int n = Math.min(8, w - x);
+				setBits(dp + x, n, b.getBits(sp + x, n), keep);
 			}
 		}
-		difference(b);
 	}
 
-	/** Set the neighbors of the specified pixel */
-	private void setNeighbors(int x, int y) {
-		int xmin = Math.max(x - 1, 0);
-		int xmax = Math.min(x + 2, width);
-		int ymin = Math.max(y - 1, 0);
-		int ymax = Math.min(y + 2, height);
-		for (int xx = xmin; xx < xmax; xx++) {
+	/** Copy the common region of the specified raster */
+	@Override
+	public void copy(RasterGraphic rg) {
+		if (rg instanceof BitmapGraphic && rg.width == width &&
+		    rg.height == height)
+			System.arraycopy(rg.pixels, 0, pixels, 0, pixels.length);
+		else if (rg instanceof BitmapGraphic) {
+			BitmapGraphic b = (BitmapGraphic) rg;
+			int x0 = Math.max(width - b.width, 0) / 2;
+			int x1 = Math.max(b.width - width, 0) / 2;
+			int y0 = Math.max(height - b.height, 0) / 2;
+			int y1 = Math.max(b.height - height, 0) / 2;
+			int w = Math.min(width, b.width);
+			int h = Math.min(height, b.height);
+			blit(b, x1, y1, x0, y0, w, h, false);
+		} else
+			super.copy(rg);
+	}
+
+	/** Copy another raster graphic onto the raster.
+	 * @param rg RasterGraphic to copy.
+	 * @param x0 X-position on raster (0-based).
+	 * @param y0 Y-position on raster (0-based).
+	 * @param fg Foreground color. */
+	@Override
+	public void copy(RasterGraphic rg, int x0, int y0, DmsColor fg) {
+		int w = rg.getWidth();
+		int h = rg.getHeight();
+		if (rg instanceof BitmapGraphic && fg.isLit() && x0 >= 0 &&
+		    y0 >= 0 && x0 + w <= width && y0 + h <= height)
+			blit((BitmapGraphic) rg, 0, 0, x0, y0, w, h, true);
+		else
+			super.copy(rg, x0, y0, fg);
+	}
+
+	/** Get the count of lit pixels */
+	@Override
+	public int getLitCount() {
+		int n_bits = width * height;
+		int n_bytes = n_bits >> 3;
+		ByteBuffer buf = ByteBuffer.wrap(pixels);
+		int n_lit = 0;
+		int i = 0;
+		for (; i + 8 <= n_bytes; i += 8)
+			n_lit += Long.bitCount(buf.getLong(i));
+		for (; i < n_bytes; i++)
+			n_lit += Integer.bitCount(pixels[i] & 0xFF);
+		int rem = n_bits & 7;
+		if (rem > 0) {
+			int last = (pixels[i] & 0xFF) >> (8 - rem);
+			n_lit += Integer.bitCount(last);
+		}
+		return n_lit;
+	}
+
+	/** Update the raster by clearing pixels not in another raster */
+	@Override
+	public void union(RasterGraphic rg) {
+		if (rg instanceof BitmapGraphic) {
+			checkSize(rg);
+			ByteBuffer a = ByteBuffer.wrap(pixels);
+			ByteBuffer b = ByteBuffer.wrap(rg.pixels);
+			int i = 0;
+			for (; i + 8 <= pixels.length; i += 8)
+				a.putLong(i, a.getLong(i) & b.getLong(i));
+			for (; i < pixels.length; i++)
+				pixels[i] &= rg.pixels[i];
+		} else
+			super.union(rg);
+	}
+
+	/** Update the raster by clearing pixels in another raster */
+	@Override
+	public void difference(RasterGraphic rg) {
+		if (rg instanceof BitmapGraphic) {
+			checkSize(rg);
+			ByteBuffer a = ByteBuffer.wrap(pixels);
+			ByteBuffer b = ByteBuffer.wrap(rg.pixels);
+			int i = 0;
+			for (; i + 8 <= pixels.length; i += 8)
+				a.putLong(i, a.getLong(i) & ~b.getLong(i));
+			for (; i < pixels.length; i++)
+				pixels[i] &= ~rg.pixels[i];
+		} else
+			super.difference(rg);
+	}
+
+	/** Get one row of pixels as words, with the first pixel in the high
+	 * bit of the first word.
+	 * @param y Row number.
+	 * @param n_words Number of words per row. */
+	private long[] getRow(int y, int n_words) {
+		long[] row = new long[n_words];
+		int pos = y * width;
+		for (int x = 0; x < width; x += 8) {
+			int n = Math.min(8, width - x);
+			long v = getBits(pos + x, n) << (8 - n);
+			row[x >> 6] |= v << (56 - (x & 63));
+		}
+		return row;
+	}
+
+	/** Set one row of pixels from words.
+	 * @param y Row number.
+	 * @param row Pixel words, as returned by getRow. */
+	private void setRow(int y, long[] row) {
+		int pos = y * width;
+		for (int x = 0; x < width; x += 8) {
+			int n = Math.min(8, width - x);
+			int v = (int) (row[x >> 6] >>> (56 - (x & 63))) & 0xFF;
+			setBits(pos + x, n, v >> (8 - n), false);
+		}
+	}
+
+	/** Set all pixels adjacent to lit pixels (clearing lit pixels) */
+	public void outline() {
+		if (width <= 0 || height <= 0)
+			return;
+		int n_words = (width + 63) >> 6;
+		long[][] rows = new long[height][];
+		for (int y = 0; y < height; y++)
+			rows[y] = getRow(y, n_words);
+		// Mask for pixels past the end of a row in the last word
+		long mask = -1L << (n_words * 64 - width);
+		for (int y = 0; y < height; y++) {
+			long[] out = new long[n_words];
+			int ymin = Math.max(y - 1, 0);
+			int ymax = Math.min(y + 2, height);
 			for (int yy = ymin; yy < ymax; yy++)
-				setPixel(xx, yy, DmsColor.AMBER);
+				spread(rows[yy], out);
+			for (int i = 0; i < n_words; i++)
+				out[i] &= ~rows[y][i];
+			out[n_words - 1] &= mask;
+			setRow(y, out);
+		}
+	}
+
+	/** Spread a row of pixels horizontally by one pixel.
+	 * @param row Pixel words.
+	 * @param out Words to OR the spread pixels into. */
+	static private void spread(long[] row, long[] out) {
+		int n = row.length;
+		for (int i = 0; i < n; i++) {
+			long prev = (i > 0) ? row[i - 1] << 63 : 0;
+			long next = (i + 1 < n) ? row[i + 1] >>> 63 : 0;
+			out[i] |= row[i] | (row[i] >>> 1) | prev |
+				(row[i] << 1) | next;
 		}
 	}
 
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2009-2021  Minnesota Department of Transportation
+ * Copyright (C) 2009-2026  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -50,10 +50,17 @@ public class DmsSignGroupHelper extends BaseHelper {
 			DmsSignGroup.SONAR_TYPE));
 	}
 
+	/** Get an iterator of DMS sign groups which may be members of a sign
+	 * group.  Callers must still check the sign group of each one. */
+	static public Iterator<DmsSignGroup> iterator(SignGroup sg) {
+		return indexIterator(DmsSignGroup.SONAR_TYPE, "signGroup", sg);
+	}
+
 	/** Find all sign groups for a DMS */
 	static public Set<SignGroup> findGroups(DMS dms) {
 		HashSet<SignGroup> groups = new HashSet<SignGroup>();
-		Iterator<DmsSignGroup> it = iterator();
+		Iterator<DmsSignGroup> it = indexIterator(
+			DmsSignGroup.SONAR_TYPE, "dms", dms);
 		while (it.hasNext()) {
 			DmsSignGroup dsg = it.next();
 			if (dsg.getDms() == dms)
@@ -64,7 +71,7 @@ public class DmsSignGroupHelper extends BaseHelper {
 
 	/** Find a DMS sign group */
 	static public DmsSignGroup find(DMS dms, SignGroup sg) {
-		Iterator<DmsSignGroup> it = iterator();
+		Iterator<DmsSignGroup> it = iterator(sg);
 		while (it.hasNext()) {
 			DmsSignGroup dsg = it.next();
 			if (dsg.getDms() == dms && dsg.getSignGroup() == sg)
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2008-2018  Minnesota Department of Transportation
+ * Copyright (C) 2008-2026  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -14,10 +14,10 @@
  */
 package us.mn.state.dot.tms;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.TreeMap;
 
 /**
  * Font helper methods.
@@ -49,7 +49,8 @@ public class FontHelper extends BaseHelper {
 
 	/** Find a font using a font number */
 	static public Font find(int f_num) {
-		Iterator<Font> it = iterator();
+		Iterator<Font> it = indexIterator(Font.SONAR_TYPE, "number",
+			f_num);
 		while(it.hasNext()) {
 			Font f = it.next();
 			if(f.getNumber() == f_num)
@@ -76,27 +77,23 @@ public class FontHelper extends BaseHelper {
 
 	/** Lookup the glyphs in the specified font */
 	static public Collection<Glyph> lookupGlyphs(Font font) {
-		TreeMap<Integer, Glyph> glyphs = new TreeMap<Integer, Glyph>();
-		Iterator<Glyph> it = GlyphHelper.iterator();
-		while (it.hasNext()) {
-			Glyph g = it.next();
-			if (g.getFont() == font)
-				glyphs.put(g.getCodePoint(), g);
+		ArrayList<Glyph> glyphs = new ArrayList<Glyph>();
+		for (Glyph g: GlyphHelper.lookupAll(font)) {
+			if (g != null)
+				glyphs.add(g);
 		}
-		return glyphs.values();
+		return glyphs;
 	}
 
 	/** Lookup a glyph in the specified font */
 	static public Glyph lookupGlyph(Font font, int cp)
 		throws InvalidMsgException
 	{
-		Iterator<Glyph> it = GlyphHelper.iterator();
-		while (it.hasNext()) {
-			Glyph g = it.next();
-			if (g.getFont() == font && g.getCodePoint() == cp)
-				return g;
-		}
-		throw new InvalidMsgException("code point: " + cp);
+		Glyph g = GlyphHelper.lookup(font, cp);
+		if (g != null)
+			return g;
+		else
+			throw new InvalidMsgException("code point: " + cp);
 	}
 
 	/** Calculate the width of a span of text.
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2013-2018  Minnesota Department of Transportation
+ * Copyright (C) 2013-2026  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -15,11 +15,17 @@
 package us.mn.state.dot.tms;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
 import us.mn.state.dot.tms.utils.Base64;
 
 /**
- * Helper class for glyphs.
+ * Helper class for glyphs.  An index of glyphs is built for each font when
+ * first needed, with glyphs keyed by code point and their decoded bitmaps.
+ * The index for a font must be invalidated whenever one of its glyphs is
+ * added, changed or removed, or the font is changed.  This also invalidates
+ * the raster cache.
  *
  * @author Douglas Lau
  */
@@ -41,6 +47,123 @@ public class GlyphHelper extends BaseHelper {
 			Glyph.SONAR_TYPE));
 	}
 
+	/** Glyph index for one font */
+	static private final class FontGlyphs {
+
+		/** Glyphs indexed by code point */
+		private final Glyph[] glyphs;
+
+		/** Decoded glyph bitmaps indexed by code point */
+		private final BitmapGraphic[] bitmaps;
+
+		/** Build a glyph index for a font */
+		private FontGlyphs(Font font) {
+			Glyph[] gs = new Glyph[0];
+			Iterator<Glyph> it = iterator();
+			while (it.hasNext()) {
+				Glyph g = it.next();
+				int cp = g.getCodePoint();
+				if (g.getFont() == font && cp >= 0) {
+					if (cp >= gs.length) {
+						gs = Arrays.copyOf(gs,
+							Math.max(cp + 1,
+							gs.length * 2));
+					}
+					gs[cp] = g;
+				}
+			}
+			glyphs = gs;
+			bitmaps = new BitmapGraphic[gs.length];
+			for (int cp = 0; cp < gs.length; cp++) {
+				if (gs[cp] != null)
+					bitmaps[cp] = createBitmap(gs[cp]);
+			}
+		}
+
+		/** Lookup a glyph by code point */
+		private Glyph lookup(int cp) {
+			return (cp >= 0 && cp < glyphs.length)
+			      ? glyphs[cp]
+			      : null;
+		}
+	}
+
+	/** Glyph indexes for all fonts */
+	static private final ConcurrentHashMap<Font, FontGlyphs> INDEX =
+		new ConcurrentHashMap<Font, FontGlyphs>();
+
+	/** Serial number, incremented when any index is invalidated */
+	static private int serial;
+
+	/** Invalidate the glyph index for a font.  This must be called
+	 * whenever a glyph in the font is added, changed or removed, or the
+	 * font is changed.
+	 * @param font Font of changed glyph (may be null). */
+	static public void invalidate(Font font) {
+		synchronized (INDEX) {
+			serial++;
+			if (font != null)
+				INDEX.remove(font);
+		}
+		RasterCache.invalidateAll();
+	}
+
+	/** Invalidate the glyph indexes for all fonts */
+	static public void invalidateAll() {
+		synchronized (INDEX) {
+			serial++;
+			INDEX.clear();
+		}
+		RasterCache.invalidateAll();
+	}
+
+	/** Get the glyph index for a font, building it if necessary */
+	static private FontGlyphs lookupIndex(Font font) {
+		FontGlyphs fg = INDEX.get(font);
+		if (fg != null)
+			return fg;
+		int s;
+		synchronized (INDEX) {
+			s = serial;
+		}
+		fg = new FontGlyphs(font);
+		synchronized (INDEX) {
+			// Don't cache if invalidated while building
+			if (s == serial)
+				INDEX.put(font, fg);
+		}
+		return fg;
+	}
+
+	/** Lookup the glyph for a code point in a font.
+	 * @param font Font to search.
+	 * @param cp Code point.
+	 * @return Glyph, or null if the font has no glyph for the code point. */
+	static public Glyph lookup(Font font, int cp) {
+		return (font != null) ? lookupIndex(font).lookup(cp) : null;
+	}
+
+	/** Lookup all glyphs in a font.
+	 * @param font Font to search.
+	 * @return Array of glyphs indexed by code point, with nulls for
+	 *         missing code points.  Do not modify. */
+	static Glyph[] lookupAll(Font font) {
+		return (font != null) ? lookupIndex(font).glyphs : new Glyph[0];
+	}
+
+	/** Lookup the cached bitmap of a glyph.  The bitmap is shared, so it
+	 * must not be modified; use createBitmap for a private copy.
+	 * @param g Glyph.
+	 * @return Bitmap graphic, or null if the pixel data is invalid. */
+	static public BitmapGraphic lookupBitmap(Glyph g) {
+		Font font = g.getFont();
+		if (null == font)
+			return null;
+		FontGlyphs fg = lookupIndex(font);
+		int cp = g.getCodePoint();
+		return (fg.lookup(cp) == g) ? fg.bitmaps[cp] : createBitmap(g);
+	}
+
 	/** Create a bitmap graphic of a glyph */
 	static public BitmapGraphic createBitmap(Glyph g) {
 		try {
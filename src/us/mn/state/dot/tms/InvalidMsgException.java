@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2000-2016  Minnesota Department of Transportation
+ * Copyright (C) 2000-2026  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -26,4 +26,9 @@ public class InvalidMsgException extends TMSException {
 	public InvalidMsgException(String msg) {
 		super("INVALID MSG: " + msg);
 	}
+
+	/** Create a new exception with the same message as another */
+	InvalidMsgException(InvalidMsgException e) {
+		super(e.getMessage());
+	}
 }
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2009-2020  Minnesota Department of Transportation
+ * Copyright (C) 2009-2026  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -83,7 +83,8 @@ public class R_NodeHelper extends BaseHelper {
 
 	/** Check if an R_Node has active detection */
 	static private boolean hasActiveDetection(R_Node n) {
-		Iterator<Detector> it = DetectorHelper.iterator();
+		Iterator<Detector> it = indexIterator(Detector.SONAR_TYPE,
+			"r_Node", n);
 		while (it.hasNext()) {
 			Detector d = it.next();
 			if (d.getR_Node() == n && DetectorHelper.isActive(d))
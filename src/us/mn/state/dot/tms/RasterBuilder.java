@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2008-2020  Minnesota Department of Transportation
+ * Copyright (C) 2008-2026  Minnesota Department of Transportation
  * Copyright (C) 2009-2010  AHMCT, University of California
  *
  * This program is free software; you can redistribute it and/or modify
@@ -98,6 +98,56 @@ public class RasterBuilder {
 	/** Render a BitmapGraphic for each page */
 	public BitmapGraphic[] createBitmaps(MultiString ms)
 		throws InvalidMsgException
+	{
+		RasterGraphic[] rasters = lookupRasters(ms, false);
+		BitmapGraphic[] bitmaps = new BitmapGraphic[rasters.length];
+		for (int i = 0; i < rasters.length; i++) {
+			bitmaps[i] = new BitmapGraphic(width, height);
+			bitmaps[i].setPixelData(rasters[i].getPixelData());
+		}
+		return bitmaps;
+	}
+
+	/** Render a PixmapGraphic for each page */
+	public RasterGraphic[] createPixmaps(MultiString ms)
+		throws InvalidMsgException
+	{
+		RasterGraphic[] rasters = lookupRasters(ms, true);
+		RasterGraphic[] pixmaps = new RasterGraphic[rasters.length];
+		for (int i = 0; i < rasters.length; i++) {
+			pixmaps[i] = new PixmapGraphic(width, height);
+			pixmaps[i].setPixelData(rasters[i].getPixelData());
+		}
+		return pixmaps;
+	}
+
+	/** Lookup rasters in the cache, rendering them on a miss.
+	 * @param ms MULTI string to render.
+	 * @param pixmap True for pixmaps, false for bitmaps.
+	 * @return Shared cached rasters (do not modify). */
+	private RasterGraphic[] lookupRasters(MultiString ms, boolean pixmap)
+		throws InvalidMsgException
+	{
+		RasterCache.Key key = new RasterCache.Key(width, height,
+			c_width, c_height, default_font, pixmap, ms.toString());
+		RasterGraphic[] rasters = RasterCache.lookup(key);
+		if (rasters != null)
+			return rasters;
+		int s = RasterCache.getSerial();
+		try {
+			rasters = pixmap ? renderPixmaps(ms) : renderBitmaps(ms);
+		}
+		catch (InvalidMsgException e) {
+			RasterCache.store(key, s, null, e);
+			throw e;
+		}
+		RasterCache.store(key, s, rasters, null);
+		return rasters;
+	}
+
+	/** Render a BitmapGraphic for each page */
+	private BitmapGraphic[] renderBitmaps(MultiString ms)
+		throws InvalidMsgException
 	{
 		final ArrayList<BitmapGraphic> bitmaps =
 			new ArrayList<BitmapGraphic>();
@@ -114,7 +164,7 @@ public class RasterBuilder {
 	}
 
 	/** Render a PixmapGraphic for each page */
-	public RasterGraphic[] createPixmaps(MultiString ms)
+	private RasterGraphic[] renderPixmaps(MultiString ms)
 		throws InvalidMsgException
 	{
 		final ArrayList<RasterGraphic> pixmaps =
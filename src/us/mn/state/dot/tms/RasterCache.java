@@ -0,0 +1,191 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2026  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of rendered MULTI rasters.  Entries are keyed by sign geometry,
+ * default font, default justification, raster type and MULTI string, and
+ * the least recently used entries are evicted.  Invalid MULTI strings are
+ * cached with their error, and a new exception is thrown for each lookup.
+ * The cache must be invalidated whenever
+ * a font, glyph or graphic is added, changed or removed.
+ *
+ * @author Douglas Lau
+ */
+public class RasterCache {
+
+	/** Maximum number of cached entries */
+	static private final int MAX_ENTRIES = 1024;
+
+	/** Cache key */
+	static final class Key {
+		private final int width;
+		private final int height;
+		private final int c_width;
+		private final int c_height;
+		private final int font;
+		private final int just_line;
+		private final int just_page;
+		private final boolean pixmap;
+		private final String multi;
+
+		/** Create a cache key */
+		Key(int w, int h, int cw, int ch, int df, boolean pm, String ms)
+		{
+			width = w;
+			height = h;
+			c_width = cw;
+			c_height = ch;
+			font = df;
+			just_line = SystemAttrEnum.
+				DMS_DEFAULT_JUSTIFICATION_LINE.getInt();
+			just_page = SystemAttrEnum.
+				DMS_DEFAULT_JUSTIFICATION_PAGE.getInt();
+			pixmap = pm;
+			multi = ms;
+		}
+
+		/** Calculate a hash code */
+		@Override
+		public int hashCode() {
+			int h = multi.hashCode();
+			h = h * 31 + width;
+			h = h * 31 + height;
+			h = h * 31 + c_width;
+			h = h * 31 + c_height;
+			h = h * 31 + font;
+			h = h * 31 + just_line;
+			h = h * 31 + just_page;
+			return pixmap ? ~h : h;
+		}
+
+		/** Test if the key equals another */
+		@Override
+		public boolean equals(Object o) {
+			if (o instanceof Key) {
+				Key k = (Key) o;
+				return width == k.width
+				    && height == k.height
+				    && c_width == k.c_width
+				    && c_height == k.c_height
+				    && font == k.font
+				    && just_line == k.just_line
+				    && just_page == k.just_page
+				    && pixmap == k.pixmap
+				    && multi.equals(k.multi);
+			} else
+				return false;
+		}
+	}
+
+	/** Cache entry */
+	static private final class Entry {
+		private final RasterGraphic[] rasters;
+		private final InvalidMsgException error;
+		private Entry(RasterGraphic[] r, InvalidMsgException e) {
+			rasters = r;
+			error = e;
+		}
+	}
+
+	/** Map of entries in access order, evicting the eldest */
+	static private final class EntryMap extends LinkedHashMap<Key, Entry> {
+		private static final long serialVersionUID = 1L;
+		private EntryMap() {
+			super(64, 0.75f, true);
+		}
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Entry> e) {
+			return size() > MAX_ENTRIES;
+		}
+	}
+
+	/** Cached entries, in access order */
+	static private final EntryMap CACHE = new EntryMap();
+
+	/** Serial number, incremented when the cache is invalidated */
+	static private int serial;
+
+	/** Number of cache hits */
+	static private long hits;
+
+	/** Number of cache misses */
+	static private long misses;
+
+	/** Don't allow instances to be created */
+	private RasterCache() { }
+
+	/** Invalidate all cached rasters.  This must be called whenever a
+	 * font, glyph or graphic is added, changed or removed. */
+	static public synchronized void invalidateAll() {
+		serial++;
+		CACHE.clear();
+	}
+
+	/** Get the number of cache hits */
+	static public synchronized long getHits() {
+		return hits;
+	}
+
+	/** Get the number of cache misses */
+	static public synchronized long getMisses() {
+		return misses;
+	}
+
+	/** Get the number of cached entries */
+	static public synchronized int size() {
+		return CACHE.size();
+	}
+
+	/** Get the current serial number */
+	static synchronized int getSerial() {
+		return serial;
+	}
+
+	/** Lookup cached rasters.
+	 * @param key Cache key.
+	 * @return Shared cached rasters (do not modify), or null on miss.
+	 * @throws InvalidMsgException if the MULTI string is invalid. */
+	static RasterGraphic[] lookup(Key key) throws InvalidMsgException {
+		Entry e;
+		synchronized (RasterCache.class) {
+			e = CACHE.get(key);
+			if (e != null)
+				hits++;
+			else
+				misses++;
+		}
+		// Cached exception is never thrown, since it is shared
+		if (e != null && e.error != null)
+			throw new InvalidMsgException(e.error);
+		return (e != null) ? e.rasters : null;
+	}
+
+	/** Store rendered rasters.
+	 * @param key Cache key.
+	 * @param s Serial number from before rendering.
+	 * @param r Rendered rasters (null on error).
+	 * @param err Exception for an invalid MULTI string (null if valid). */
+	static synchronized void store(Key key, int s, RasterGraphic[] r,
+		InvalidMsgException err)
+	{
+		// Don't cache if invalidated while rendering
+		if (s == serial)
+			CACHE.put(key, new Entry(r, err));
+	}
+}
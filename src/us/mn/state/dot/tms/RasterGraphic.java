@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2009-2016  Minnesota Department of Transportation
+ * Copyright (C) 2009-2026  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -132,12 +132,17 @@ abstract public class RasterGraphic {
 		}
 	}
 
-	/** Update the raster by clearing pixels not in another raster */
-	public void union(RasterGraphic rg) {
+	/** Check that another raster is the same size */
+	protected void checkSize(RasterGraphic rg) {
 		if (width != rg.width)
 			throw new IndexOutOfBoundsException("width mismatch");
 		if (height != rg.height)
 			throw new IndexOutOfBoundsException("height mismatch");
+	}
+
+	/** Update the raster by clearing pixels not in another raster */
+	public void union(RasterGraphic rg) {
+		checkSize(rg);
 		for (int x = 0; x < width; x++) {
 			for (int y = 0; y < height; y++) {
 				if (!rg.getPixel(x, y).isLit())
@@ -148,10 +153,7 @@ abstract public class RasterGraphic {
 
 	/** Update the raster by clearing pixels in another raster */
 	public void difference(RasterGraphic rg) {
-		if (width != rg.width)
-			throw new IndexOutOfBoundsException("width mismatch");
-		if (height != rg.height)
-			throw new IndexOutOfBoundsException("height mismatch");
+		checkSize(rg);
 		for (int x = 0; x < width; x++) {
 			for (int y = 0; y < height; y++) {
 				if (rg.getPixel(x, y).isLit())
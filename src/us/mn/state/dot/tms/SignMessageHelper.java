@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2008-2019  Minnesota Department of Transportation
+ * Copyright (C) 2008-2026  Minnesota Department of Transportation
  * Copyright (C) 2009-2010  AHMCT, University of California
  * Copyright (C) 2021  Iteris Inc.
  *
@@ -63,7 +63,8 @@ public class SignMessageHelper extends BaseHelper {
 		boolean be, DmsMsgPriority mp, int src, String owner, Integer d)
 	{
 		int mpi = mp.ordinal();
-		Iterator<SignMessage> it = iterator();
+		Iterator<SignMessage> it = indexIterator(SignMessage.SONAR_TYPE,
+			"multi", multi);
 		while (it.hasNext()) {
 			SignMessage sm = it.next();
 			if (objectEquals(sc, sm.getSignConfig()) &&
@@ -191,6 +191,12 @@ public enum SystemAttrEnum {
 	/** Maximum value for number attributes */
 	private final Number max_value;
 
+	/** Cached parsed value (null if not cached) */
+	private volatile Object cached;
+
+	/** Serial number, incremented when cached value is invalidated */
+	private int serial;
+
 	/** Create a String attribute with the given default value */
 	private SystemAttrEnum(String d) {
 		this(String.class, d, null, null, Change.NONE);
@@ -331,6 +337,27 @@ public enum SystemAttrEnum {
 		return ALL_ATTRIBUTES.get(aname);
 	}
 
+	/** Invalidate the cached value of an attribute.  This must be called
+	 * whenever a system attribute value is changed or it is removed.
+	 * @param aname Attribute name. */
+	static public void invalidate(String aname) {
+		SystemAttrEnum sa = lookup(aname);
+		if (sa != null)
+			sa.invalidate();
+	}
+
+	/** Invalidate the cached values of all attributes */
+	static public void invalidateAll() {
+		for (SystemAttrEnum sa: SystemAttrEnum.values())
+			sa.invalidate();
+	}
+
+	/** Invalidate the cached value */
+	private synchronized void invalidate() {
+		serial++;
+		cached = null;
+	}
+
 	/**
 	 * Get the value of the attribute as a string.
 	 * @return The value of the attribute as a string, never null.
@@ -371,7 +398,29 @@ public enum SystemAttrEnum {
 	 * @return The value of the attribute, never null.
 	 */
 	private Object get() {
-		return getValue(SystemAttributeHelper.get(aname()));
+		Object v = cached;
+		return (v != null) ? v : lookupValue();
+	}
+
+	/** Lookup and parse the value of the attribute, caching the result.
+	 * A default value for a missing attribute is not cached, since there
+	 * is no invalidation when the attribute is added.
+	 * @return The value of the attribute, never null. */
+	private Object lookupValue() {
+		int s;
+		synchronized (this) {
+			s = serial;
+		}
+		SystemAttribute attr = SystemAttributeHelper.get(aname());
+		Object v = getValue(attr);
+		if (attr != null) {
+			synchronized (this) {
+				// Don't cache if invalidated while parsing
+				if (s == serial)
+					cached = v;
+			}
+		}
+		return v;
 	}
 
 	/**
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2007-2021  Minnesota Department of Transportation
+ * Copyright (C) 2007-2026  Minnesota Department of Transportation
  * Copyright (C) 2015       Iteris Inc.
  * Copyright (C) 2016-2021  SRF Consulting Group
  *
@@ -30,6 +30,7 @@ import us.mn.state.dot.sonar.SonarException;
 import us.mn.state.dot.sonar.SonarObject;
 import us.mn.state.dot.sonar.User;
 import us.mn.state.dot.sonar.client.Client;
+import us.mn.state.dot.sonar.client.ProxyListener;
 import us.mn.state.dot.sonar.client.TypeCache;
 import us.mn.state.dot.tms.ActionPlan;
 import us.mn.state.dot.tms.Alarm;
@@ -56,9 +57,11 @@ import us.mn.state.dot.tms.MeterAction;
 import us.mn.state.dot.tms.ParkingArea;
 import us.mn.state.dot.tms.PlanPhase;
 import us.mn.state.dot.tms.RampMeter;
+import us.mn.state.dot.tms.RasterCache;
 import us.mn.state.dot.tms.Road;
 import us.mn.state.dot.tms.RoadAffix;
 import us.mn.state.dot.tms.RptConduit;
+import us.mn.state.dot.tms.SystemAttrEnum;
 import us.mn.state.dot.tms.SystemAttribute;
 import us.mn.state.dot.tms.TagReader;
 import us.mn.state.dot.tms.TimeAction;
@@ -145,6 +148,22 @@ public class SonarState extends Client {
 		return system_attributes;
 	}
 
+	/** Listener to invalidate cached system attribute values */
+	private final ProxyListener<SystemAttribute> sa_listener =
+		new ProxyListener<SystemAttribute>()
+	{
+		public void proxyAdded(SystemAttribute sa) {
+			SystemAttrEnum.invalidate(sa.getName());
+		}
+		public void enumerationComplete() { }
+		public void proxyRemoved(SystemAttribute sa) {
+			SystemAttrEnum.invalidate(sa.getName());
+		}
+		public void proxyChanged(SystemAttribute sa, String a) {
+			SystemAttrEnum.invalidate(sa.getName());
+		}
+	};
+
 	/** Cache of graphic proxies */
 	private final TypeCache<Graphic> graphics =
 		new TypeCache<Graphic>(Graphic.class, this);
@@ -154,6 +173,22 @@ public class SonarState extends Client {
 		return graphics;
 	}
 
+	/** Listener to invalidate cached rasters on graphic changes */
+	private final ProxyListener<Graphic> graphic_listener =
+		new ProxyListener<Graphic>()
+	{
+		public void proxyAdded(Graphic g) {
+			RasterCache.invalidateAll();
+		}
+		public void enumerationComplete() { }
+		public void proxyRemoved(Graphic g) {
+			RasterCache.invalidateAll();
+		}
+		public void proxyChanged(Graphic g, String a) {
+			RasterCache.invalidateAll();
+		}
+	};
+
 	/** Cache of road proxies */
 	private final TypeCache<Road> roads =
 		new TypeCache<Road>(Road.class, this);
@@ -631,6 +666,8 @@ public class SonarState extends Client {
 		user = users.lookupObject(user_name);
 		// FIXME: this is a hack ...
 		BaseHelper.user = user;
+		SystemAttrEnum.invalidateAll();
+		system_attributes.addProxyListener(sa_listener);
 		populate(system_attributes, true);
 		SubnetChecker.start();
 		populate(map_extents, true);
@@ -659,6 +696,7 @@ public class SonarState extends Client {
 			ramp_meters.ignoreAttribute("rate");
 			ramp_meters.ignoreAttribute("queue");
 		}
+		graphics.addProxyListener(graphic_listener);
 		populateReadable(graphics);
 		dms_cache.populate(this);
 		inc_cache.populate(this);
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2009-2019  Minnesota Department of Transportation
+ * Copyright (C) 2009-2026  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -14,11 +14,13 @@
  */
 package us.mn.state.dot.tms.client.dms;
 
+import us.mn.state.dot.sonar.client.ProxyListener;
 import us.mn.state.dot.sonar.client.TypeCache;
 import us.mn.state.dot.tms.DMS;
 import us.mn.state.dot.tms.DmsSignGroup;
 import us.mn.state.dot.tms.Font;
 import us.mn.state.dot.tms.Glyph;
+import us.mn.state.dot.tms.GlyphHelper;
 import us.mn.state.dot.tms.QuickMessage;
 import us.mn.state.dot.tms.SignConfig;
 import us.mn.state.dot.tms.SignDetail;
@@ -51,6 +53,39 @@ public class DmsCache {
 		return font_model;
 	}
 
+	/** Listener to invalidate glyph indexes on font changes */
+	private final ProxyListener<Font> font_listener =
+		new ProxyListener<Font>()
+	{
+		public void proxyAdded(Font f) {
+			GlyphHelper.invalidate(f);
+		}
+		public void enumerationComplete() { }
+		public void proxyRemoved(Font f) {
+			GlyphHelper.invalidate(f);
+		}
+		public void proxyChanged(Font f, String a) {
+			GlyphHelper.invalidate(f);
+		}
+	};
+
+	/** Listener to invalidate glyph indexes on glyph changes */
+	private final ProxyListener<Glyph> glyph_listener =
+		new ProxyListener<Glyph>()
+	{
+		public void proxyAdded(Glyph g) {
+			GlyphHelper.invalidate(g.getFont());
+		}
+		public void enumerationComplete() { }
+		public void proxyRemoved(Glyph g) {
+			// Attributes of a removed proxy may be gone
+			GlyphHelper.invalidateAll();
+		}
+		public void proxyChanged(Glyph g, String a) {
+			GlyphHelper.invalidate(g.getFont());
+		}
+	};
+
 	/** Cache of glyph proxies */
 	private final TypeCache<Glyph> glyphs;
 
@@ -158,6 +193,9 @@ public class DmsCache {
 
 	/** Populate the type caches */
 	public void populate(SonarState client) {
+		GlyphHelper.invalidateAll();
+		fonts.addProxyListener(font_listener);
+		glyphs.addProxyListener(glyph_listener);
 		client.populateReadable(fonts);
 		client.populateReadable(glyphs);
 		client.populateReadable(sign_configs);
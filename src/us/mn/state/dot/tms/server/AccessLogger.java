@@ -14,12 +14,10 @@
  */
 package us.mn.state.dot.tms.server;
 
-import us.mn.state.dot.sched.Job;
-import us.mn.state.dot.sched.Scheduler;
 import us.mn.state.dot.sonar.server.AccessMonitor;
 import us.mn.state.dot.tms.EventType;
-import us.mn.state.dot.tms.TMSException;
 import us.mn.state.dot.tms.server.event.ClientEvent;
+import us.mn.state.dot.tms.server.event.EventWriter;
 
 /**
  * This is the main class to start the IRIS server.
@@ -28,13 +26,8 @@ import us.mn.state.dot.tms.server.event.ClientEvent;
  */
 public class AccessLogger implements AccessMonitor {
 
-	/** FLUSH Scheduler for I/O jobs */
-	private final Scheduler flush;
-
 	/** Create a new access logger */
-	public AccessLogger(Scheduler f) {
-		flush = f;
-	}
+	public AccessLogger() { }
 
 	/** Log a connect event */
 	@Override
@@ -80,11 +73,6 @@ public class AccessLogger implements AccessMonitor {
 
 	/** Log an event */
 	private void log_event(EventType event, String hostport, String user) {
-		final ClientEvent ev = new ClientEvent(event, hostport, user);
-		flush.addJob(new Job() {
-			public void perform() throws TMSException {
-				ev.doStore();
-			}
-		});
+		EventWriter.add(new ClientEvent(event, hostport, user));
 	}
 }
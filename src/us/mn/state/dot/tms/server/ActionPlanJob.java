@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2009-2020  Minnesota Department of Transportation
+ * Copyright (C) 2009-2026  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -48,6 +48,7 @@ public class ActionPlanJob extends Job {
 	/** Perform the action plan job */
 	@Override
 	public void perform() throws TMSException {
+		final long start = System.nanoTime();
 		timer.addJob(new TimeActionJob());
 		timer.addJob(new DmsActionJob(SCHED_LOG));
 		timer.addJob(new BeaconActionJob());
@@ -55,6 +56,20 @@ public class ActionPlanJob extends Job {
 		timer.addJob(new LaneActionJob());
 		timer.addJob(new MeterActionJob());
 		updateActionPlanPhases();
+		// Queued after the action jobs, to time the whole cycle
+		timer.addJob(new Job() {
+			public void perform() {
+				logCycle(start);
+			}
+		});
+	}
+
+	/** Log the time to perform one action plan cycle */
+	private void logCycle(long start) {
+		if (SCHED_LOG.isOpen()) {
+			long ms = (System.nanoTime() - start) / 1000000;
+			SCHED_LOG.log("Action plan cycle: " + ms + " ms");
+		}
 	}
 
 	/** Update the action plan phases */
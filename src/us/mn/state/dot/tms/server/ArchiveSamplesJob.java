@@ -15,60 +15,165 @@
 package us.mn.state.dot.tms.server;
 
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileFilter;
-import java.io.FileInputStream;
 import java.io.FilenameFilter;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.Calendar;
-import java.util.Date;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
+import us.mn.state.dot.sched.DebugLog;
 import us.mn.state.dot.sched.Job;
 import us.mn.state.dot.sched.TimeSteward;
+import static us.mn.state.dot.tms.server.Constants.MISSING_DATA;
 
 /**
- * Job to create sample data archive files.
+ * Job to create sample data archive files.  Each day of sample files can be
+ * archived as a ZIP file (.traffic), a columnar file (.tcol), or both.
+ *
+ * The job only finds days to archive; each day is archived on a small
+ * dedicated thread pool, so the FLUSH thread is not blocked.  Archives are
+ * written to a temporary file, synced and then renamed, so an archive file
+ * is always complete.  The modification time of an archive is set to the
+ * time archiving started, before any files were copied.  Original sample
+ * files are deleted once they are in every archive, unless they were
+ * modified after that time or are still mapped by a PeriodicSampleWriter.
+ * If the server stops while archiving, the next run resumes cleanly.
+ *
+ * When sample files are written after a day was archived, the next run
+ * restores the archived files, merges the new samples into them and
+ * rebuilds the archives.
  *
  * @author Douglas Lau
  */
 public class ArchiveSamplesJob extends Job {
 
-	/** Buffer for reading sample data files */
-	protected final byte[] buffer = new byte[8192];
+	/** Archive debug log */
+	static private final DebugLog ARCHIVE_LOG = new DebugLog("archive");
+
+	/** Number of days to archive in parallel */
+	static private final int ARCHIVE_THREADS = 2;
+
+	/** Margin for comparing file modification times (ms).  Times may
+	 * have only one-second resolution, so a file modified in the same
+	 * second as an archive must be treated as modified after it. */
+	static private final long MODIFIED_MARGIN_MS = 2000;
+
+	/** Thread factory for archive threads */
+	static private final ThreadFactory THREAD_FACTORY = new ThreadFactory()
+	{
+		private final AtomicInteger n_thread = new AtomicInteger();
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "archive_" +
+				n_thread.incrementAndGet());
+			t.setDaemon(true);
+			t.setPriority(Thread.MIN_PRIORITY);
+			return t;
+		}
+	};
 
 	/** Sample archive factory */
 	private final SampleArchiveFactory a_factory;
 
+	/** Flag to create ZIP archives */
+	private final boolean zip;
+
+	/** Flag to create columnar archives */
+	private final boolean columnar;
+
+	/** Columnar archive flags */
+	private final short col_flags;
+
+	/** Executor for archiving days */
+	private final ExecutorService executor =
+		Executors.newFixedThreadPool(ARCHIVE_THREADS, THREAD_FACTORY);
+
+	/** Days being archived (or waiting) */
+	private final Set<File> active = Collections.newSetFromMap(
+		new ConcurrentHashMap<File, Boolean>());
+
 	/** Create a new job to archive sample data.  This needs to happen
 	 * after 6 PM to allow for buffered data to be read in case of
-	 * communication errors (MnDOT protocol). */
-	public ArchiveSamplesJob(SampleArchiveFactory saf) {
+	 * communication errors (MnDOT protocol).
+	 * @param saf Sample archive factory.
+	 * @param formats Comma-separated list of archive formats: "zip",
+	 *                "columnar" and/or "deflate" (compressed columnar). */
+	public ArchiveSamplesJob(SampleArchiveFactory saf, String formats) {
 		super(Calendar.DATE, 1, Calendar.HOUR, 22);
 		a_factory = saf;
+		HashSet<String> fmt = new HashSet<String>(Arrays.asList(
+			formats.toLowerCase().split("\\s*,\\s*")));
+		boolean deflate = fmt.contains("deflate");
+		columnar = fmt.contains("columnar") || deflate;
+		zip = fmt.contains("zip") || !columnar;
+		col_flags = deflate ? ColumnarArchive.FLAG_DEFLATE : 0;
 	}
 
 	/** Perform the archive samples job */
-	public void perform() throws IOException {
+	public void perform() {
 		archiveSamples();
 	}
 
 	/** Archive data samples */
-	protected void archiveSamples() throws IOException {
+	protected void archiveSamples() {
 		File[] years = listYears();
 		if(years != null) {
 			for(File year: years) {
 				File[] days = listDays(year);
 				if(days != null) {
 					for(File day: days)
-						createSampleArchive(day);
+						submitDay(day);
+				}
+			}
+		}
+	}
+
+	/** Submit a day to be archived, unless it is already active */
+	private void submitDay(final File day) {
+		if (active.add(day)) {
+			executor.execute(new Runnable() {
+				public void run() {
+					archiveDay(day);
 				}
+			});
+		}
+	}
+
+	/** Archive one day of sample files */
+	private void archiveDay(File day) {
+		try {
+			long start = TimeSteward.currentTimeMillis();
+			createSampleArchive(day);
+			if (ARCHIVE_LOG.isOpen()) {
+				long el = TimeSteward.currentTimeMillis() -
+					start;
+				ARCHIVE_LOG.log(day + " archived in " + el +
+					" ms");
 			}
 		}
+		catch (IOException e) {
+			ARCHIVE_LOG.log(day + ": " + e.getMessage());
+		}
+		finally {
+			active.remove(day);
+		}
 	}
 
 	/** Get an array of years in the sample archive directory */
@@ -92,47 +197,316 @@ public class ArchiveSamplesJob extends Job {
 		});
 	}
 
-	/** Create a sample archive file for the given day */
+	/** Create sample archive files for the given day.  If the archives
+	 * already exist, a previous run stopped before deleting the original
+	 * sample files, so only that step is done -- unless sample files were
+	 * modified after the archives were created.  In that case, archived
+	 * files are restored and merged, and the archives are rebuilt. */
 	protected void createSampleArchive(File day) throws IOException {
+		// Files modified after this time may not be archived
+		long start = TimeSteward.currentTimeMillis();
 		File traf = new File(day.toString() + ".traffic");
-		if(!traf.exists())
-			createSampleArchive(traf, day);
+		File tcol = new File(day.toString() + ".tcol");
+		long archived = archiveTime(traf, tcol);
+		boolean rebuild = archived > 0 &&
+			hasModifiedFiles(day, archived);
+		if (rebuild) {
+			int n = restoreSampleFiles(traf, tcol, day, archived);
+			if (ARCHIVE_LOG.isOpen()) {
+				ARCHIVE_LOG.log(day + " rebuilding, restored " +
+					n + " files");
+			}
+		}
+		if (zip && (rebuild || !traf.exists()))
+			createZipArchive(traf, day, start);
+		if (columnar && (rebuild || !tcol.exists()))
+			createColumnarArchive(tcol, day, start);
+		int kept = deleteOriginalSampleFiles(zip ? traf : null,
+			columnar ? tcol : null, day);
+		if (kept > 0 && ARCHIVE_LOG.isOpen()) {
+			ARCHIVE_LOG.log(day + " kept " + kept +
+				" files modified after archiving");
+		}
 	}
 
-	/** Create a sample archive file and delete the original sample files */
-	protected void createSampleArchive(File traf, File day)
-		throws IOException
+	/** Get the time the oldest existing archive was created.
+	 * @return Modification time, or 0 if no archive exists. */
+	static private long archiveTime(File traf, File tcol) {
+		long archived = Long.MAX_VALUE;
+		if (traf.exists())
+			archived = Math.min(archived, traf.lastModified());
+		if (tcol.exists())
+			archived = Math.min(archived, tcol.lastModified());
+		return (archived < Long.MAX_VALUE) ? archived : 0;
+	}
+
+	/** Check if a file was modified after an archive was created */
+	static private boolean isModifiedAfter(File file, long archived) {
+		return file.lastModified() + MODIFIED_MARGIN_MS >= archived;
+	}
+
+	/** Check if any sample files were modified after an archive */
+	private boolean hasModifiedFiles(File day, long archived) {
+		for (String name: listSampleFiles(day)) {
+			if (isModifiedAfter(new File(day, name), archived))
+				return true;
+		}
+		return false;
+	}
+
+	/** Restore archived sample files before rebuilding archives.  Files
+	 * which were deleted are restored, and modified files are merged
+	 * with their archived contents.
+	 * @return Number of files restored or merged. */
+	private int restoreSampleFiles(File traf, File tcol, File day,
+		long archived) throws IOException
 	{
-		FileOutputStream fos = new FileOutputStream(traf);
+		HashSet<String> names = new HashSet<String>();
+		int n_restored = 0;
+		if (traf.exists()) {
+			n_restored += restoreZipEntries(traf, day, archived,
+				names);
+		}
+		if (tcol.exists()) {
+			ColumnarArchive ca = new ColumnarArchive(tcol);
+			for (int i = 0; i < ca.size(); i++) {
+				String name = ca.getName(i);
+				if (names.add(name) && restoreSampleFile(day,
+				    name, ca.read(name), archived))
+					n_restored++;
+			}
+		}
+		return n_restored;
+	}
+
+	/** Restore sample files from a ZIP archive.
+	 * @param names Set of names, to which each entry name is added.
+	 * @return Number of files restored or merged. */
+	private int restoreZipEntries(File traf, File day, long archived,
+		HashSet<String> names) throws IOException
+	{
+		int n_restored = 0;
+		ZipFile zf = new ZipFile(traf);
 		try {
-			addSampleEntries(fos, day);
-			deleteOriginalSampleFiles(traf, day);
+			Enumeration<? extends ZipEntry> e = zf.entries();
+			while (e.hasMoreElements()) {
+				ZipEntry ze = e.nextElement();
+				String name = ze.getName();
+				InputStream is = zf.getInputStream(ze);
+				try {
+					if (restoreSampleFile(day, name,
+					    readAll(is), archived))
+						n_restored++;
+				}
+				finally {
+					is.close();
+				}
+				names.add(name);
+			}
 		}
 		finally {
-			fos.close();
+			zf.close();
 		}
+		return n_restored;
 	}
 
-	/** Add all valid sample file entries to an archive file */
-	protected void addSampleEntries(FileOutputStream fos, File day)
+	/** Read all bytes from an input stream */
+	static private byte[] readAll(InputStream is) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		byte[] buf = new byte[8192];
+		while (true) {
+			int n = is.read(buf);
+			if (n < 0)
+				break;
+			bos.write(buf, 0, n);
+		}
+		return bos.toByteArray();
+	}
+
+	/** Restore one archived sample file.  The modification time is kept
+	 * (or set before the archive time), so that the file will be deleted
+	 * after the archives are rebuilt.
+	 * @return true if the file was restored or merged. */
+	private boolean restoreSampleFile(File day, String name, byte[] data,
+		long archived) throws IOException
+	{
+		if (!a_factory.hasKnownExtension(name))
+			return false;
+		File file = new File(day, name);
+		long modified = archived - MODIFIED_MARGIN_MS;
+		if (file.isFile()) {
+			if (!isModifiedAfter(file, archived))
+				return false;
+			byte[] current = Files.readAllBytes(file.toPath());
+			data = mergeSamples(name, data, current);
+			if (data == current)
+				return false;
+			modified = file.lastModified();
+		}
+		File tmp = tempFile(file);
+		Files.write(tmp.toPath(), data);
+		tmp.setLastModified(modified);
+		if (!tmp.renameTo(file))
+			throw new IOException("rename failed: " + file);
+		return true;
+	}
+
+	/** Merge archived sample data with a file modified later.
+	 * @param name Sample file name.
+	 * @param archived Archived data.
+	 * @param current Current file data.
+	 * @return Merged data. */
+	static protected byte[] mergeSamples(String name, byte[] archived,
+		byte[] current)
+	{
+		// File was updated in place or appended
+		if (startsWith(current, archived))
+			return current;
+		if (name.endsWith(".vlog")) {
+			// Log file was recreated after being deleted
+			byte[] merged = Arrays.copyOf(archived,
+				archived.length + current.length);
+			System.arraycopy(current, 0, merged, archived.length,
+				current.length);
+			return merged;
+		}
+		PeriodicSampleType st = PeriodicSampleType.fromFileName(name);
+		if (st != null && current.length == archived.length)
+			return mergeSlots(archived, current, st.sample_bytes);
+		// Unknown file type -- keep current data
+		return current;
+	}
+
+	/** Merge samples from a periodic sample file which was recreated
+	 * after being deleted.  Archived samples are kept in slots where the
+	 * new file has MISSING_DATA.
+	 * @param archived Archived data.
+	 * @param current Current file data.
+	 * @param s_bytes Number of bytes per sample.
+	 * @return Merged data. */
+	static private byte[] mergeSlots(byte[] archived, byte[] current,
+		int s_bytes)
+	{
+		byte[] merged = current.clone();
+		for (int i = 0; i + s_bytes <= merged.length; i += s_bytes) {
+			if (isMissing(merged, i, s_bytes)) {
+				System.arraycopy(archived, i, merged, i,
+					s_bytes);
+			}
+		}
+		return merged;
+	}
+
+	/** Check if a sample slot is MISSING_DATA */
+	static private boolean isMissing(byte[] data, int pos, int s_bytes) {
+		for (int i = pos; i < pos + s_bytes; i++) {
+			if (data[i] != MISSING_DATA)
+				return false;
+		}
+		return true;
+	}
+
+	/** Check if an array starts with a prefix */
+	static private boolean startsWith(byte[] data, byte[] prefix) {
+		if (data.length < prefix.length)
+			return false;
+		for (int i = 0; i < prefix.length; i++) {
+			if (data[i] != prefix[i])
+				return false;
+		}
+		return true;
+	}
+
+	/** Create a ZIP archive file.
+	 * @param traf ZIP archive file.
+	 * @param day Directory of sample files.
+	 * @param start Time archiving started. */
+	protected void createZipArchive(File traf, File day, long start)
 		throws IOException
 	{
+		File tmp = tempFile(traf);
+		FileOutputStream fos = new FileOutputStream(tmp);
+		// Closing the ZIP stream releases its deflater and closes fos
 		ZipOutputStream zos = new ZipOutputStream(
 			new BufferedOutputStream(fos));
-		addSampleEntries(zos, day);
-		zos.finish();
-		zos.close();
+		try {
+			addSampleEntries(zos, day);
+			zos.finish();
+			zos.flush();
+			fos.getFD().sync();
+		}
+		finally {
+			zos.close();
+		}
+		commit(tmp, traf, start);
 	}
 
-	/** Add all valid sample file entries to an archive file */
-	protected void addSampleEntries(ZipOutputStream zos, File day)
+	/** Create a columnar archive file.
+	 * @param tcol Columnar archive file.
+	 * @param day Directory of sample files.
+	 * @param start Time archiving started. */
+	protected void createColumnarArchive(File tcol, File day, long start)
+		throws IOException
+	{
+		File tmp = tempFile(tcol);
+		ColumnarArchive.write(tmp, day, listSampleFiles(day),
+			col_flags);
+		commit(tmp, tcol, start);
+	}
+
+	/** Get a temporary file for writing an archive.  A temporary file
+	 * left by an earlier run is overwritten. */
+	static private File tempFile(File file) {
+		return new File(file.getPath() + ".tmp");
+	}
+
+	/** Commit an archive by renaming the temporary file.  Its
+	 * modification time is set to the time archiving started, so that
+	 * files modified while copying are not deleted.
+	 * @param tmp Temporary archive file.
+	 * @param file Archive file.
+	 * @param start Time archiving started. */
+	static private void commit(File tmp, File file, long start)
 		throws IOException
 	{
+		tmp.setLastModified(start);
+		if (!tmp.renameTo(file))
+			throw new IOException("rename failed: " + file);
+		syncDirectory(file.getParentFile());
+	}
+
+	/** Sync a directory, so that a rename is durable */
+	static private void syncDirectory(File dir) {
+		try {
+			FileChannel fc = FileChannel.open(dir.toPath(),
+				StandardOpenOption.READ);
+			try {
+				fc.force(true);
+			}
+			finally {
+				fc.close();
+			}
+		}
+		catch (IOException e) {
+			// Not supported on all platforms
+		}
+	}
+
+	/** List all valid sample files for a day */
+	protected String[] listSampleFiles(File day) {
 		String[] entries = day.list(new FilenameFilter() {
 			public boolean accept(File dir, String name) {
 				return a_factory.hasKnownExtension(name);
 			}
 		});
+		return (entries != null) ? entries : new String[0];
+	}
+
+	/** Add all valid sample file entries to an archive file */
+	protected void addSampleEntries(ZipOutputStream zos, File day)
+		throws IOException
+	{
+		String[] entries = listSampleFiles(day);
 		Arrays.sort(entries);
 		for(String entry: entries)
 			addSampleEntry(zos, day, entry);
@@ -143,39 +517,92 @@ public class ArchiveSamplesJob extends Job {
 		String name) throws IOException
 	{
 		zos.putNextEntry(new ZipEntry(name));
-		FileInputStream fis = new FileInputStream(new File(day, name));
-		try {
-			synchronized(buffer) {
-				while(true) {
-					int n_bytes = fis.read(buffer);
-					if(n_bytes < 0)
-						break;
-					zos.write(buffer, 0, n_bytes);
+		Files.copy(new File(day, name).toPath(), zos);
+		zos.closeEntry();
+	}
+
+	/** Delete the original sample files that have been copied into all
+	 * archive files.  Files modified after an archive was started, or
+	 * still mapped by a writer, are not deleted; they are archived again
+	 * on the next run.
+	 * @param traf ZIP archive file, or null.
+	 * @param tcol Columnar archive file, or null.
+	 * @param day Directory of sample files.
+	 * @return Number of archived files which were kept. */
+	protected int deleteOriginalSampleFiles(File traf, File tcol, File day)
+		throws IOException
+	{
+		int kept = 0;
+		HashSet<String> names = null;
+		long archived = Long.MAX_VALUE;
+		if (traf != null) {
+			names = retain(names, listZipEntries(traf));
+			archived = Math.min(archived, traf.lastModified());
+		}
+		if (tcol != null) {
+			names = retain(names, listColumnarEntries(tcol));
+			archived = Math.min(archived, tcol.lastModified());
+		}
+		if (names != null) {
+			for (String name: names) {
+				if (a_factory.hasKnownExtension(name)) {
+					File file = new File(day, name);
+					if (!file.isFile())
+						continue;
+					if (!deleteSampleFile(file, archived))
+						kept++;
 				}
 			}
 		}
-		finally {
-			fis.close();
-		}
+		day.delete();
+		return kept;
 	}
 
-	/** Delete the original sample files that have been copied into an
-	 * archive file */
-	protected void deleteOriginalSampleFiles(File traf, File day)
+	/** Delete an archived sample file, unless it was modified after
+	 * archiving started or is still mapped by a writer.
+	 * @return true if the file was deleted. */
+	static private boolean deleteSampleFile(File file, long archived)
 		throws IOException
 	{
+		return !isModifiedAfter(file, archived) &&
+		       PeriodicSampleWriter.deleteUnmapped(file);
+	}
+
+	/** Retain names which are in both sets */
+	static private HashSet<String> retain(HashSet<String> names,
+		HashSet<String> other)
+	{
+		if (names != null)
+			names.retainAll(other);
+		return (names != null) ? names : other;
+	}
+
+	/** List the entries in a ZIP archive file */
+	protected HashSet<String> listZipEntries(File traf) throws IOException {
+		HashSet<String> names = new HashSet<String>();
 		ZipFile zf = new ZipFile(traf);
-		Enumeration e = zf.entries();
-		while(e.hasMoreElements()) {
-			ZipEntry ze = (ZipEntry)e.nextElement();
-			String name = ze.getName();
-			if(a_factory.hasKnownExtension(name)) {
-				File file = new File(day, name);
-				if(file.isFile())
-					file.delete();
+		try {
+			Enumeration e = zf.entries();
+			while(e.hasMoreElements()) {
+				ZipEntry ze = (ZipEntry)e.nextElement();
+				names.add(ze.getName());
 			}
 		}
-		day.delete();
+		finally {
+			zf.close();
+		}
+		return names;
+	}
+
+	/** List the entries in a columnar archive file */
+	protected HashSet<String> listColumnarEntries(File tcol)
+		throws IOException
+	{
+		HashSet<String> names = new HashSet<String>();
+		ColumnarArchive ca = new ColumnarArchive(tcol);
+		for (int i = 0; i < ca.size(); i++)
+			names.add(ca.getName(i));
+		return names;
 	}
 
 	/** Test if a year is valid */
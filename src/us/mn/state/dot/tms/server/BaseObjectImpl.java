@@ -20,14 +20,13 @@ import java.sql.SQLException;
 import java.text.NumberFormat;
 import java.util.Arrays;
 import java.util.Date;
-import us.mn.state.dot.sched.Job;
 import us.mn.state.dot.sonar.SonarException;
 import us.mn.state.dot.sonar.SonarObject;
 import us.mn.state.dot.sonar.server.Server;
 import us.mn.state.dot.sonar.server.ServerNamespace;
 import us.mn.state.dot.tms.TMSException;
-import static us.mn.state.dot.tms.server.MainServer.FLUSH;
 import us.mn.state.dot.tms.server.event.BaseEvent;
+import us.mn.state.dot.tms.server.event.EventWriter;
 
 /**
  * Base object class for storable SONAR objects.
@@ -45,6 +44,9 @@ abstract public class BaseObjectImpl implements Storable, SonarObject {
 	/** Corridor manager */
 	static public final CorridorManager corridors = new CorridorManager();
 
+	/** Number of threads for loading objects */
+	static private final int LOAD_THREADS = SQLConnection.Lane.READ.size;
+
 	/** Load all objects from the database into the SONAR Namespace */
 	static void loadAll(SQLConnection s, ServerNamespace ns)
 		throws TMSException
@@ -52,79 +54,111 @@ abstract public class BaseObjectImpl implements Storable, SonarObject {
 		store = s;
 		namespace = ns;
 		SystemAttributeImpl.loadAll();
-		GraphicImpl.loadAll();
-		FontImpl.loadAll();
-		GlyphImpl.loadAll();
-		RoadImpl.loadAll();
-		RoadAffixImpl.loadAll();
-		GeoLocImpl.loadAll();
-		MapExtentImpl.loadAll();
-		IncidentDetailImpl.loadAll();
-		CommConfigImpl.loadAll();
-		CommLinkImpl.loadAll();
-		ModemImpl.loadAll();
-		CabinetStyleImpl.loadAll();
-		CabinetImpl.loadAll();
-		ControllerImpl.loadAll();
-		SignConfigImpl.loadAll();
-		SignDetailImpl.loadAll();
-		DayMatcherImpl.loadAll();
-		DayPlanImpl.loadAll();
-		PlanPhaseImpl.loadAll();
-		ActionPlanImpl.loadAll();
-		R_NodeImpl.loadAll();
+		ObjectLoader ol = new ObjectLoader();
+		ol.add("graphic", GraphicImpl::loadAll);
+		ol.add("font", FontImpl::loadAll);
+		ol.add("glyph", GlyphImpl::loadAll, "font");
+		ol.add("road", RoadImpl::loadAll);
+		ol.add("road_affix", RoadAffixImpl::loadAll);
+		ol.add("geo_loc", GeoLocImpl::loadAll, "road");
+		ol.add("map_extent", MapExtentImpl::loadAll);
+		ol.add("incident_detail", IncidentDetailImpl::loadAll);
+		ol.add("comm_config", CommConfigImpl::loadAll);
+		ol.add("comm_link", CommLinkImpl::loadAll, "comm_config");
+		ol.add("modem", ModemImpl::loadAll);
+		ol.add("cabinet_style", CabinetStyleImpl::loadAll);
+		ol.add("cabinet", CabinetImpl::loadAll, "geo_loc",
+			"cabinet_style");
+		ol.add("controller", ControllerImpl::loadAll, "comm_link",
+			"cabinet");
+		ol.add("sign_config", SignConfigImpl::loadAll, "font");
+		ol.add("sign_detail", SignDetailImpl::loadAll);
+		ol.add("day_matcher", DayMatcherImpl::loadAll);
+		ol.add("day_plan", DayPlanImpl::loadAll, "day_matcher");
+		ol.add("plan_phase", PlanPhaseImpl::loadAll);
+		ol.add("action_plan", ActionPlanImpl::loadAll, "plan_phase");
+		ol.add("r_node", R_NodeImpl::loadAll, "geo_loc");
 		/* NOTE: must happen after r_nodes are loaded */
-		corridors.createCorridors();
-		AlarmImpl.loadAll();
-		GpsImpl.loadAll();
-		CameraTemplateImpl.loadAll();
-		VidSourceTemplateImpl.loadAll();
-		CameraVidSourceOrderImpl.loadAll();
-		DetectorImpl.loadAll();
-		TollZoneImpl.loadAll();
-		EncoderTypeImpl.loadAll();
-		EncoderStreamImpl.loadAll();
-		CameraImpl.loadAll();
-		CameraPresetImpl.loadAll();
-		PlayListImpl.loadAll();
-		CatalogImpl.loadAll();
-		MonitorStyleImpl.loadAll();
-		VideoMonitorImpl.loadAll();
-		FlowStreamImpl.loadAll();
-		BeaconImpl.loadAll();
-		WeatherSensorImpl.loadAll();
-		RampMeterImpl.loadAll();
-		SignMessageImpl.loadAll();
-		DMSImpl.loadAll();
-		SignGroupImpl.loadAll();
-		DmsSignGroupImpl.loadAll();
-		QuickMessageImpl.loadAll();
-		SignTextImpl.loadAll();
-		GateArmArrayImpl.loadAll();
-		GateArmImpl.loadAll();
-		TagReaderImpl.loadAll();
-		LaneMarkingImpl.loadAll();
-		LCSArrayImpl.loadAll();
-		LCSImpl.loadAll();
-		LCSIndicationImpl.loadAll();
-		LaneUseMultiImpl.loadAll();
-		ParkingAreaImpl.loadAll();
-		IncidentImpl.loadAll();
-		IncDescriptorImpl.loadAll();
-		IncLocatorImpl.loadAll();
-		IncAdviceImpl.loadAll();
-		TimeActionImpl.loadAll();
-		DmsActionImpl.loadAll();
-		BeaconActionImpl.loadAll();
-		CameraActionImpl.loadAll();
-		LaneActionImpl.loadAll();
-		MeterActionImpl.loadAll();
-		WordImpl.loadAll();
-		DMSImpl.updateAllStyles();
-		RptConduitImpl.loadAll();
-		AlertConfigImpl.loadAll();
-		AlertMessageImpl.loadAll();
-		AlertInfoImpl.loadAll();
+		ol.add("corridors", corridors::createCorridors, "r_node");
+		ol.add("alarm", AlarmImpl::loadAll, "controller");
+		ol.add("gps", GpsImpl::loadAll, "controller");
+		ol.add("camera_template", CameraTemplateImpl::loadAll);
+		ol.add("vid_src_template", VidSourceTemplateImpl::loadAll);
+		ol.add("cam_vid_src_ord", CameraVidSourceOrderImpl::loadAll);
+		ol.add("detector", DetectorImpl::loadAll, "controller",
+			"r_node");
+		ol.add("toll_zone", TollZoneImpl::loadAll, "geo_loc",
+			"corridors");
+		ol.add("encoder_type", EncoderTypeImpl::loadAll);
+		ol.add("encoder_stream", EncoderStreamImpl::loadAll,
+			"encoder_type");
+		ol.add("camera", CameraImpl::loadAll, "controller",
+			"camera_template", "encoder_type");
+		ol.add("camera_preset", CameraPresetImpl::loadAll, "camera");
+		ol.add("play_list", PlayListImpl::loadAll, "camera");
+		ol.add("catalog", CatalogImpl::loadAll, "play_list");
+		ol.add("monitor_style", MonitorStyleImpl::loadAll);
+		ol.add("video_monitor", VideoMonitorImpl::loadAll, "camera",
+			"monitor_style");
+		ol.add("flow_stream", FlowStreamImpl::loadAll,
+			"video_monitor");
+		ol.add("beacon", BeaconImpl::loadAll, "camera_preset");
+		ol.add("weather_sensor", WeatherSensorImpl::loadAll,
+			"controller");
+		ol.add("ramp_meter", RampMeterImpl::loadAll, "detector",
+			"beacon", "corridors");
+		ol.add("sign_message", SignMessageImpl::loadAll,
+			"sign_config");
+		ol.add("dms", DMSImpl::loadAll, "graphic", "sign_detail", "gps",
+			"beacon", "sign_message");
+		ol.add("sign_group", SignGroupImpl::loadAll);
+		ol.add("dms_sign_group", DmsSignGroupImpl::loadAll, "dms",
+			"sign_group");
+		ol.add("quick_message", QuickMessageImpl::loadAll,
+			"sign_config", "sign_group");
+		ol.add("sign_text", SignTextImpl::loadAll, "sign_group");
+		ol.add("gate_arm_array", GateArmArrayImpl::loadAll,
+			"action_plan", "camera");
+		ol.add("gate_arm", GateArmImpl::loadAll, "gate_arm_array");
+		ol.add("tag_reader", TagReaderImpl::loadAll, "toll_zone",
+			"dms");
+		ol.add("lane_marking", LaneMarkingImpl::loadAll, "controller");
+		ol.add("lcs_array", LCSArrayImpl::loadAll, "dms");
+		ol.add("lcs", LCSImpl::loadAll, "lcs_array");
+		ol.add("lcs_indication", LCSIndicationImpl::loadAll, "lcs");
+		ol.add("lane_use_multi", LaneUseMultiImpl::loadAll,
+			"quick_message");
+		ol.add("parking_area", ParkingAreaImpl::loadAll, "detector",
+			"camera_preset", "corridors");
+		ol.add("incident", IncidentImpl::loadAll, "incident_detail",
+			"camera", "corridors");
+		ol.add("inc_descriptor", IncDescriptorImpl::loadAll,
+			"incident_detail");
+		ol.add("inc_locator", IncLocatorImpl::loadAll);
+		ol.add("inc_advice", IncAdviceImpl::loadAll);
+		ol.add("time_action", TimeActionImpl::loadAll, "day_plan",
+			"action_plan");
+		ol.add("dms_action", DmsActionImpl::loadAll, "action_plan",
+			"quick_message");
+		ol.add("beacon_action", BeaconActionImpl::loadAll,
+			"action_plan", "beacon");
+		ol.add("camera_action", CameraActionImpl::loadAll,
+			"action_plan", "camera_preset");
+		ol.add("lane_action", LaneActionImpl::loadAll, "action_plan",
+			"lane_marking");
+		ol.add("meter_action", MeterActionImpl::loadAll,
+			"action_plan", "ramp_meter");
+		ol.add("word", WordImpl::loadAll);
+		ol.add("dms_styles", DMSImpl::updateAllStyles, "dms", "word",
+			"lcs_indication", "dms_action");
+		ol.add("rpt_conduit", RptConduitImpl::loadAll);
+		ol.add("alert_config", AlertConfigImpl::loadAll, "sign_group");
+		ol.add("alert_message", AlertMessageImpl::loadAll,
+			"quick_message", "alert_config");
+		ol.add("alert_info", AlertInfoImpl::loadAll, "action_plan",
+			"sign_group");
+		ol.load(LOAD_THREADS);
+		ol.printReport();
 	}
 
 	/** Get the time as a time stamp */
@@ -556,11 +590,7 @@ abstract public class BaseObjectImpl implements Storable, SonarObject {
 	}
 
 	/** Log an event */
-	static public void logEvent(final BaseEvent ev) {
-		FLUSH.addJob(new Job() {
-			public void perform() throws TMSException {
-				ev.doStore();
-			}
-		});
+	static public void logEvent(BaseEvent ev) {
+		EventWriter.add(ev);
 	}
 }
@@ -0,0 +1,277 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2026  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A columnar sample archive packs one day of sample files into a single file,
+ * with an index for random access.  Readers can memory-map the file and fetch
+ * one sensor file with a binary search of the index and one read.
+ *
+ * The file starts with a 16-byte header: magic "IRTC", version (u16), flags
+ * (u16), entry count (u32) and a reserved u32.  The index follows, with one
+ * 64-byte entry per file, sorted by name: name (48 bytes UTF-8, zero padded),
+ * data offset (u64), stored length (u32) and raw length (u32).  The data is
+ * ordered by file extension, then name, so that the fixed-width sample arrays
+ * for each sample type are contiguous.  If the deflate flag is set, entries
+ * with stored length less than raw length are deflate compressed.  All
+ * values are big-endian.
+ *
+ * @author Douglas Lau
+ */
+public class ColumnarArchive {
+
+	/** Magic number at start of file */
+	static private final int MAGIC = 0x49525443;
+
+	/** File format version */
+	static private final short VERSION = 1;
+
+	/** Flag for deflate compressed entries */
+	static public final short FLAG_DEFLATE = 1;
+
+	/** Size of header (bytes) */
+	static private final int HEADER_BYTES = 16;
+
+	/** Maximum size of an entry name (bytes) */
+	static private final int NAME_BYTES = 48;
+
+	/** Size of one index entry (bytes) */
+	static private final int ENTRY_BYTES = NAME_BYTES + 16;
+
+	/** Compare file names by extension, then name */
+	static private final Comparator<String> EXT_COMPARATOR =
+		new Comparator<String>()
+	{
+		public int compare(String a, String b) {
+			int c = extension(a).compareTo(extension(b));
+			return (c != 0) ? c : a.compareTo(b);
+		}
+	};
+
+	/** Get the extension of a file name */
+	static private String extension(String name) {
+		int i = name.lastIndexOf('.');
+		return (i >= 0) ? name.substring(i) : "";
+	}
+
+	/** Encode an entry name */
+	static private byte[] encodeName(String name) throws IOException {
+		byte[] b = name.getBytes(StandardCharsets.UTF_8);
+		if (b.length > NAME_BYTES)
+			throw new IOException("Name too long: " + name);
+		return Arrays.copyOf(b, NAME_BYTES);
+	}
+
+	/** Write a columnar archive.  The file is synced before returning.
+	 * @param file Archive file.
+	 * @param dir Directory containing sample files.
+	 * @param names Names of sample files to archive.
+	 * @param flags Archive flags (FLAG_DEFLATE). */
+	static public void write(File file, File dir, String[] names,
+		short flags) throws IOException
+	{
+		String[] by_name = names.clone();
+		Arrays.sort(by_name);
+		String[] by_ext = names.clone();
+		Arrays.sort(by_ext, EXT_COMPARATOR);
+		int n = names.length;
+		long[] offset = new long[n];
+		int[] stored = new int[n];
+		int[] raw = new int[n];
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.setLength(0);
+			long pos = HEADER_BYTES + (long) n * ENTRY_BYTES;
+			raf.seek(pos);
+			for (String name: by_ext) {
+				int i = Arrays.binarySearch(by_name, name);
+				byte[] data = Files.readAllBytes(
+					new File(dir, name).toPath());
+				byte[] st = ((flags & FLAG_DEFLATE) != 0)
+				          ? deflate(data)
+				          : data;
+				raf.write(st);
+				offset[i] = pos;
+				stored[i] = st.length;
+				raw[i] = data.length;
+				pos += st.length;
+			}
+			ByteBuffer hdr = ByteBuffer.allocate(HEADER_BYTES +
+				n * ENTRY_BYTES);
+			hdr.putInt(MAGIC);
+			hdr.putShort(VERSION);
+			hdr.putShort(flags);
+			hdr.putInt(n);
+			hdr.putInt(0);
+			for (int i = 0; i < n; i++) {
+				hdr.put(encodeName(by_name[i]));
+				hdr.putLong(offset[i]);
+				hdr.putInt(stored[i]);
+				hdr.putInt(raw[i]);
+			}
+			raf.seek(0);
+			raf.write(hdr.array());
+			raf.getFD().sync();
+		}
+		finally {
+			raf.close();
+		}
+	}
+
+	/** Deflate one entry, unless it does not get smaller */
+	static private byte[] deflate(byte[] data) {
+		Deflater d = new Deflater(Deflater.BEST_COMPRESSION);
+		try {
+			d.setInput(data);
+			d.finish();
+			byte[] buf = new byte[data.length];
+			int n = 0;
+			while (!d.finished() && n < buf.length)
+				n += d.deflate(buf, n, buf.length - n);
+			return (d.finished() && n < data.length)
+			      ? Arrays.copyOf(buf, n)
+			      : data;
+		}
+		finally {
+			d.end();
+		}
+	}
+
+	/** Mapped archive file */
+	private final MappedByteBuffer buffer;
+
+	/** Number of entries */
+	private final int n_entries;
+
+	/** Open a columnar archive for reading.
+	 * @param file Archive file. */
+	public ColumnarArchive(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel fc = raf.getChannel();
+			buffer = fc.map(FileChannel.MapMode.READ_ONLY, 0,
+				fc.size());
+		}
+		finally {
+			raf.close();
+		}
+		if (buffer.capacity() < HEADER_BYTES ||
+		    buffer.getInt(0) != MAGIC)
+			throw new IOException("Invalid archive: " + file);
+		if (buffer.getShort(4) != VERSION)
+			throw new IOException("Invalid version: " + file);
+		n_entries = buffer.getInt(8);
+		if (n_entries < 0 || buffer.capacity() < HEADER_BYTES +
+		    (long) n_entries * ENTRY_BYTES)
+			throw new IOException("Invalid index: " + file);
+	}
+
+	/** Get the number of entries */
+	public int size() {
+		return n_entries;
+	}
+
+	/** Get the name of an entry.
+	 * @param i Entry index (sorted by name). */
+	public String getName(int i) {
+		int pos = HEADER_BYTES + i * ENTRY_BYTES;
+		byte[] b = new byte[NAME_BYTES];
+		ByteBuffer buf = buffer.duplicate();
+		buf.position(pos);
+		buf.get(b);
+		int len = 0;
+		while (len < NAME_BYTES && b[len] != 0)
+			len++;
+		return new String(b, 0, len, StandardCharsets.UTF_8);
+	}
+
+	/** Find the index of an entry.
+	 * @param name Entry name.
+	 * @return Entry index, or -1 if not found. */
+	private int find(String name) {
+		int lo = 0;
+		int hi = n_entries - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			int c = getName(mid).compareTo(name);
+			if (c < 0)
+				lo = mid + 1;
+			else if (c > 0)
+				hi = mid - 1;
+			else
+				return mid;
+		}
+		return -1;
+	}
+
+	/** Read one entry.
+	 * @param name Entry name, such as "123.v30".
+	 * @return Entry data, or null if not found. */
+	public byte[] read(String name) throws IOException {
+		int i = find(name);
+		if (i < 0)
+			return null;
+		int pos = HEADER_BYTES + i * ENTRY_BYTES + NAME_BYTES;
+		long offset = buffer.getLong(pos);
+		int stored = buffer.getInt(pos + 8);
+		int raw = buffer.getInt(pos + 12);
+		if (offset < 0 || offset + stored > buffer.capacity())
+			throw new IOException("Invalid entry: " + name);
+		byte[] st = new byte[stored];
+		ByteBuffer buf = buffer.duplicate();
+		buf.position((int) offset);
+		buf.get(st);
+		return (stored < raw) ? inflate(st, raw) : st;
+	}
+
+	/** Inflate one entry */
+	private byte[] inflate(byte[] st, int raw) throws IOException {
+		Inflater inf = new Inflater();
+		try {
+			inf.setInput(st);
+			byte[] data = new byte[raw];
+			int n = 0;
+			while (n < raw && !inf.finished()) {
+				int r = inf.inflate(data, n, raw - n);
+				if (0 == r && inf.needsInput())
+					break;
+				n += r;
+			}
+			if (n < raw)
+				throw new IOException("Truncated entry");
+			return data;
+		}
+		catch (DataFormatException e) {
+			throw new IOException(e);
+		}
+		finally {
+			inf.end();
+		}
+	}
+}
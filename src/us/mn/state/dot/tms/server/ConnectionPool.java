@@ -0,0 +1,286 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2026  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Properties;
+import us.mn.state.dot.sched.DebugLog;
+import us.mn.state.dot.sched.Histogram;
+import us.mn.state.dot.tms.TMSException;
+
+/**
+ * A pool of database connections for one lane of an SQLConnection.  A thread
+ * which already holds a connection from this pool reuses it for nested
+ * calls, so that nested calls on one lane can never deadlock on a full pool.
+ * Waiting for a connection is bounded, so that nested calls on different
+ * lanes fail instead of waiting forever.
+ *
+ * @author Douglas Lau
+ */
+final class ConnectionPool {
+
+	/** SQL debug log */
+	static private final DebugLog SQL_LOG = new DebugLog("sql");
+
+	/** Time an idle connection can be reused without validation (ms) */
+	static private final long VALIDATE_IDLE_MS = 60 * 1000;
+
+	/** Timeout for validating a connection (seconds) */
+	static private final int VALIDATE_TIMEOUT_SEC = 5;
+
+	/** Wait time to log as slow (ms) */
+	static private final long SLOW_WAIT_MS = 1000;
+
+	/** Maximum time to wait for a connection (ms) */
+	static private final long MAX_WAIT_MS = 30 * 1000;
+
+	/** Database connection with cached statements.  It is only used by
+	 * one thread at a time. */
+	final class PooledConnection {
+
+		/** JDBC connection */
+		private final Connection connection;
+
+		/** Available SQL statements */
+		private final LinkedList<Statement> statements =
+			new LinkedList<Statement>();
+
+		/** Available prepared statements, mapped by SQL text.  Since
+		 * each SQL text is determined by table and field names, the
+		 * number of distinct entries is bounded. */
+		private final HashMap<String, LinkedList<PreparedStatement>>
+			prepared =
+			new HashMap<String, LinkedList<PreparedStatement>>();
+
+		/** Nesting depth of acquire calls on the holding thread */
+		private int depth;
+
+		/** Time the connection was last released */
+		private long released = System.currentTimeMillis();
+
+		/** Flag to indicate an SQL error happened */
+		private boolean suspect;
+
+		/** Open a new pooled connection */
+		private PooledConnection() throws SQLException {
+			connection = DriverManager.getConnection(location,
+				props);
+			connection.setAutoCommit(true);
+		}
+
+		/** Get the JDBC connection */
+		Connection getConnection() {
+			return connection;
+		}
+
+		/** Get an available statement */
+		Statement getStatement() throws SQLException {
+			return statements.isEmpty()
+			      ? connection.createStatement()
+			      : statements.removeLast();
+		}
+
+		/** Put a statement back after using it */
+		void putStatement(Statement s) {
+			statements.add(s);
+		}
+
+		/** Get an available prepared statement */
+		PreparedStatement getPrepared(String sql) throws SQLException {
+			LinkedList<PreparedStatement> ps = prepared.get(sql);
+			return (ps != null && !ps.isEmpty())
+			      ? ps.removeLast()
+			      : connection.prepareStatement(sql);
+		}
+
+		/** Put a prepared statement back after using it */
+		void putPrepared(String sql, PreparedStatement s) {
+			LinkedList<PreparedStatement> ps = prepared.get(sql);
+			if (null == ps) {
+				ps = new LinkedList<PreparedStatement>();
+				prepared.put(sql, ps);
+			}
+			ps.add(s);
+		}
+
+		/** Mark the connection as suspect after an SQL error.  It
+		 * will be validated before it is used again. */
+		void setSuspect() {
+			suspect = true;
+		}
+
+		/** Release the connection back to its pool */
+		void release() {
+			ConnectionPool.this.release(this);
+		}
+
+		/** Check if the connection is still valid */
+		private boolean isValid() {
+			try {
+				return connection.isValid(VALIDATE_TIMEOUT_SEC);
+			}
+			catch (SQLException e) {
+				return false;
+			}
+		}
+
+		/** Close the connection */
+		private void close() {
+			try {
+				connection.close();
+			}
+			catch (SQLException e) {
+				SQL_LOG.log(name + " close -> " + e);
+			}
+		}
+	}
+
+	/** Lane name */
+	private final String name;
+
+	/** Maximum number of open connections */
+	private final int size;
+
+	/** Location of database server */
+	private final String location;
+
+	/** Connection properties */
+	private final Properties props;
+
+	/** Idle connections */
+	private final LinkedList<PooledConnection> idle =
+		new LinkedList<PooledConnection>();
+
+	/** Number of open (or opening) connections */
+	private int n_open = 0;
+
+	/** Connection held by the current thread */
+	private final ThreadLocal<PooledConnection> held =
+		new ThreadLocal<PooledConnection>();
+
+	/** Histogram of wait times to acquire a connection (ms) */
+	private final Histogram waits = new Histogram();
+
+	/** Create a new connection pool */
+	ConnectionPool(String n, int sz, String loc, Properties p) {
+		name = n;
+		size = sz;
+		location = loc;
+		props = p;
+	}
+
+	/** Acquire a connection.  It must be released after use. */
+	PooledConnection acquire() throws TMSException {
+		PooledConnection pc = held.get();
+		if (pc != null) {
+			pc.depth++;
+			return pc;
+		}
+		long start = System.currentTimeMillis();
+		pc = take();
+		long w = System.currentTimeMillis() - start;
+		waits.record(w);
+		if (w >= SLOW_WAIT_MS && SQL_LOG.isOpen())
+			SQL_LOG.log(name + " waited " + w + " ms");
+		pc.depth = 1;
+		held.set(pc);
+		return pc;
+	}
+
+	/** Take an idle connection, or open a new one */
+	private PooledConnection take() throws TMSException {
+		PooledConnection pc = takeIdle();
+		if (pc != null) {
+			boolean old = pc.suspect || System.currentTimeMillis() -
+				pc.released > VALIDATE_IDLE_MS;
+			if (!old || pc.isValid()) {
+				pc.suspect = false;
+				return pc;
+			}
+			SQL_LOG.log(name + " reconnecting stale connection");
+			pc.close();
+		}
+		try {
+			return new PooledConnection();
+		}
+		catch (SQLException e) {
+			SQL_LOG.log(name + " connect -> " + e);
+			synchronized (this) {
+				n_open--;
+				notify();
+			}
+			throw new TMSException(e);
+		}
+	}
+
+	/** Take an idle connection, waiting if the pool is full.
+	 * @return Idle connection, or null if a new one should be opened.
+	 * @throws TMSException if no connection is available in time. */
+	private synchronized PooledConnection takeIdle() throws TMSException {
+		long end = System.currentTimeMillis() + MAX_WAIT_MS;
+		try {
+			while (idle.isEmpty() && n_open >= size) {
+				long t = end - System.currentTimeMillis();
+				if (t <= 0) {
+					SQL_LOG.log(name + " wait timed out");
+					throw new TMSException(name +
+						" connection wait timed out");
+				}
+				wait(t);
+			}
+		}
+		catch (InterruptedException e) {
+			throw new TMSException(e);
+		}
+		if (!idle.isEmpty())
+			return idle.removeLast();
+		n_open++;
+		return null;
+	}
+
+	/** Release a connection back to the pool */
+	private void release(PooledConnection pc) {
+		pc.depth--;
+		if (pc.depth > 0)
+			return;
+		held.remove();
+		pc.released = System.currentTimeMillis();
+		synchronized (this) {
+			idle.add(pc);
+			notify();
+		}
+	}
+
+	/** Get the lane name */
+	String getName() {
+		return name;
+	}
+
+	/** Get the number of open connections */
+	synchronized int getOpenCount() {
+		return n_open;
+	}
+
+	/** Get the histogram of wait times to acquire a connection (ms) */
+	Histogram getWaits() {
+		return waits;
+	}
+}
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2000-2021  Minnesota Department of Transportation
+ * Copyright (C) 2000-2026  Minnesota Department of Transportation
  * Copyright (C) 2008-2009  AHMCT, University of California
  * Copyright (C) 2012-2021  Iteris Inc.
  * Copyright (C) 2016-2020  SRF Consulting Group
@@ -531,6 +531,7 @@ public class DMSImpl extends DeviceImpl implements DMS, Comparable<DMSImpl> {
 	/** Reset sign state (and notify clients) */
 	public void resetStateNotify() {
 		msg_user = null;
+		action_msg = null;
 		setMsgSchedNotify(null);
 		setMsgCurrentNotify(null, "RESET");
 		setPixelStatusNotify(null);
@@ -961,12 +962,40 @@ public class DMSImpl extends DeviceImpl implements DMS, Comparable<DMSImpl> {
 		return msg_sched;
 	}
 
-	/** Set the scheduled DMS action message */
-	public void setActionMsg(DmsActionMsg amsg) {
+	/** DMS action message of scheduled message */
+	private transient DmsActionMsg action_msg;
+
+	/** Set the scheduled DMS action message.
+	 * @param amsg DMS action message (null for none).
+	 * @return true If scheduled message changed. */
+	public boolean setActionMsg(DmsActionMsg amsg) {
+		if (isActionMsgScheduled(amsg))
+			return false;
+		action_msg = amsg;
 		SignMessage sm = (amsg != null) ? createMsgSched(amsg) : null;
 		setPrices(amsg);
-		if (setMsgSchedNotify(sm))
+		if (setMsgSchedNotify(sm)) {
 			updateSchedMsg();
+			return true;
+		} else
+			return false;
+	}
+
+	/** Check if a static action message is already scheduled.  Its
+	 * MULTI string depends only on the action, so the scheduled message
+	 * can only change if other message settings have changed. */
+	private boolean isActionMsgScheduled(DmsActionMsg amsg) {
+		SignMessage sm = msg_sched;
+		if (null == amsg || amsg != action_msg || amsg.isDynamic() ||
+		    null == sm)
+			return false;
+		DmsAction da = amsg.action;
+		QuickMessage qm = da.getQuickMessage();
+		boolean pp = (qm != null) ? qm.getPrefixPage() : false;
+		return sm.getSignConfig() == sign_config
+		    && sm.getBeaconEnabled() == da.getBeaconEnabled()
+		    && sm.getPrefixPage() == pp
+		    && objectEquals(sm.getDuration(), getDuration(da));
 	}
 
 	/** Set the scheduled sign message */
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2000-2020  Minnesota Department of Transportation
+ * Copyright (C) 2000-2026  Minnesota Department of Transportation
  * Copyright (C) 2011  Berkeley Transportation Systems Inc.
  *
  * This program is free software; you can redistribute it and/or modify
@@ -214,7 +214,8 @@ public class DetectorImpl extends DeviceImpl implements Detector,VehicleSampler{
 
 	/** Load all the detectors */
 	static protected void loadAll() throws TMSException {
-		namespace.registerType(SONAR_TYPE, DetectorImpl.class);
+		namespace.registerType(SONAR_TYPE, DetectorImpl.class)
+			.addIndex("r_Node");
 		store.query("SELECT name, controller, pin, r_node, lane_type, "+
 			"lane_number, abandoned, force_fail, auto_fail, " +
 			"field_length, fake, notes FROM iris." + SONAR_TYPE +
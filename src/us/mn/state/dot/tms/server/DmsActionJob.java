@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2009-2019  Minnesota Department of Transportation
+ * Copyright (C) 2009-2026  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -28,12 +28,28 @@ import us.mn.state.dot.tms.DmsSignGroupHelper;
 import us.mn.state.dot.tms.SignGroup;
 
 /**
- * Job to perform DMS actions.
+ * Job to perform DMS actions.  Action messages which do not depend on data
+ * (travel times, tolling, parking, feeds, etc.) are reused from the previous
+ * cycle, as long as the action's MULTI string and priority are unchanged.
+ * When a plan phase or action changes, a different message is created, and
+ * the affected signs are updated.  Signs which are still scheduled with the
+ * same static message are skipped.  Messages which depend on data are
+ * created every cycle.
  *
  * @author Douglas Lau
  */
 public class DmsActionJob extends Job {
 
+	/** Cached static action messages, by action and DMS name.  This is
+	 * only accessed from the TIMER thread. */
+	static private HashMap<String, DmsActionMsg> cached =
+		new HashMap<String, DmsActionMsg>();
+
+	/** Get the cache key for an action on a DMS */
+	static private String cacheKey(DmsAction da, DMSImpl dms) {
+		return da.getName() + "/" + dms.getName();
+	}
+
 	/** Logger for debugging */
 	private final DebugLog logger;
 
@@ -41,6 +57,19 @@ public class DmsActionJob extends Job {
 	private final HashMap<DMSImpl, DmsActionMsg> dms_actions =
 		new HashMap<DMSImpl, DmsActionMsg>();
 
+	/** Static action messages created or reused in this cycle */
+	private final HashMap<String, DmsActionMsg> reusable =
+		new HashMap<String, DmsActionMsg>();
+
+	/** Count of action messages created */
+	private int n_created;
+
+	/** Count of action messages reused */
+	private int n_reused;
+
+	/** Count of signs with changed scheduled messages */
+	private int n_changed;
+
 	/** Create a new DMS action job */
 	public DmsActionJob(DebugLog dl) {
 		super(0);
@@ -56,6 +85,7 @@ public class DmsActionJob extends Job {
 	/** Perform DMS actions */
 	@Override
 	public void perform() {
+		long start = System.nanoTime();
 		Iterator<DmsAction> it = DmsActionHelper.iterator();
 		while (it.hasNext()) {
 			DmsAction da = it.next();
@@ -65,13 +95,20 @@ public class DmsActionJob extends Job {
 					performDmsAction(da);
 			}
 		}
+		cached = reusable;
 		updateDmsMessages();
+		if (logger.isOpen()) {
+			long us = (System.nanoTime() - start) / 1000;
+			logger.log("DMS actions: " + n_created + " created, " +
+				n_reused + " reused, " + n_changed +
+				" signs changed in " + us + " us");
+		}
 	}
 
 	/** Perform a DMS action */
 	private void performDmsAction(DmsAction da) {
 		SignGroup sg = da.getSignGroup();
-		Iterator<DmsSignGroup> it = DmsSignGroupHelper.iterator();
+		Iterator<DmsSignGroup> it = DmsSignGroupHelper.iterator(sg);
 		while (it.hasNext()) {
 			DmsSignGroup dsg = it.next();
 			if (dsg.getSignGroup() == sg) {
@@ -87,13 +124,30 @@ public class DmsActionJob extends Job {
 		if (logger.isOpen())
 			logSched(dms, "checking " + da);
 		if (shouldReplace(da, dms)) {
-			DmsActionMsg amsg = new DmsActionMsg(da, dms, logger);
+			DmsActionMsg amsg = lookupMsg(da, dms);
 			if (amsg.isValid())
 				dms_actions.put(dms, amsg);
 		} else if (logger.isOpen())
 			logSched(dms, "dropping " + da);
 	}
 
+	/** Lookup an action message, reusing a cached static message */
+	private DmsActionMsg lookupMsg(DmsAction da, DMSImpl dms) {
+		String key = cacheKey(da, dms);
+		DmsActionMsg amsg = reusable.get(key);
+		if (null == amsg)
+			amsg = cached.get(key);
+		if (amsg != null && amsg.isReusable(da, dms))
+			n_reused++;
+		else {
+			amsg = new DmsActionMsg(da, dms, logger);
+			n_created++;
+		}
+		if (amsg.isReusable(da, dms))
+			reusable.put(key, amsg);
+		return amsg;
+	}
+
 	/** Check if an action should replace the current DMS action */
 	private boolean shouldReplace(DmsAction da, DMSImpl dms) {
 		DmsActionMsg amsg = dms_actions.get(dms);
@@ -111,7 +165,8 @@ public class DmsActionJob extends Job {
 				DmsActionMsg amsg = dms_actions.get(dmsi);
 				if (logger.isOpen())
 					logSched(dms, "scheduling " + amsg);
-				dmsi.setActionMsg(amsg);
+				if (dmsi.setActionMsg(amsg))
+					n_changed++;
 			}
 		}
 	}
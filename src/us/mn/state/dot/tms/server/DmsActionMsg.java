@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2013-2021  Minnesota Department of Transportation
+ * Copyright (C) 2013-2026  Minnesota Department of Transportation
  * Copyright (C) 2021  Iteris Inc.
  *
  * This program is free software; you can redistribute it and/or modify
@@ -24,7 +24,6 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 import us.mn.state.dot.sched.DebugLog;
-import us.mn.state.dot.sched.Job;
 import us.mn.state.dot.sched.TimeSteward;
 import us.mn.state.dot.tms.ActionPlan;
 import us.mn.state.dot.tms.DmsAction;
@@ -41,10 +40,9 @@ import us.mn.state.dot.tms.Station;
 import us.mn.state.dot.tms.StationHelper;
 import us.mn.state.dot.tms.SystemAttrEnum;
 import us.mn.state.dot.tms.TimeActionHelper;
-import us.mn.state.dot.tms.TMSException;
 import us.mn.state.dot.tms.TollZone;
 import us.mn.state.dot.tms.TollZoneHelper;
-import static us.mn.state.dot.tms.server.MainServer.FLUSH;
+import us.mn.state.dot.tms.server.event.EventWriter;
 import us.mn.state.dot.tms.server.event.PriceMessageEvent;
 import us.mn.state.dot.tms.server.event.TravelTimeEvent;
 import us.mn.state.dot.tms.server.comm.clearguide.ClearGuidePoller;
@@ -104,12 +102,7 @@ public class DmsActionMsg {
 
 	/** Log an event */
 	static private void logEvent(EventType et, String d, String sid) {
-		final TravelTimeEvent ev = new TravelTimeEvent(et, d, sid);
-		FLUSH.addJob(new Job() {
-			public void perform() throws TMSException {
-				ev.doStore();
-			}
-		});
+		EventWriter.add(new TravelTimeEvent(et, d, sid));
 	}
 
 	/** Travel time data (for hashmap) */
@@ -150,6 +143,9 @@ public class DmsActionMsg {
 	/** Valid message flag */
 	private boolean valid;
 
+	/** Flag indicating message depends on data (not only the action) */
+	private boolean dynamic;
+
 	/** DMS message source flags */
 	private int src;
 
@@ -198,6 +194,14 @@ public class DmsActionMsg {
 		return valid && (multi != null);
 	}
 
+	/** Check if the message depends on data, such as travel times,
+	 * tolling prices, parking or feeds.  A message which is not dynamic
+	 * depends only on the action and can be reused while the action's
+	 * MULTI string and priority are unchanged. */
+	public boolean isDynamic() {
+		return dynamic;
+	}
+
 	/** Get the MULTI string */
 	public String getMulti() {
 		return (multi != null)
@@ -215,6 +219,12 @@ public class DmsActionMsg {
 		return EMPTY_SPAN;
 	}
 
+	/** Action MULTI string (before processing) */
+	private final String action_multi;
+
+	/** Action message priority */
+	private final int msg_priority;
+
 	/** Create a new DMS action message */
 	public DmsActionMsg(DmsAction da, DMSImpl d, DebugLog l) {
 		action = da;
@@ -222,13 +232,28 @@ public class DmsActionMsg {
 		loc = d.getGeoLoc();
 		dlog = l;
 		valid = true;
+		action_multi = getActionMulti();
+		msg_priority = da.getMsgPriority();
 		multi = processAction();
 		if (valid && dlog.isOpen()) {
 			dlog.log(toString() + " [ok]: " + multi +
-				" (" + getActionMulti() + ")");
+				" (" + action_multi + ")");
 		}
 	}
 
+	/** Check if a cached message can be reused for an action on a DMS.
+	 * @param da DMS action.
+	 * @param d DMS.
+	 * @return true if message is static and still matches the action. */
+	public boolean isReusable(DmsAction da, DMSImpl d) {
+		return isValid()
+		    && !dynamic
+		    && action == da
+		    && dms == d
+		    && msg_priority == da.getMsgPriority()
+		    && action_multi.equals(getActionMulti());
+	}
+
 	/** Get the MULTI string for the DMS action */
 	private String getActionMulti() {
 		QuickMessage qm = action.getQuickMessage();
@@ -237,7 +262,7 @@ public class DmsActionMsg {
 
 	/** Process a DMS action */
 	private String processAction() {
-		String ms = getActionMulti();
+		String ms = action_multi;
 		return (ms.length() > 0) ? process(ms) : null;
 	}
 
@@ -246,35 +271,43 @@ public class DmsActionMsg {
 		@Override public void addTravelTime(String sid,
 			OverLimitMode mode, String o_txt)
 		{
+			dynamic = true;
 			processTravelTime(sid, mode, o_txt);
 			// Add tag for processTravelTimes to replace
 			super.addTravelTime(sid, null, null);
 		}
 		@Override public void addSpeedAdvisory() {
+			dynamic = true;
 			addSpan(speedAdvisorySpan());
 		}
 		@Override public void addClearGuideAdvisory(
 			String dms, int rid, int tsp, String mode, int ridx)
 		{
+			dynamic = true;
 			addSpan(clearGuideSpan(dms, rid, tsp, mode, ridx));
 		}
 		@Override public void addSlowWarning(int spd, int dist,
 			String mode)
 		{
+			dynamic = true;
 			addSpan(slowWarningSpan(spd, dist, mode));
 		}
 		@Override public void addFeed(String fid) {
+			dynamic = true;
 			parseFeed(fid);
 		}
 		@Override public void addTolling(String mode, String[] zones) {
+			dynamic = true;
 			addSpan(tollingSpan(mode, zones));
 		}
 		@Override public void addParking(String pid, String l_txt,
 			String c_txt)
 		{
+			dynamic = true;
 			addSpan(parkingSpan(pid, l_txt, c_txt));
 		}
 		@Override public void addTimeAction(String dir, String format) {
+			dynamic = true;
 			addSpan(timeActionSpan(dir, format));
 		}
 	};
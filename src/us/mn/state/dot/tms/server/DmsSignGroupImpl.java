@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2008-2021  Minnesota Department of Transportation
+ * Copyright (C) 2008-2026  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -18,6 +18,7 @@ import java.sql.ResultSet;
 import java.util.HashMap;
 import java.util.Map;
 import us.mn.state.dot.sonar.server.ServerNamespace;
+import us.mn.state.dot.sonar.server.TypeNode;
 import us.mn.state.dot.tms.DmsSignGroup;
 import us.mn.state.dot.tms.DMS;
 import us.mn.state.dot.tms.SignGroup;
@@ -33,7 +34,10 @@ public class DmsSignGroupImpl extends BaseObjectImpl implements DmsSignGroup {
 
 	/** Load all the DMS sign groups */
 	static protected void loadAll() throws TMSException {
-		namespace.registerType(SONAR_TYPE, DmsSignGroupImpl.class);
+		TypeNode t = namespace.registerType(SONAR_TYPE,
+			DmsSignGroupImpl.class);
+		t.addIndex("dms");
+		t.addIndex("signGroup");
 		store.query("SELECT name, dms, sign_group" +
 			" FROM iris." + SONAR_TYPE + ";", new ResultFactory()
 		{
@@ -60,6 +60,7 @@ public class FlushSamplesJob extends Job {
 		long before = calculatePurgeStamp();
 		flushDetectorSamples(before);
 		flushWeatherSamples(before);
+		writer.force();
 	}
 
 	/** Flush detector sample data to disk */
@@ -0,0 +1,39 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2026  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import java.io.IOException;
+import java.util.Calendar;
+import us.mn.state.dot.sched.Job;
+
+/**
+ * Job to flush buffered vehicle events to disk.  The interval is the most
+ * time that vehicle events can remain in memory.
+ *
+ * @author Douglas Lau
+ */
+public class FlushVehicleEventsJob extends Job {
+
+	/** Create a new flush vehicle events job */
+	public FlushVehicleEventsJob() {
+		super(Calendar.SECOND, 10);
+	}
+
+	/** Perform the flush vehicle events job */
+	@Override
+	public void perform() throws IOException {
+		VehicleEventLog.flushAll();
+	}
+}
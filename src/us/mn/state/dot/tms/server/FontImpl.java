@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2000-2018  Minnesota Department of Transportation
+ * Copyright (C) 2000-2026  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -21,6 +21,7 @@ import java.util.Map;
 import us.mn.state.dot.tms.ChangeVetoException;
 import us.mn.state.dot.tms.Font;
 import us.mn.state.dot.tms.FontHelper;
+import us.mn.state.dot.tms.GlyphHelper;
 import us.mn.state.dot.tms.TMSException;
 
 /**
@@ -34,7 +35,8 @@ public class FontImpl extends BaseObjectImpl implements Font {
 
 	/** Load all the fonts */
 	static protected void loadAll() throws TMSException {
-		namespace.registerType(SONAR_TYPE, FontImpl.class);
+		namespace.registerType(SONAR_TYPE, FontImpl.class)
+			.addIndex("number");
 		store.query("SELECT name, f_number, height, width, " +
 			"line_spacing, char_spacing, version_id FROM " +
 			"iris." + SONAR_TYPE + ";", new ResultFactory()
@@ -85,6 +87,19 @@ public class FontImpl extends BaseObjectImpl implements Font {
 		f_number = FontHelper.findUnusedFontNumber();
 	}
 
+	/** Initialize the transient state */
+	@Override
+	protected void initTransients() {
+		GlyphHelper.invalidate(this);
+	}
+
+	/** Destroy an object */
+	@Override
+	public void doDestroy() throws TMSException {
+		super.doDestroy();
+		GlyphHelper.invalidate(this);
+	}
+
 	/** Create a new font */
 	private FontImpl(String n, int num, int h, int w, int ls, int cs,
 		int v)
@@ -105,6 +120,7 @@ public class FontImpl extends BaseObjectImpl implements Font {
 	@Override
 	public void setNumber(int n) {
 		f_number = n;
+		GlyphHelper.invalidate(this);
 	}
 
 	/** Set the font number */
@@ -128,6 +144,7 @@ public class FontImpl extends BaseObjectImpl implements Font {
 	@Override
 	public void setHeight(int h) {
 		height = h;
+		GlyphHelper.invalidate(this);
 	}
 
 	/** Set the font height (pixels) */
@@ -151,6 +168,7 @@ public class FontImpl extends BaseObjectImpl implements Font {
 	@Override
 	public void setWidth(int w) {
 		width = w;
+		GlyphHelper.invalidate(this);
 	}
 
 	/** Set the font width (pixels) */
@@ -174,6 +192,7 @@ public class FontImpl extends BaseObjectImpl implements Font {
 	@Override
 	public void setCharSpacing(int s) {
 		charSpacing = s;
+		GlyphHelper.invalidate(this);
 	}
 
 	/** Set the default horizontal spacing between characters (pixels) */
@@ -197,6 +216,7 @@ public class FontImpl extends BaseObjectImpl implements Font {
 	@Override
 	public void setLineSpacing(int s) {
 		lineSpacing = s;
+		GlyphHelper.invalidate(this);
 	}
 
 	/** Set the default vertical spacing between lines (pixels) */
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2007-2018  Minnesota Department of Transportation
+ * Copyright (C) 2007-2026  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -23,6 +23,7 @@ import us.mn.state.dot.tms.ChangeVetoException;
 import us.mn.state.dot.tms.Font;
 import us.mn.state.dot.tms.FontHelper;
 import us.mn.state.dot.tms.Glyph;
+import us.mn.state.dot.tms.GlyphHelper;
 import us.mn.state.dot.tms.TMSException;
 import us.mn.state.dot.tms.utils.Base64;
 
@@ -43,6 +44,7 @@ public class GlyphImpl extends BaseObjectImpl implements Glyph {
 				namespace.addObject(new GlyphImpl(row));
 			}
 		});
+		GlyphHelper.invalidateAll();
 	}
 
 	/** Get a mapping of the columns */
@@ -93,6 +95,19 @@ public class GlyphImpl extends BaseObjectImpl implements Glyph {
 		super(n);
 	}
 
+	/** Initialize the transient state */
+	@Override
+	protected void initTransients() {
+		GlyphHelper.invalidate(font);
+	}
+
+	/** Destroy an object */
+	@Override
+	public void doDestroy() throws TMSException {
+		super.doDestroy();
+		GlyphHelper.invalidate(font);
+	}
+
 	/** Font to which the glyph belongs */
 	private Font font;
 
@@ -118,6 +133,7 @@ public class GlyphImpl extends BaseObjectImpl implements Glyph {
 	@Override
 	public void setWidth(int w) {
 		width = w;
+		GlyphHelper.invalidate(font);
 	}
 
 	/** Set the width (pixels) */
@@ -141,6 +157,7 @@ public class GlyphImpl extends BaseObjectImpl implements Glyph {
 	@Override
 	public void setPixels(String p) {
 		pixels = p;
+		GlyphHelper.invalidate(font);
 	}
 
 	/** Set the pixel data (base64 encoded) */
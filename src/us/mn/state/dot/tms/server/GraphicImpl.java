@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2007-2018  Minnesota Department of Transportation
+ * Copyright (C) 2007-2026  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -22,6 +22,7 @@ import java.util.Map;
 import us.mn.state.dot.tms.ColorScheme;
 import us.mn.state.dot.tms.ChangeVetoException;
 import us.mn.state.dot.tms.Graphic;
+import us.mn.state.dot.tms.RasterCache;
 import us.mn.state.dot.tms.TMSException;
 
 /**
@@ -42,6 +43,7 @@ public class GraphicImpl extends BaseObjectImpl implements Graphic {
 				namespace.addObject(new GraphicImpl(row));
 			}
 		});
+		RasterCache.invalidateAll();
 	}
 
 	/** Get a mapping of the columns */
@@ -81,6 +83,19 @@ public class GraphicImpl extends BaseObjectImpl implements Graphic {
 		pixels = "";
 	}
 
+	/** Initialize the transient state */
+	@Override
+	protected void initTransients() {
+		RasterCache.invalidateAll();
+	}
+
+	/** Destroy an object */
+	@Override
+	public void doDestroy() throws TMSException {
+		super.doDestroy();
+		RasterCache.invalidateAll();
+	}
+
 	/** Create a graphic from database lookup */
 	private GraphicImpl(ResultSet row) throws SQLException {
 		this(row.getString(1),          // name
@@ -113,6 +128,7 @@ public class GraphicImpl extends BaseObjectImpl implements Graphic {
 	@Override
 	public void setGNumber(int g) {
 		g_number = g;
+		RasterCache.invalidateAll();
 	}
 
 	/** Set the graphic number */
@@ -165,6 +181,7 @@ public class GraphicImpl extends BaseObjectImpl implements Graphic {
 	@Override
 	public void setTransparentColor(Integer tc) {
 		transparent_color = tc;
+		RasterCache.invalidateAll();
 	}
 
 	/** Set the transparent color */
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2000-2020  Minnesota Department of Transportation
+ * Copyright (C) 2000-2026  Minnesota Department of Transportation
  * Copyright (C) 2017  Iteris Inc.
  *
  * This program is free software; you can redistribute it and/or modify
@@ -33,6 +33,7 @@ import us.mn.state.dot.tms.Station;
 import us.mn.state.dot.tms.SystemAttrEnum;
 import us.mn.state.dot.tms.TMSException;
 import us.mn.state.dot.tms.server.event.BaseEvent;
+import us.mn.state.dot.tms.server.event.EventWriter;
 import us.mn.state.dot.tms.server.comm.cux50.CUx50;
 import us.mn.state.dot.tms.server.comm.cux50.PrServer;
 import us.mn.state.dot.tms.utils.HttpProxySelector;
@@ -64,7 +65,8 @@ public class MainServer {
 	static public final Scheduler TIMER = new Scheduler("timer");
 
 	/** Flush thread for disk writing jobs */
-	static public final Scheduler FLUSH = new Scheduler("flush");
+	static public final Scheduler FLUSH = new Scheduler("flush", null,
+		true);
 
 	/** Sample archive factory */
 	static public final SampleArchiveFactoryImpl a_factory =
@@ -96,6 +98,7 @@ public class MainServer {
 			initProxySelector(props);
 			store = createStore(props);
 			BaseEvent.store = store;
+			addShutdownHook();
 			I18N.initialize(props);
 			WhitelistNamespace ns = createNamespace(props);
 			IrisCapabilityImpl.lookup(store, ns);
@@ -105,9 +108,9 @@ public class MainServer {
 			IrisUserImpl.lookup(store, ns);
 			BaseObjectImpl.loadAll(store, ns);
 			scheduleTimerJobs();
-			scheduleFlushJobs();
+			scheduleFlushJobs(props);
 			startProtocolServer();
-			server = new Server(ns, props, new AccessLogger(FLUSH));
+			server = new Server(ns, props, new AccessLogger());
 			auth_provider = new IrisProvider();
 			server.addProvider(auth_provider);
 			System.err.println("IRIS Server active");
@@ -165,6 +168,16 @@ public class MainServer {
 			(assertsEnabled ? "on" : "off") + ".");
 	}
 
+	/** Add a shutdown hook to flush queued events */
+	static private void addShutdownHook() {
+		Runtime.getRuntime().addShutdownHook(new Thread("shutdown") {
+			@Override
+			public void run() {
+				EventWriter.flush();
+			}
+		});
+	}
+
 	/** Initialize the proxy selector */
 	static private void initProxySelector(Properties props) {
 		HttpProxySelector ps = new HttpProxySelector(props);
@@ -209,9 +222,11 @@ public class MainServer {
 	}
 
 	/** Schedule jobs on FLUSH thread */
-	static private void scheduleFlushJobs() {
+	static private void scheduleFlushJobs(Properties props) {
 		FLUSH.addJob(new FlushSamplesJob(a_factory));
-		FLUSH.addJob(new ArchiveSamplesJob(a_factory));
+		FLUSH.addJob(new FlushVehicleEventsJob());
+		FLUSH.addJob(new ArchiveSamplesJob(a_factory,
+			props.getProperty("sample.archive.format", "zip")));
 		FLUSH.addJob(new ProfilingJob());
 		FLUSH.addJob(new XmlConfigJob());
 		FLUSH.addJob(new XmlConfigJob(1000));
@@ -219,6 +234,7 @@ public class MainServer {
 		FLUSH.addJob(new IncidentXmlJob());
 		FLUSH.addJob(new WeatherSensorXmlJob());
 		FLUSH.addJob(new EventPurgeJob());
+		FLUSH.addJob(new SchedStatsJob(store));
 	}
 
 	/** Start the protocol server */
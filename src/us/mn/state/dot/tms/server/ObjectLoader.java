@@ -0,0 +1,178 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2026  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import us.mn.state.dot.tms.TMSException;
+
+/**
+ * Object loader loads object types from the database, following a graph of
+ * dependencies between types.  Each type is loaded as soon as all of its
+ * dependencies are loaded, so independent types are loaded concurrently.
+ *
+ * @author Douglas Lau
+ */
+final class ObjectLoader {
+
+	/** Loader for one type (or other step) */
+	interface Loader {
+		void load() throws TMSException;
+	}
+
+	/** Node in the dependency graph */
+	static private final class Node {
+		private final String name;
+		private final Loader loader;
+		private final ArrayList<Node> dependents =
+			new ArrayList<Node>();
+		private int n_deps;
+		private long start;
+		private long elapsed;
+		private Node(String n, Loader l) {
+			name = n;
+			loader = l;
+		}
+	}
+
+	/** All nodes, in the order they were added */
+	private final LinkedHashMap<String, Node> nodes =
+		new LinkedHashMap<String, Node>();
+
+	/** Number of nodes not yet loaded */
+	private int n_remaining;
+
+	/** First exception thrown by a loader */
+	private TMSException error;
+
+	/** Time loading started */
+	private long start;
+
+	/** Add a step to the graph.  All dependencies must be added first,
+	 * which ensures the graph has no cycles.
+	 * @param name Name of step.
+	 * @param l Loader to perform step.
+	 * @param deps Names of steps which must be done first. */
+	void add(String name, Loader l, String... deps) {
+		Node n = new Node(name, l);
+		for (String d: deps) {
+			Node dn = nodes.get(d);
+			if (null == dn) {
+				throw new IllegalArgumentException(
+					"Unknown dependency: " + d);
+			}
+			dn.dependents.add(n);
+			n.n_deps++;
+		}
+		if (nodes.put(name, n) != null) {
+			throw new IllegalArgumentException("Duplicate: " +
+				name);
+		}
+	}
+
+	/** Load all steps.
+	 * @param n_threads Number of concurrent loading threads. */
+	void load(int n_threads) throws TMSException {
+		ExecutorService ex = Executors.newFixedThreadPool(n_threads);
+		try {
+			synchronized (this) {
+				start = System.currentTimeMillis();
+				n_remaining = nodes.size();
+				for (Node n: nodes.values()) {
+					if (n.n_deps == 0)
+						submit(ex, n);
+				}
+				while (n_remaining > 0 && error == null)
+					wait();
+			}
+		}
+		catch (InterruptedException e) {
+			throw new TMSException(e);
+		}
+		finally {
+			ex.shutdown();
+		}
+		if (error != null)
+			throw error;
+	}
+
+	/** Submit a node to be loaded */
+	private void submit(final ExecutorService ex, final Node n) {
+		ex.execute(new Runnable() {
+			public void run() {
+				loadNode(ex, n);
+			}
+		});
+	}
+
+	/** Load one node and submit any dependents which become ready */
+	private void loadNode(ExecutorService ex, Node n) {
+		long st = System.currentTimeMillis();
+		TMSException err = null;
+		try {
+			n.loader.load();
+		}
+		catch (TMSException e) {
+			err = e;
+		}
+		catch (Throwable e) {
+			// Report errors too, so that load does not wait forever
+			err = new TMSException(e);
+		}
+		long el = System.currentTimeMillis() - st;
+		synchronized (this) {
+			try {
+				n.start = st - start;
+				n.elapsed = el;
+				if (err != null) {
+					if (null == error)
+						error = err;
+				} else if (null == error)
+					submitDependents(ex, n);
+			}
+			catch (RuntimeException e) {
+				if (null == error)
+					error = new TMSException(e);
+			}
+			finally {
+				n_remaining--;
+				notify();
+			}
+		}
+	}
+
+	/** Submit dependents of a node which become ready */
+	private void submitDependents(ExecutorService ex, Node n) {
+		for (Node d: n.dependents) {
+			d.n_deps--;
+			if (d.n_deps == 0)
+				submit(ex, d);
+		}
+	}
+
+	/** Print a timing report of all steps */
+	synchronized void printReport() {
+		long total = 0;
+		for (Node n: nodes.values()) {
+			total = Math.max(total, n.start + n.elapsed);
+			System.err.println("Loaded " + n.name + " at " +
+				n.start + " ms in " + n.elapsed + " ms");
+		}
+		System.err.println("Loaded " + nodes.size() + " steps in " +
+			total + " ms");
+	}
+}
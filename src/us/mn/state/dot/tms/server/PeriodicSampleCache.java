@@ -14,16 +14,20 @@
  */
 package us.mn.state.dot.tms.server;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
-import java.util.concurrent.ConcurrentSkipListSet;
 import us.mn.state.dot.sched.DebugLog;
 import us.mn.state.dot.sched.TimeSteward;
 import us.mn.state.dot.tms.units.Interval;
 import static us.mn.state.dot.tms.server.Constants.MISSING_DATA;
 
 /**
- * A cache for periodic sample data.  
+ * A cache for periodic sample data.  Samples are stored in a ring buffer of
+ * primitive values, with one slot for each sampling period.  Slots with no
+ * sample contain MISSING_DATA.
  *
  * @author Douglas Lau
  */
@@ -32,6 +36,9 @@ public class PeriodicSampleCache {
 	/** Sample cache debug log */
 	static private final DebugLog SAMPLE_LOG = new DebugLog("samples");
 
+	/** Initial ring buffer capacity (slots) */
+	static private final int INITIAL_CAPACITY = 32;
+
 	/** Threshold for minimum valid stamp */
 	static private final long SAMPLE_MIN_MS = new Interval(2,
 		Interval.Units.DAYS).ms();
@@ -130,10 +137,29 @@ public class PeriodicSampleCache {
 	/** Sample type */
 	public final PeriodicSampleType sample_type;
 
-	/** Collection of periodic samples.  Every sample is guaranteed to
-	 * have the same sampling period. */
-	private final ConcurrentSkipListSet<PeriodicSample> samples =
-		new ConcurrentSkipListSet<PeriodicSample>();
+	/** Sampling period (seconds), or 0 if empty.  Every sample is
+	 * guaranteed to have the same sampling period. */
+	private int period = 0;
+
+	/** Time stamp at start of the head slot */
+	private long base = 0;
+
+	/** Ring buffer of sample values.  Slots outside of the occupied span
+	 * always contain MISSING_DATA. */
+	private int[] values = newValues(INITIAL_CAPACITY);
+
+	/** Index of head slot */
+	private int head = 0;
+
+	/** Number of slots from head to the last sample */
+	private int count = 0;
+
+	/** Create a new array of missing values */
+	static private int[] newValues(int n) {
+		int[] vals = new int[n];
+		Arrays.fill(vals, MISSING_DATA);
+		return vals;
+	}
 
 	/** Create a new periodic sample cache.
 	 * @param tp Sample type. */
@@ -145,13 +171,13 @@ public class PeriodicSampleCache {
 	 * If the sampling period is incompatable with existing samples, the
 	 * cache is cleared first.
 	 * @param ps Sample to add to the cache. */
-	public void add(PeriodicSample ps, String name) {
+	public synchronized void add(PeriodicSample ps, String name) {
 		if (checkStamp(ps.stamp)) {
 			if (sample_type.isValid(ps)) {
 				if (!isPeriodOk(ps.period))
-					samples.clear();
+					clear();
 				if (isPeriodSame(ps.period))
-					addSample(ps);
+					addSample(ps.start(), ps.period, ps.value);
 				else
 					interpolate(ps);
 			}
@@ -164,40 +190,92 @@ public class PeriodicSampleCache {
 	}
 
 	/** Check if a period is OK to be cached.
-	 * @param period Period to check (seconds).
+	 * @param p Period to check (seconds).
 	 * @return true if period is OK to be cached. */
-	private boolean isPeriodOk(int period) {
-		return period % getPeriod(period) == 0;
+	private boolean isPeriodOk(int p) {
+		return p % getPeriod(p) == 0;
 	}
 
 	/** Is a sample period the same as for the cache? */
-	private boolean isPeriodSame(int period) {
-		return period == getPeriod(period);
+	private boolean isPeriodSame(int p) {
+		return p == getPeriod(p);
 	}
 
 	/** Get the sample period.
-	 * @param period Default sample period.
+	 * @param p Default sample period.
 	 * @return Sample period (seconds). */
-	private int getPeriod(int period) {
-		return samples.isEmpty()
-		      ? period
-		      : samples.first().period;
+	private int getPeriod(int p) {
+		return (count > 0) ? period : p;
 	}
 
-	/** Add a sample */
-	private void addSample(PeriodicSample ps) {
-		assert ps.period == getPeriod(ps.period) : "Invalid period";
-		assert !exists(ps.start()) : "Duplicate start time";
-		samples.add(ps);
+	/** Get the sample period in milliseconds */
+	private long periodMillis() {
+		return period * 1000L;
 	}
 
-	/** Check if a sample exists with the given time stamp (start) */
-	private boolean exists(long stamp) {
-		for (PeriodicSample ps: samples) {
-			if (ps.start() == stamp)
-				return true;
+	/** Remove all samples */
+	private void clear() {
+		if (values.length > INITIAL_CAPACITY)
+			values = newValues(INITIAL_CAPACITY);
+		else
+			Arrays.fill(values, MISSING_DATA);
+		head = 0;
+		count = 0;
+		period = 0;
+	}
+
+	/** Get the ring index of a slot */
+	private int ringIndex(int slot) {
+		return (head + slot) % values.length;
+	}
+
+	/** Get the slot number of the first slot starting at or after a
+	 * time stamp.  This can be negative or beyond count. */
+	private long slotCeil(long stamp) {
+		return -Math.floorDiv(base - stamp, periodMillis());
+	}
+
+	/** Add a sample.  A duplicate sample is ignored.
+	 * @param start Time stamp at start of sample.
+	 * @param p Sampling period (seconds).
+	 * @param value Sample value. */
+	private void addSample(long start, int p, int value) {
+		if (0 == count) {
+			period = p;
+			base = start;
+			head = 0;
+		}
+		assert p == period : "Invalid period";
+		long slot = Math.floorDiv(start - base, periodMillis());
+		if (slot < 0) {
+			int n = (int) -slot;
+			ensureCapacity(count + n);
+			head = (head - n + values.length) % values.length;
+			base = start;
+			count += n;
+			slot = 0;
+		} else if (slot >= count) {
+			ensureCapacity((int) slot + 1);
+			count = (int) slot + 1;
 		}
-		return false;
+		int i = ringIndex((int) slot);
+		if (values[i] == MISSING_DATA)
+			values[i] = value;
+	}
+
+	/** Ensure the ring buffer can hold a number of slots */
+	private void ensureCapacity(int n) {
+		if (n > values.length)
+			resize(Math.max(n, values.length * 2));
+	}
+
+	/** Resize the ring buffer, moving the head slot to index 0 */
+	private void resize(int cap) {
+		int[] vals = newValues(cap);
+		for (int s = 0; s < count; s++)
+			vals[s] = values[ringIndex(s)];
+		values = vals;
+		head = 0;
 	}
 
 	/** Interpolate sample data from a sample with a larger period.
@@ -205,18 +283,15 @@ public class PeriodicSampleCache {
 	 * @param ps Periodic sample (with a larger period). */
 	private void interpolate(PeriodicSample ps) {
 		long start = ps.start();
-		int period = getPeriod(ps.period);
 		int n_samples = ps.period / period;
 		assert n_samples > 1;
-		int[] values = getValues(start, ps.end(), n_samples, period);
+		int[] vals = getValues(start, n_samples);
 		switch (sample_type.aggregation) {
 		case SUM:
-			addSamples(start, period, interpolateSum(values,
-				ps.value));
+			addSamples(start, interpolateSum(vals, ps.value));
 			return;
 		case AVERAGE:
-			addSamples(start, period, interpolateAverage(values,
-				ps.value));
+			addSamples(start, interpolateAverage(vals, ps.value));
 			return;
 		default:
 			return;
@@ -225,29 +300,21 @@ public class PeriodicSampleCache {
 
 	/** Get an array of sample values from the cache.
 	 * @param start Time stamp at start of samples.
-	 * @param end Time stamp at end of samples.
 	 * @param n_samples Number of sample values.
-	 * @param period Period used for samples.
 	 * @return Array of samples values. */
-	private int[] getValues(long start, long end, int n_samples,
-		int period)
-	{
-		int period_ms = period * 1000;
-		int[] values = new int[n_samples];
-		for (int i = 0; i < values.length; i++)
-			values[i] = MISSING_DATA;
-		for (PeriodicSample ps: samples) {
-			long stamp = ps.start();
-			if (stamp >= start && stamp < end) {
-				int i = (int) ((stamp - start) / period_ms);
-				values[i] = ps.value;
-			}
+	private int[] getValues(long start, int n_samples) {
+		int[] vals = newValues(n_samples);
+		long first = slotCeil(start);
+		for (int i = 0; i < n_samples; i++) {
+			long s = first + i;
+			if (s >= 0 && s < count)
+				vals[i] = values[ringIndex((int) s)];
 		}
-		return values;
+		return vals;
 	}
 
 	/** Get aggregate of sampled values in a time interval */
-	public int getValue(long start, long end) {
+	public synchronized int getValue(long start, long end) {
 		switch (sample_type.aggregation) {
 		case SUM:
 			return getSum(start, end);
@@ -260,24 +327,21 @@ public class PeriodicSampleCache {
 
 	/** Get sum of sampled values in a time interval */
 	private int getSum(long start, long end) {
-		int period = 0;
 		int total = 0;
 		int n_samples = 0;
-		for (PeriodicSample ps: samples) {
-			if (0 == period)
-				period = ps.period;
-			else if (period != ps.period)
-				break;
-			if (ps.value >= 0) {
-				long stamp = ps.start();
-				if (stamp >= start && stamp < end) {
-					total += ps.value;
+		if (count > 0) {
+			long first = Math.max(slotCeil(start), 0);
+			long last = Math.min(slotCeil(end), count);
+			for (long s = first; s < last; s++) {
+				int v = values[ringIndex((int) s)];
+				if (v >= 0) {
+					total += v;
 					n_samples++;
 				}
 			}
 		}
-		long sam_ms = n_samples * period * 1000; // sampled period
-		long full_ms = end - start;              // full period
+		long sam_ms = n_samples * periodMillis(); // sampled period
+		long full_ms = end - start;               // full period
 		if (sam_ms == full_ms)
 			return total;
 		else if (2 * sam_ms >= full_ms) {  // at least half sampled
@@ -291,11 +355,13 @@ public class PeriodicSampleCache {
 	private int getAverage(long start, long end) {
 		int total = 0;
 		int n_samples = 0;
-		for (PeriodicSample ps: samples) {
-			if (ps.value >= 0) {
-				long stamp = ps.start();
-				if (stamp >= start && stamp < end) {
-					total += ps.value;
+		if (count > 0) {
+			long first = Math.max(slotCeil(start), 0);
+			long last = Math.min(slotCeil(end), count);
+			for (long s = first; s < last; s++) {
+				int v = values[ringIndex((int) s)];
+				if (v >= 0) {
+					total += v;
 					n_samples++;
 				}
 			}
@@ -307,34 +373,63 @@ public class PeriodicSampleCache {
 
 	/** Add an array of samples.
 	 * @param start Start time of sample array.
-	 * @param period Sampling period (seconds).
 	 * @param vals Array of sample values to add. */
-	private void addSamples(long start, int period, int[] vals) {
-		int period_ms = period * 1000;
+	private void addSamples(long start, int[] vals) {
+		long period_ms = periodMillis();
 		for (int i = 0; i < vals.length; i++) {
-			if (vals[i] >= 0) {
-				long stamp = start + period_ms * (i + 1);
-				addSample(new PeriodicSample(stamp, period,
-					vals[i]));
-			}
+			if (vals[i] >= 0)
+				addSample(start + period_ms * i, period, vals[i]);
 		}
 	}
 
-	/** Get a sample iterator. */
-	public Iterator<PeriodicSample> iterator() {
+	/** Get a sample iterator.  This iterates over a snapshot of the
+	 * samples in the cache, sorted by time stamp. */
+	public synchronized Iterator<PeriodicSample> iterator() {
+		if (0 == count)
+			return Collections.<PeriodicSample>emptyList().iterator();
+		ArrayList<PeriodicSample> samples =
+			new ArrayList<PeriodicSample>(count);
+		long period_ms = periodMillis();
+		for (int s = 0; s < count; s++) {
+			int v = values[ringIndex(s)];
+			if (v != MISSING_DATA) {
+				long stamp = base + period_ms * (s + 1);
+				samples.add(new PeriodicSample(stamp, period, v));
+			}
+		}
 		return samples.iterator();
 	}
 
 	/** Purge all samples before a specified time stamp.
 	 * @param before Time stamp to purge before. */
-	public void purge(long before) {
-		Iterator<PeriodicSample> it = iterator();
-		while (it.hasNext()) {
-			PeriodicSample ps = it.next();
-			if (ps.end() < before)
-				it.remove();
-			else
-				break;
+	public synchronized void purge(long before) {
+		if (0 == count)
+			return;
+		long period_ms = periodMillis();
+		// A slot is purged if its end is before the time stamp
+		long n = Math.min(Math.floorDiv(before - base - 1, period_ms),
+			count);
+		for (int s = 0; s < n; s++)
+			values[ringIndex(s)] = MISSING_DATA;
+		if (n > 0) {
+			head = ringIndex((int) n);
+			base += period_ms * n;
+			count -= n;
+		}
+		trimHead();
+		if (0 == count)
+			clear();
+		else if (values.length > INITIAL_CAPACITY &&
+		         values.length > count * 4)
+			resize(Math.max(INITIAL_CAPACITY, count * 2));
+	}
+
+	/** Trim missing slots from the head */
+	private void trimHead() {
+		while (count > 0 && values[head] == MISSING_DATA) {
+			head = ringIndex(1);
+			base += periodMillis();
+			count--;
 		}
 	}
 }
@@ -71,6 +71,25 @@ public enum PeriodicSampleType {
 		aggregation = a;
 	}
 
+	/** Lookup the sample type of a sample file name, such as "123.c30".
+	 * @param name Sample file name.
+	 * @return Sample type, or null if not a periodic sample file. */
+	static public PeriodicSampleType fromFileName(String name) {
+		String ext = name.substring(name.lastIndexOf('.') + 1);
+		int e = ext.length();
+		while (e > 0 && Character.isDigit(ext.charAt(e - 1)))
+			e--;
+		// Periodic sample extensions end with the period
+		if (e == ext.length())
+			return null;
+		String base = ext.substring(0, e);
+		for (PeriodicSampleType t: values()) {
+			if (t.extension.equals(base))
+				return t;
+		}
+		return null;
+	}
+
 	/** Put a sample value into a buffer.
 	 * @param buffer Byte buffer.
 	 * @param value Sample value. */
@@ -14,11 +14,18 @@
  */
 package us.mn.state.dot.tms.server;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileReader;
 import java.io.RandomAccessFile;
 import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import us.mn.state.dot.sched.DebugLog;
 import us.mn.state.dot.sched.TimeSteward;
@@ -35,6 +42,17 @@ import static us.mn.state.dot.tms.server.Constants.MISSING_DATA;
  * Each file contains one day of sample data.  For example, a vehicle count file
  * with a 30-second period would have 2880 bytes.
  *
+ * Files are memory-mapped at full day size (padded with MISSING_DATA), and
+ * samples are written in place.  Files remain mapped while they are being
+ * written, and are unmapped after a flush interval in which they are not.
+ * The number of files kept mapped is limited to half of vm.max_map_count.
+ * When that limit is reached, other files are mapped only while they are
+ * being flushed.  Since files are flushed in the same order every interval,
+ * evicting the least recently used file would cause every lookup to miss.
+ *
+ * Mapped files are registered, so that ArchiveSamplesJob does not delete a
+ * file while it is mapped; samples written to it would be lost.
+ *
  * @author Douglas Lau
  */
 public class PeriodicSampleWriter {
@@ -42,29 +60,143 @@ public class PeriodicSampleWriter {
 	/** Flush debug log */
 	static private final DebugLog FLUSH_LOG = new DebugLog("flush");
 
-	/** Minimum sample period (seconds) */
-	static private final Interval MIN_PERIOD = new Interval(5);
+	/** Operating system limit on memory mappings */
+	static private final String MAX_MAP_COUNT =
+		"/proc/sys/vm/max_map_count";
+
+	/** Default limit on memory mappings (Linux) */
+	static private final int DEFAULT_MAP_COUNT = 65530;
+
+	/** Maximum number of files kept mapped.  This leaves half of the
+	 * operating system limit for the JVM and native libraries. */
+	static private final int MAX_MAPPED = readMaxMapCount() / 2;
+
+	/** Read the operating system limit on memory mappings */
+	static private int readMaxMapCount() {
+		try {
+			BufferedReader r = new BufferedReader(new FileReader(
+				MAX_MAP_COUNT));
+			try {
+				return Integer.parseInt(r.readLine().trim());
+			}
+			finally {
+				r.close();
+			}
+		}
+		catch (IOException | RuntimeException e) {
+			return DEFAULT_MAP_COUNT;
+		}
+	}
+
+	/** Unsafe instance for unmapping buffers (Java 9+) */
+	static private Object unsafe;
+
+	/** Unsafe.invokeCleaner method (Java 9+) */
+	static private Method invoke_cleaner;
+
+	/** Lookup the Unsafe.invokeCleaner method, if available */
+	static {
+		try {
+			Class<?> c = Class.forName("sun.misc.Unsafe");
+			Method m = c.getMethod("invokeCleaner",
+				ByteBuffer.class);
+			Field f = c.getDeclaredField("theUnsafe");
+			f.setAccessible(true);
+			unsafe = f.get(null);
+			invoke_cleaner = m;
+		}
+		catch (Exception e) {
+			// Not available before Java 9
+		}
+	}
+
+	/** Unmap a buffer.  A mapped buffer is otherwise unmapped only when
+	 * it is garbage collected, which could be long after it is removed.
+	 * The buffer must not be accessed after it is unmapped. */
+	static private void unmap(MappedByteBuffer buf) {
+		try {
+			if (invoke_cleaner != null)
+				invoke_cleaner.invoke(unsafe, buf);
+			else {
+				// Java 8: DirectBuffer.cleaner().clean()
+				Method cm = buf.getClass().getMethod("cleaner");
+				cm.setAccessible(true);
+				Object cl = cm.invoke(buf);
+				if (cl != null) {
+					Method m = cl.getClass().getMethod(
+						"clean");
+					m.invoke(cl);
+				}
+			}
+		}
+		catch (Exception e) {
+			if (FLUSH_LOG.isOpen())
+				FLUSH_LOG.log("unmap failed: " + e);
+		}
+	}
 
 	/** Get the number of samples per day */
 	static private int samplesPerDay(Interval period) {
 		return (int) period.per(Interval.DAY);
 	}
 
+	/** Memory-mapped sample file */
+	static private final class MappedFile {
+		private final File file;
+		private final MappedByteBuffer buffer;
+		private final boolean kept;
+		private boolean dirty = false;
+		private boolean used = true;
+		private MappedFile(File f, MappedByteBuffer b, boolean k) {
+			file = f;
+			buffer = b;
+			kept = k;
+		}
+	}
+
+	/** Files currently mapped by any writer */
+	static private final HashSet<File> LIVE = new HashSet<File>();
+
+	/** Register a file as mapped.  This must happen before the file is
+	 * opened, so that it cannot be deleted after being opened. */
+	static private void registerLive(File f) {
+		synchronized (LIVE) {
+			LIVE.add(f);
+		}
+	}
+
+	/** Unregister a mapped file, after it is unmapped */
+	static private void unregisterLive(File f) {
+		synchronized (LIVE) {
+			LIVE.remove(f);
+		}
+	}
+
+	/** Delete a sample file, unless it is mapped by a writer.
+	 * @param f Sample file.
+	 * @return true if the file was deleted. */
+	static boolean deleteUnmapped(File f) throws IOException {
+		File cf = f.getCanonicalFile();
+		synchronized (LIVE) {
+			return !LIVE.contains(cf) && cf.delete();
+		}
+	}
+
 	/** Sample archive factory */
 	private final SampleArchiveFactory factory;
 
-	/** Byte buffer for flushing samples to file */
-	private final ByteBuffer buffer = ByteBuffer.allocate(
-		samplesPerDay(MIN_PERIOD) * PeriodicSampleType.MAX_BYTES);
+	/** Files kept mapped between flushes */
+	private final HashMap<File, MappedFile> mapped =
+		new HashMap<File, MappedFile>(1024);
 
-	/** Sample period for current cache */
-	private transient Interval period;
+	/** Count of files mapped only while flushing, since last force */
+	private int n_transient;
 
 	/** Current file */
 	private transient File file;
 
-	/** Current file channel */
-	private transient FileChannel channel;
+	/** Current mapped file */
+	private transient MappedFile m_file;
 
 	/** Create a new periodic sample writer */
 	public PeriodicSampleWriter(SampleArchiveFactory f) {
@@ -73,10 +205,8 @@ public class PeriodicSampleWriter {
 
 	/** Flush samples from a cache to files */
 	public void flush(PeriodicSampleCache cache, String sensor_id) {
-		period = new Interval(0);
 		file = null;
-		channel = null;
-		buffer.clear();
+		m_file = null;
 		try {
 			flush(cache.iterator(), sensor_id, cache.sample_type);
 		}
@@ -89,95 +219,111 @@ public class PeriodicSampleWriter {
 					e.getMessage());
 			}
 		}
+		finally {
+			releaseFile();
+		}
 	}
 
 	/** Flush an iterator of samples to files */
 	private void flush(Iterator<PeriodicSample> it, String sensor_id,
 		PeriodicSampleType s_type) throws IOException
 	{
-		try {
-			while (it.hasNext()) {
-				PeriodicSample ps = it.next();
-				period = new Interval(ps.period);
-				File f = factory.createFile(sensor_id, s_type,
-					ps);
-				if (!f.equals(file)) {
-					file = f;
-					readNextFile(s_type);
-				}
-				putSample(ps, s_type);
+		while (it.hasNext()) {
+			PeriodicSample ps = it.next();
+			File f = factory.createFile(sensor_id, s_type, ps);
+			if (!f.equals(file)) {
+				releaseFile();
+				file = f;
+				m_file = lookupFile(s_type,
+					new Interval(ps.period));
 			}
-			writeBuffer(s_type.sample_bytes);
-		}
-		finally {
-			if (channel != null)
-				channel.close();
+			putSample(ps, s_type);
 		}
 	}
 
-	/** Read next file (after writing current file buffer). */
-	private void readNextFile(PeriodicSampleType s_type) throws IOException{
-		writeBuffer(s_type.sample_bytes);
-		readBuffer(s_type);
-	}
-
-	/** Read the contents of the given file into the buffer.
-	 * @param s_type Sample type. */
-	private void readBuffer(PeriodicSampleType s_type) throws IOException {
-		int n_size = bufferBytes(s_type.sample_bytes);
-		channel = new RandomAccessFile(file, "rw").getChannel();
-		buffer.clear();
-		readBuffer();
-		// Buffer should contain no more than one day of samples
-		if (buffer.position() > n_size)
-			buffer.position(n_size);
-		padBuffer(s_type);
-		buffer.flip();
+	/** Lookup a mapped file, or map it if necessary */
+	private MappedFile lookupFile(PeriodicSampleType s_type,
+		Interval period) throws IOException
+	{
+		MappedFile mf = mapped.get(file);
+		if (null == mf) {
+			boolean keep = mapped.size() < MAX_MAPPED;
+			registerLive(file);
+			MappedByteBuffer buf;
+			try {
+				buf = mapFile(s_type, period);
+			}
+			catch (IOException e) {
+				unregisterLive(file);
+				throw e;
+			}
+			mf = new MappedFile(file, buf, keep);
+			if (keep)
+				mapped.put(file, mf);
+			else
+				n_transient++;
+		}
+		mf.used = true;
+		return mf;
 	}
 
-	/** Get the number of bytes in buffer for one day.
-	 * @param s_bytes Bytes per sample.
-	 * @return Size of buffer in bytes. */
-	private int bufferBytes(int s_bytes) {
-		return samplesPerDay(period) * s_bytes;
+	/** Release the current file, unmapping it unless it is kept */
+	private void releaseFile() {
+		if (m_file != null && !m_file.kept) {
+			unmap(m_file.buffer);
+			unregisterLive(m_file.file);
+		}
+		file = null;
+		m_file = null;
 	}
 
-	/** Read all existing sample data from file */
-	private void readBuffer() throws IOException {
-		while (channel.read(buffer) >= 0 && buffer.hasRemaining());
+	/** Map the current file at full day size.
+	 * @param s_type Sample type.
+	 * @param period Sample period. */
+	private MappedByteBuffer mapFile(PeriodicSampleType s_type,
+		Interval period) throws IOException
+	{
+		int s_bytes = s_type.sample_bytes;
+		int n_size = samplesPerDay(period) * s_bytes;
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			FileChannel channel = raf.getChannel();
+			long len = channel.size();
+			// File should contain no more than one day of samples
+			if (len > n_size)
+				channel.truncate(n_size);
+			MappedByteBuffer buf = channel.map(
+				FileChannel.MapMode.READ_WRITE, 0, n_size);
+			if (len < n_size)
+				padBuffer(buf, (int) len / s_bytes * s_bytes,
+					s_type);
+			return buf;
+		}
+		finally {
+			// Mapping remains valid after the file is closed
+			raf.close();
+		}
 	}
 
-	/** Pad the buffer with MISSING_DATA for full day.
+	/** Pad the buffer with MISSING_DATA to end of day.
+	 * @param buf Mapped buffer.
+	 * @param pos Position of first sample to pad.
 	 * @param s_type Sample type. */
-	private void padBuffer(PeriodicSampleType s_type) {
-		int n_size = bufferBytes(s_type.sample_bytes);
-		int n_sam = (n_size - buffer.position()) / s_type.sample_bytes;
-		for (int i = 0; i < n_sam; i++)
-			s_type.putValue(buffer, MISSING_DATA);
-	}
-
-	/** Write the buffer to the file channel and close the file. */
-	private void writeBuffer(int s_bytes) throws IOException {
-		if (channel != null) {
-			int n_size = bufferBytes(s_bytes);
-			channel.position(0);
-			buffer.position(0);
-			// Write sample data buffer to file
-			while (buffer.hasRemaining())
-				channel.write(buffer);
-			// Truncate file if it's larger than buffer
-			if (channel.size() > n_size)
-				channel.truncate(n_size);
-			channel.close();
-			channel = null;
-		}
+	private void padBuffer(MappedByteBuffer buf, int pos,
+		PeriodicSampleType s_type)
+	{
+		buf.position(pos);
+		while (buf.remaining() >= s_type.sample_bytes)
+			s_type.putValue(buf, MISSING_DATA);
 	}
 
-	/** Put one sample into the buffer.
+	/** Put one sample into the current mapped file.
 	 * @param ps Periodic sample. */
 	private void putSample(PeriodicSample ps, PeriodicSampleType s_type) {
-		buffer.position(samplePosition(ps, s_type.sample_bytes));
-		s_type.putValue(buffer, ps.value);
+		MappedByteBuffer buf = m_file.buffer;
+		buf.position(samplePosition(ps, s_type.sample_bytes));
+		s_type.putValue(buf, ps.value);
+		m_file.dirty = true;
 	}
 
 	/** Compute the position of a sample in the file.
@@ -187,4 +333,34 @@ public class PeriodicSampleWriter {
 		return TimeSteward.secondOfDayInt(ps.start()) *
 		       s_bytes / ps.period;
 	}
+
+	/** Force all changed files to be written to disk.  Files which
+	 * were not used since the previous call are unmapped. */
+	public void force() {
+		releaseFile();
+		Iterator<MappedFile> it = mapped.values().iterator();
+		while (it.hasNext()) {
+			MappedFile mf = it.next();
+			force(mf);
+			if (!mf.used) {
+				it.remove();
+				unmap(mf.buffer);
+				unregisterLive(mf.file);
+			}
+			mf.used = false;
+		}
+		if (n_transient > 0 && FLUSH_LOG.isOpen()) {
+			FLUSH_LOG.log("mapped " + mapped.size() + " files, " +
+				n_transient + " more while flushing");
+		}
+		n_transient = 0;
+	}
+
+	/** Force one mapped file to be written to disk */
+	private void force(MappedFile mf) {
+		if (mf.dirty) {
+			mf.buffer.force();
+			mf.dirty = false;
+		}
+	}
 }
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2005-2021  Minnesota Department of Transportation
+ * Copyright (C) 2005-2026  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -15,20 +15,29 @@
 package us.mn.state.dot.tms.server;
 
 import java.lang.reflect.Method;
+import java.sql.Array;
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.Statement;
 import java.sql.SQLException;
-import java.util.LinkedList;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.regex.Pattern;
 import java.util.regex.Matcher;
 import org.postgis.MultiPolygon;
 import us.mn.state.dot.sched.DebugLog;
+import us.mn.state.dot.sched.Histogram;
 import us.mn.state.dot.tms.ChangeVetoException;
 import us.mn.state.dot.tms.TMSException;
+import us.mn.state.dot.tms.server.ConnectionPool.PooledConnection;
 
 /**
  * Simple SQL database abstraction stuff
@@ -55,29 +64,26 @@ public class SQLConnection {
 		}
 	}
 
-	/** Pattern to match for a SQL string constant value */
-	static private final Pattern SQL_VALUE =
-		Pattern.compile("[[\\p{Graph}\\p{Blank}\n]]*");
-
-	/** Validate a SQL string constant value */
-	static private void validateValue(String v) throws ChangeVetoException {
-		Matcher m = SQL_VALUE.matcher(v);
-		if (!m.matches())
-			throw new ChangeVetoException("Invalid SQL value: " +v);
-	}
-
 	/** Escape a string constant value for SQL */
 	static public String escapeValue(Object value) {
 		return value.toString().replace("'", "''");
 	}
 	
-	/** Prepare a string array for SQL */
-	static private String prepareArray(Object value) {
-		if (value != null && (value.getClass().isArray()
-				|| value instanceof List<?>)) {
-			return value.toString().replace("[", "{").replace("]", "}");
-		}
-		return value.toString();
+	/** Get the SQL array element type name for a value */
+	static private String arrayType(Object v) {
+		if (v instanceof Integer)
+			return "int4";
+		if (v instanceof Short)
+			return "int2";
+		if (v instanceof Long)
+			return "int8";
+		if (v instanceof Float)
+			return "float4";
+		if (v instanceof Double)
+			return "float8";
+		if (v instanceof Boolean)
+			return "bool";
+		return "text";
 	}
 
 	/** Get a PostGIS MultiPolygon from a DB query object.
@@ -98,21 +104,28 @@ public class SQLConnection {
 		return null;
 	}
 
-	/** Location of database server */
-	private final String location;
+	/** Connection lanes, so that slow background work does not block
+	 * interactive changes */
+	public enum Lane {
+		/** Interactive writes (object changes) */
+		INTERACTIVE(2),
+		/** Background writes (events, purging) */
+		BACKGROUND(2),
+		/** Reads (queries) */
+		READ(4);
 
-	/** User to log into database server */
-	private final String user;
-
-	/** Password to log into database server */
-	private final String password;
+		/** Create a lane */
+		private Lane(int sz) {
+			size = sz;
+		}
 
-	/** Connection to the SQL database */
-	private Connection connection = null;
+		/** Maximum number of connections for the lane */
+		public final int size;
+	}
 
-	/** Available SQL statements */
-	private final LinkedList<Statement> statements =
-		new LinkedList<Statement>();
+	/** Connection pools for each lane */
+	private final EnumMap<Lane, ConnectionPool> pools =
+		new EnumMap<Lane, ConnectionPool>(Lane.class);
 
 	/** Create a new SQL connection */
 	public SQLConnection(String url, String usr, String pswd)
@@ -124,101 +137,201 @@ public class SQLConnection {
 		catch (ClassNotFoundException e) {
 			throw new TMSException(e);
 		}
-		location = url;
-		user = usr;
-		password = pswd;
+		Properties props = new Properties();
+		props.setProperty("user", usr);
+		props.setProperty("password", pswd);
+		// Send string parameters untyped, so the server will convert
+		// them to the column type (as with quoted literals)
+		props.setProperty("stringtype", "unspecified");
+		for (Lane lane: Lane.values()) {
+			String n = lane.toString().toLowerCase();
+			pools.put(lane, new ConnectionPool(n, lane.size, url,
+				props));
+		}
 	}
 
-	/** Close the current database connection */
-	private void close() throws SQLException {
-		statements.clear();
-		if (connection != null) {
-			try {
-				connection.close();
-			}
-			finally {
-				connection = null;
-			}
-		}
+	/** Acquire a pooled connection.  It must be released after use. */
+	private PooledConnection acquire(Lane lane) throws TMSException {
+		return pools.get(lane).acquire();
 	}
 
-	/** Open a new database connection */
-	private void open() throws SQLException {
-		connection = DriverManager.getConnection(location, user,
-			password);
-		connection.setAutoCommit(true);
+	/** Get the number of open connections for a lane */
+	public int getOpenCount(Lane lane) {
+		return pools.get(lane).getOpenCount();
 	}
 
-	/** Create a database statement */
-	private Statement _createStatement() throws SQLException {
-		if (connection == null)
-			open();
-		return connection.createStatement();
+	/** Get the histogram of wait times for a lane (ms) */
+	public Histogram getWaits(Lane lane) {
+		return pools.get(lane).getWaits();
 	}
 
-	/** Create a database statement */
-	private Statement createStatement() throws TMSException {
-		try {
-			return _createStatement();
-		}
-		catch (SQLException e) {
-			SQL_LOG.log("createStatement -> " + e);
-			try {
-				close();
-				return _createStatement();
+	/** Bind a parameter value to a prepared statement */
+	private void bind(PreparedStatement ps, int i, Object value)
+		throws SQLException
+	{
+		if (value == null)
+			ps.setNull(i, Types.NULL);
+		else if (value instanceof String)
+			ps.setString(i, (String) value);
+		else if (value instanceof Integer)
+			ps.setInt(i, (Integer) value);
+		else if (value instanceof Short)
+			ps.setShort(i, (Short) value);
+		else if (value instanceof Long)
+			ps.setLong(i, (Long) value);
+		else if (value instanceof Float)
+			ps.setFloat(i, (Float) value);
+		else if (value instanceof Double)
+			ps.setDouble(i, (Double) value);
+		else if (value instanceof Boolean)
+			ps.setBoolean(i, (Boolean) value);
+		else if (value instanceof Date) {
+			ps.setTimestamp(i, new Timestamp(
+				((Date) value).getTime()));
+		} else if (value instanceof List)
+			bindArray(ps, i, ((List) value).toArray());
+		else if (value.getClass().isArray())
+			bindArray(ps, i, toObjectArray(value));
+		else
+			ps.setString(i, value.toString());
+	}
+
+	/** Convert an array (possibly of a primitive type) to Object[] */
+	static private Object[] toObjectArray(Object value) {
+		int n = java.lang.reflect.Array.getLength(value);
+		Object[] a = new Object[n];
+		for (int i = 0; i < n; i++)
+			a[i] = java.lang.reflect.Array.get(value, i);
+		return a;
+	}
+
+	/** Bind an array parameter value to a prepared statement */
+	private void bindArray(PreparedStatement ps, int i, Object[] a)
+		throws SQLException
+	{
+		String t = "text";
+		for (Object v: a) {
+			if (v != null) {
+				t = arrayType(v);
+				break;
 			}
-			catch (SQLException e2) {
-				SQL_LOG.log("createStatement.2 -> " + e2);
-				throw new TMSException(e2);
+		}
+		if (t.equals("text")) {
+			for (int j = 0; j < a.length; j++) {
+				if (a[j] != null)
+					a[j] = a[j].toString();
 			}
 		}
+		if (a.length > 0) {
+			Array arr = ps.getConnection().createArrayOf(t, a);
+			ps.setArray(i, arr);
+		} else {
+			// Element type is unknown -- let the server convert it
+			ps.setString(i, "{}");
+		}
 	}
 
-	/** Get an available statement */
-	private synchronized Statement getStatement() throws TMSException {
-		if (statements.isEmpty())
-			return createStatement();
-		else
-			return statements.removeLast();
+	/** Execute an update with a prepared statement.
+	 * @param lane Connection lane.
+	 * @param sql SQL text with parameters.
+	 * @param values Parameter values. */
+	private void updatePrepared(Lane lane, String sql, Object... values)
+		throws TMSException
+	{
+		PooledConnection pc = acquire(lane);
+		try {
+			PreparedStatement ps = pc.getPrepared(sql);
+			try {
+				for (int i = 0; i < values.length; i++)
+					bind(ps, i + 1, values[i]);
+				ps.executeUpdate();
+				ps.clearParameters();
+			}
+			catch (SQLException e) {
+				closeQuietly(ps);
+				throw e;
+			}
+			pc.putPrepared(sql, ps);
+		}
+		catch (SQLException e) {
+			SQL_LOG.log(sql + " -> " + e);
+			pc.setSuspect();
+			throw new TMSException(e);
+		}
+		finally {
+			pc.release();
+		}
 	}
 
-	/** Put a statement back after using it */
-	private synchronized void putStatement(Statement s) {
-		statements.add(s);
+	/** Close a statement, ignoring exceptions */
+	static private void closeQuietly(Statement s) {
+		try {
+			s.close();
+		}
+		catch (SQLException e) {
+			// ignore
+		}
 	}
 
 	/** Query the database and call a factory for each result */
 	public void query(String sql, ResultFactory factory)
 		throws TMSException
 	{
-		Statement s = getStatement();
+		PooledConnection pc = acquire(Lane.READ);
 		try {
-			ResultSet set = s.executeQuery(sql);
+			Statement s = pc.getStatement();
 			try {
-				while (set.next())
-					factory.create(set);
+				ResultSet set = s.executeQuery(sql);
+				try {
+					while (set.next())
+						factory.create(set);
+				}
+				finally {
+					set.close();
+				}
 			}
-			finally {
-				set.close();
+			catch (SQLException e) {
+				closeQuietly(s);
+				throw e;
 			}
-			putStatement(s);
+			pc.putStatement(s);
+		}
+		catch (SQLException e) {
+			SQL_LOG.log(sql + " -> " + e);
+			pc.setSuspect();
+			throw new TMSException(e);
 		}
 		catch (Exception e) {
 			throw new TMSException(e);
 		}
+		finally {
+			pc.release();
+		}
 	}
 
-	/** Update the database with the given SQL command */
+	/** Update the database with the given SQL command.  This uses the
+	 * background lane, since it is used for purging records. */
 	public void update(String sql) throws TMSException {
-		Statement s = getStatement();
+		PooledConnection pc = acquire(Lane.BACKGROUND);
 		try {
-			s.executeUpdate(sql);
-			putStatement(s);
+			Statement s = pc.getStatement();
+			try {
+				s.executeUpdate(sql);
+			}
+			catch (SQLException e) {
+				closeQuietly(s);
+				throw e;
+			}
+			pc.putStatement(s);
 		}
 		catch (SQLException e) {
 			SQL_LOG.log(sql + " -> " + e);
+			pc.setSuspect();
 			throw new TMSException(e);
 		}
+		finally {
+			pc.release();
+		}
 	}
 
 	/** Update one field in a storable database table */
@@ -226,83 +339,171 @@ public class SQLConnection {
 		throws TMSException
 	{
 		validateIdentifier(field);
-		String key = escapeValue(s.getKey());
-		validateValue(key);
-		if (value == null) {
-			updateNull(s, field, key);
-			return;
-		}
-		String av = prepareArray(value);
-		String ev = escapeValue(av);
-		validateValue(ev);
-		update("UPDATE " + s.getTable() +
-		      " SET " + field + " = '" + ev + "'" +
-		      " WHERE " + s.getKeyName() + " = '" + key + "';");
+		updatePrepared(Lane.INTERACTIVE, "UPDATE " + s.getTable() +
+			" SET " + field + " = ? WHERE " + s.getKeyName() +
+			" = ?;", value, s.getKey());
 	}
 
-	/** Update one field with a NULL value */
-	private void updateNull(Storable s, String field, String key)
-		throws TMSException
-	{
-		update("UPDATE " + s.getTable() +
-		      " SET " + field + " = NULL" +
-		      " WHERE " + s.getKeyName() + " = '" + key + "';");
+	/** Get the non-null columns of a storable record */
+	static private LinkedHashMap<String, Object> getColumns(Storable s) {
+		LinkedHashMap<String, Object> columns =
+			new LinkedHashMap<String, Object>();
+		for (Map.Entry<String, Object> e: s.getColumns().entrySet()) {
+			if (e.getValue() != null)
+				columns.put(e.getKey(), e.getValue());
+		}
+		return columns;
 	}
 
-	/** Create one storable record */
-	public void create(Storable s) throws TMSException {
-		Map<String, Object> columns = s.getColumns();
+	/** Create the INSERT statement for a record's columns */
+	static private String insertSql(Storable s, Map<String, Object> columns)
+		throws ChangeVetoException
+	{
 		StringBuilder keys = new StringBuilder();
 		StringBuilder values = new StringBuilder();
-		for (Map.Entry<String, Object> e: columns.entrySet()) {
-			Object value = e.getValue();
-			if (value != null) {
-				String field = e.getKey();
-				validateIdentifier(field);
-				keys.append(field);
-				keys.append(",");
-				String av = prepareArray(value);
-				String ev = escapeValue(av);
-				
-				validateValue(ev);
-				values.append("'");
-				values.append(ev);
-				values.append("',");
-			}
+		for (String field: columns.keySet()) {
+			validateIdentifier(field);
+			keys.append(field);
+			keys.append(",");
+			values.append("?,");
 		}
 		keys.setLength(keys.length() - 1);
 		values.setLength(values.length() - 1);
-		String sql = "INSERT INTO " + s.getTable() + " (" + keys +
+		return "INSERT INTO " + s.getTable() + " (" + keys +
 			") VALUES (" + values + ");";
-		update(sql);
+	}
+
+	/** Create one storable record */
+	public void create(Storable s) throws TMSException {
+		LinkedHashMap<String, Object> columns = getColumns(s);
+		updatePrepared(Lane.INTERACTIVE, insertSql(s, columns),
+			columns.values().toArray());
+	}
+
+	/** Create a list of storable records, using the background lane.
+	 * Records with the same table and non-null columns are grouped into
+	 * one prepared statement batch.  All batches are executed in one
+	 * transaction, so either every record is created or none are. */
+	public void createAll(List<? extends Storable> list)
+		throws TMSException
+	{
+		LinkedHashMap<String, ArrayList<Object[]>> inserts =
+			new LinkedHashMap<String, ArrayList<Object[]>>();
+		for (Storable s: list) {
+			LinkedHashMap<String, Object> columns = getColumns(s);
+			String sql = insertSql(s, columns);
+			ArrayList<Object[]> rows = inserts.get(sql);
+			if (null == rows) {
+				rows = new ArrayList<Object[]>();
+				inserts.put(sql, rows);
+			}
+			rows.add(columns.values().toArray());
+		}
+		PooledConnection pc = acquire(Lane.BACKGROUND);
+		try {
+			Connection c = pc.getConnection();
+			// A nested call is already part of a transaction
+			boolean outer = c.getAutoCommit();
+			if (outer)
+				c.setAutoCommit(false);
+			try {
+				for (Map.Entry<String, ArrayList<Object[]>> e:
+				     inserts.entrySet())
+				{
+					batchPrepared(Lane.BACKGROUND,
+						e.getKey(), e.getValue());
+				}
+				if (outer)
+					c.commit();
+			}
+			catch (Throwable e) {
+				// Never commit a partial batch
+				if (outer)
+					c.rollback();
+				throw e;
+			}
+			finally {
+				if (outer)
+					c.setAutoCommit(true);
+			}
+		}
+		catch (SQLException e) {
+			SQL_LOG.log("createAll -> " + e);
+			pc.setSuspect();
+			throw new TMSException(e);
+		}
+		finally {
+			pc.release();
+		}
+	}
+
+	/** Execute a batch of rows with a prepared statement */
+	private void batchPrepared(Lane lane, String sql, List<Object[]> rows)
+		throws TMSException
+	{
+		PooledConnection pc = acquire(lane);
+		try {
+			PreparedStatement ps = pc.getPrepared(sql);
+			try {
+				for (Object[] values: rows) {
+					for (int i = 0; i < values.length; i++)
+						bind(ps, i + 1, values[i]);
+					ps.addBatch();
+				}
+				ps.executeBatch();
+				ps.clearBatch();
+			}
+			catch (SQLException e) {
+				closeQuietly(ps);
+				throw e;
+			}
+			pc.putPrepared(sql, ps);
+		}
+		catch (SQLException e) {
+			SQL_LOG.log(sql + " (batch) -> " + e);
+			pc.setSuspect();
+			throw new TMSException(e);
+		}
+		finally {
+			pc.release();
+		}
 	}
 
 	/** Destroy one storable record */
 	public void destroy(Storable s) throws TMSException {
-		String esc_val = escapeValue(s.getKey());
-		String val = prepareArray(esc_val);
-		validateValue(val);
-		update("DELETE FROM " + s.getTable() +
-		      " WHERE " + s.getKeyName() + " = '" + val + "';");
+		updatePrepared(Lane.INTERACTIVE, "DELETE FROM " +
+			s.getTable() + " WHERE " + s.getKeyName() + " = ?;",
+			s.getKey());
 	}
 
 	/** Update the database with a batch of SQL commands */
 	public void batch(BatchFactory f) throws TMSException {
-		Statement s = getStatement();
+		PooledConnection pc = acquire(Lane.INTERACTIVE);
 		try {
-			while (true) {
-				String sql = f.next();
-				if (sql == null)
-					break;
-				s.addBatch(sql);
+			Statement s = pc.getStatement();
+			try {
+				while (true) {
+					String sql = f.next();
+					if (sql == null)
+						break;
+					s.addBatch(sql);
+				}
+				s.executeBatch();
+				s.clearBatch();
+			}
+			catch (SQLException e) {
+				closeQuietly(s);
+				throw e;
 			}
-			s.executeBatch();
-			s.clearBatch();
-			putStatement(s);
+			pc.putStatement(s);
 		}
 		catch (SQLException e) {
 			SQL_LOG.log("batch -> " + e);
+			pc.setSuspect();
 			throw new TMSException(e);
 		}
+		finally {
+			pc.release();
+		}
 	}
 }
@@ -0,0 +1,175 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2026  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Iterator;
+import java.util.Map;
+import us.mn.state.dot.sched.Histogram;
+import us.mn.state.dot.sched.Job;
+import us.mn.state.dot.sched.QueueStats;
+import us.mn.state.dot.sched.TimeSteward;
+import us.mn.state.dot.tms.RasterCache;
+import us.mn.state.dot.tms.server.event.EventWriter;
+
+/**
+ * Job to write out scheduler and worker thread statistics as JSON.  Each
+ * file contains queue depth, start lag (ms) and job durations (us) recorded
+ * since the previous file was written, plus database connection pool,
+ * raster cache and event writer counters.
+ *
+ * @author Douglas Lau
+ */
+public class SchedStatsJob extends Job {
+
+	/** Seconds to offset each write from start of interval */
+	static private final int OFFSET_SECS = 3;
+
+	/** Name of scheduler statistics file */
+	static private final String STATS_JSON = "sched_stats.json";
+
+	/** Date formatter for RFC 3339 */
+	private final SimpleDateFormat rfc3339 =
+		new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX");
+
+	/** SQL connection */
+	private final SQLConnection store;
+
+	/** Create a new scheduler statistics job */
+	public SchedStatsJob(SQLConnection s) {
+		super(Calendar.SECOND, 30, Calendar.SECOND, OFFSET_SECS);
+		store = s;
+	}
+
+	/** Perform the scheduler statistics job */
+	@Override
+	public void perform() throws IOException {
+		XmlWriter w = new XmlWriter(STATS_JSON, false) {
+			@Override protected void write(Writer w)
+				throws IOException
+			{
+				writeStats(w);
+			}
+		};
+		w.write();
+	}
+
+	/** Write statistics for all queue threads */
+	private void writeStats(Writer w) throws IOException {
+		w.write("{\n");
+		w.write("\"time_stamp\":\"");
+		w.write(rfc3339.format(TimeSteward.getDateInstance()));
+		w.write("\",\n");
+		w.write("\"period\":30,\n");
+		w.write("\"threads\":[\n");
+		Iterator<QueueStats> it = QueueStats.getAll().iterator();
+		while (it.hasNext()) {
+			writeStats(w, it.next());
+			if (it.hasNext())
+				w.write(',');
+			w.write('\n');
+		}
+		w.write("],\n");
+		w.write("\"sql_lanes\":[\n");
+		SQLConnection.Lane[] lanes = SQLConnection.Lane.values();
+		for (int i = 0; i < lanes.length; i++) {
+			writeStats(w, lanes[i]);
+			if (i + 1 < lanes.length)
+				w.write(',');
+			w.write('\n');
+		}
+		w.write("],\n");
+		w.write("\"raster_cache\":{\"hits\":" +
+			RasterCache.getHits());
+		w.write(",\"misses\":" + RasterCache.getMisses());
+		w.write(",\"size\":" + RasterCache.size());
+		w.write("},\n");
+		w.write("\"event_writer\":{\"queued\":" +
+			EventWriter.getQueued());
+		w.write(",\"written\":" + EventWriter.getWritten());
+		w.write(",\"batches\":" + EventWriter.getBatches());
+		w.write(",\"dropped\":" + EventWriter.getDropped());
+		w.write(",\"failed\":" + EventWriter.getFailed());
+		w.write("}\n");
+		w.write("}\n");
+	}
+
+	/** Write statistics for one queue thread */
+	private void writeStats(Writer w, QueueStats qs) throws IOException {
+		w.write("{\"name\":");
+		writeString(w, qs.getName());
+		w.write(",\"depth\":");
+		w.write(Integer.toString(qs.getDepth()));
+		w.write(",\"max_depth\":");
+		w.write(Integer.toString(qs.drainMaxDepth()));
+		w.write(",\"lag_ms\":");
+		writeHistogram(w, qs.getLag().drain());
+		w.write(",\"jobs_us\":{");
+		Iterator<Map.Entry<String, Histogram>> it =
+			qs.getDurations().entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<String, Histogram> ent = it.next();
+			writeString(w, ent.getKey());
+			w.write(':');
+			writeHistogram(w, ent.getValue().drain());
+			if (it.hasNext())
+				w.write(',');
+		}
+		w.write("}}");
+	}
+
+	/** Write statistics for one database connection lane */
+	private void writeStats(Writer w, SQLConnection.Lane lane)
+		throws IOException
+	{
+		w.write("{\"name\":");
+		writeString(w, lane.toString().toLowerCase());
+		w.write(",\"size\":" + lane.size);
+		w.write(",\"open\":" + store.getOpenCount(lane));
+		w.write(",\"wait_ms\":");
+		writeHistogram(w, store.getWaits(lane).drain());
+		w.write('}');
+	}
+
+	/** Write a quoted JSON string */
+	private void writeString(Writer w, String s) throws IOException {
+		w.write('"');
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '"' || c == '\\') {
+				w.write('\\');
+				w.write(c);
+			} else if (c < 0x20)
+				w.write(String.format("\\u%04x", (int) c));
+			else
+				w.write(c);
+		}
+		w.write('"');
+	}
+
+	/** Write a histogram summary */
+	private void writeHistogram(Writer w, Histogram h) throws IOException {
+		w.write("{\"count\":" + h.getCount());
+		w.write(",\"mean\":" + h.getMean());
+		w.write(",\"p50\":" + h.getPercentile(50));
+		w.write(",\"p90\":" + h.getPercentile(90));
+		w.write(",\"p99\":" + h.getPercentile(99));
+		w.write(",\"max\":" + h.getMax());
+		w.write('}');
+	}
+}
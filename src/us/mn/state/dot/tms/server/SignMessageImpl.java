@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2000-2020  Minnesota Department of Transportation
+ * Copyright (C) 2000-2026  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -63,7 +63,8 @@ public class SignMessageImpl extends BaseObjectImpl implements SignMessage {
 
 	/** Load all the sign messages */
 	static protected void loadAll() throws TMSException {
-		namespace.registerType(SONAR_TYPE, SignMessageImpl.class);
+		namespace.registerType(SONAR_TYPE, SignMessageImpl.class)
+			.addIndex("multi");
 		store.query("SELECT name, sign_config, incident, multi, " +
 			"beacon_enabled, prefix_page, msg_priority, source, " +
 			"owner, duration FROM iris." + SONAR_TYPE + ";",
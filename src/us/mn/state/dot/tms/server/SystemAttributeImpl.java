@@ -134,6 +134,7 @@ public class SystemAttributeImpl extends BaseObjectImpl
 	public void setValue(String arg_value) {
 		logChange(arg_value);
 		value = arg_value;
+		SystemAttrEnum.invalidate(name);
 		if (DETECTOR_AUTO_FAIL_ENABLE.aname().equals(name) &&
 		   !DETECTOR_AUTO_FAIL_ENABLE.getBoolean())
 		{
@@ -151,6 +152,13 @@ public class SystemAttributeImpl extends BaseObjectImpl
 		}
 	}
 
+	/** Destroy an object */
+	@Override
+	public void doDestroy() throws TMSException {
+		super.doDestroy();
+		SystemAttrEnum.invalidate(name);
+	}
+
 	/** Get the attribute value */
 	@Override
 	public String getValue() {
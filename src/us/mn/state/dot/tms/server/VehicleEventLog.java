@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2006-2019  Minnesota Department of Transportation
+ * Copyright (C) 2006-2026  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -17,7 +17,11 @@ package us.mn.state.dot.tms.server;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import us.mn.state.dot.sched.DebugLog;
 import us.mn.state.dot.sched.Job;
 import us.mn.state.dot.sched.TimeSteward;
 import us.mn.state.dot.tms.SystemAttrEnum;
@@ -25,12 +29,19 @@ import static us.mn.state.dot.tms.server.Constants.MISSING_DATA;
 import static us.mn.state.dot.tms.server.MainServer.FLUSH;
 
 /**
- * The vehicle event log records vehicle detection events.
+ * The vehicle event log records vehicle detection events.  Events are
+ * buffered in memory, and appended to the sensor's .vlog file (on the FLUSH
+ * thread) by FlushVehicleEventsJob, or when the buffer is full.  At most
+ * one flush interval of events can be lost if the server crashes.  Events
+ * which can't be written are kept for the next flush, up to a limit.
  *
  * @author Douglas Lau
  */
 public class VehicleEventLog {
 
+	/** Vehicle log debug log */
+	static private final DebugLog VLOG_LOG = new DebugLog("vlog");
+
 	/** Maximum logged headway is 90 seconds */
 	static private final int MAX_HEADWAY = 90 * 1000;
 
@@ -46,12 +57,83 @@ public class VehicleEventLog {
 		      : TimeSteward.currentTimeMillis();
 	}
 
+	/** Number of buffered characters to trigger a flush */
+	static private final int FLUSH_CHARS = 4096;
+
+	/** Maximum number of buffered characters kept after a write error */
+	static private final int MAX_CHARS = 16 * FLUSH_CHARS;
+
+	/** Logs with buffered events */
+	static private final ConcurrentLinkedQueue<VehicleEventLog> PENDING =
+		new ConcurrentLinkedQueue<VehicleEventLog>();
+
+	/** Flush buffered events for all logs.  This must be called on the
+	 * FLUSH thread. */
+	static void flushAll() throws IOException {
+		IOException ex = null;
+		// Logs added while flushing will be flushed next time
+		for (int n = PENDING.size(); n > 0; n--) {
+			VehicleEventLog log = PENDING.poll();
+			if (null == log)
+				break;
+			try {
+				log.flush(true);
+			}
+			catch (IOException e) {
+				if (null == ex)
+					ex = e;
+			}
+		}
+		if (ex != null)
+			throw ex;
+	}
+
+	/** Buffered events for one archive file (day) */
+	static private final class Chunk {
+		private final long stamp;
+		private final long end;
+		private final StringBuilder text = new StringBuilder();
+		private Chunk(long st) {
+			Calendar cal = TimeSteward.getCalendarInstance();
+			cal.setTimeInMillis(st);
+			cal.set(Calendar.HOUR_OF_DAY, 0);
+			cal.set(Calendar.MINUTE, 0);
+			cal.set(Calendar.SECOND, 0);
+			cal.set(Calendar.MILLISECOND, 0);
+			stamp = cal.getTimeInMillis();
+			cal.add(Calendar.DATE, 1);
+			end = cal.getTimeInMillis();
+		}
+		private boolean contains(long st) {
+			return st >= stamp && st < end;
+		}
+	}
+
 	/** Sample archive factory */
 	private final SampleArchiveFactory factory;
 
 	/** Sensor ID */
 	private final String sensor_id;
 
+	/** Buffered events, one chunk per day */
+	private ArrayList<Chunk> chunks = new ArrayList<Chunk>();
+
+	/** Number of buffered characters */
+	private int n_chars = 0;
+
+	/** Flag to indicate log is in PENDING queue */
+	private boolean pending = false;
+
+	/** Flag to indicate a flush job is scheduled */
+	private boolean scheduled = false;
+
+	/** Job to flush a full buffer */
+	private final Job flush_job = new Job() {
+		public void perform() throws IOException {
+			flush(false);
+		}
+	};
+
 	/** Count of vehicles in current sampling period */
 	private int ev_vehicles = 0;
 
@@ -71,8 +153,8 @@ public class VehicleEventLog {
 	}
 
 	/** Log a vehicle detection event */
-	public void logVehicle(final Calendar stamp, final int duration,
-		final int headway, final int speed)
+	public void logVehicle(Calendar stamp, int duration, int headway,
+		int speed)
 	{
 		ev_vehicles++;
 		ev_duration += duration;
@@ -81,25 +163,85 @@ public class VehicleEventLog {
 			ev_speed += speed;
 		}
 		if (isArchiveEnabled()) {
-			FLUSH.addJob(new Job() {
-				public void perform() throws IOException {
-					appendEvent(stamp, formatEvent(stamp,
-						duration, headway, speed));
-				}
-			});
+			appendEvent(getStampMillis(stamp), formatEvent(stamp,
+				duration, headway, speed));
 		}
 	}
 
-	/** Append an event to the log */
-	private void appendEvent(Calendar stamp, String line)
-		throws IOException
-	{
-		File file = factory.createFile(sensor_id, "vlog",
-			getStampMillis(stamp));
+	/** Append an event to the buffer */
+	private synchronized void appendEvent(long st, String line) {
+		int n = chunks.size();
+		Chunk c = (n > 0) ? chunks.get(n - 1) : null;
+		if (null == c || !c.contains(st)) {
+			c = new Chunk(st);
+			chunks.add(c);
+		}
+		c.text.append(line);
+		n_chars += line.length();
+		if (!pending) {
+			pending = true;
+			PENDING.add(this);
+		}
+		if (n_chars >= FLUSH_CHARS && !scheduled) {
+			scheduled = true;
+			FLUSH.addJob(flush_job);
+		}
+	}
+
+	/** Take all buffered chunks */
+	private synchronized ArrayList<Chunk> takeChunks(boolean periodic) {
+		ArrayList<Chunk> ch = chunks;
+		chunks = new ArrayList<Chunk>();
+		n_chars = 0;
+		if (periodic)
+			pending = false;
+		else
+			scheduled = false;
+		return ch;
+	}
+
+	/** Flush buffered events to the log files */
+	private void flush(boolean periodic) throws IOException {
+		ArrayList<Chunk> ch = takeChunks(periodic);
+		for (int i = 0; i < ch.size(); i++) {
+			try {
+				writeChunk(ch.get(i));
+			}
+			catch (IOException e) {
+				putBack(ch.subList(i, ch.size()));
+				throw e;
+			}
+		}
+	}
+
+	/** Put unwritten chunks back, ahead of any newer events.  If that
+	 * would exceed the buffer limit, the events are lost. */
+	private synchronized void putBack(List<Chunk> ch) {
+		int n = 0;
+		for (Chunk c: ch)
+			n += c.text.length();
+		if (n_chars + n > MAX_CHARS) {
+			if (VLOG_LOG.isOpen()) {
+				VLOG_LOG.log(sensor_id + " lost " + n +
+					" chars");
+			}
+			return;
+		}
+		chunks.addAll(0, ch);
+		n_chars += n;
+		if (!pending) {
+			pending = true;
+			PENDING.add(this);
+		}
+	}
+
+	/** Write one chunk of events to its log file */
+	private void writeChunk(Chunk c) throws IOException {
+		File file = factory.createFile(sensor_id, "vlog", c.stamp);
 		if (file != null) {
 			FileWriter fw = new FileWriter(file, true);
 			try {
-				fw.write(line);
+				fw.append(c.text);
 			}
 			finally {
 				fw.close();
@@ -110,13 +252,8 @@ public class VehicleEventLog {
 	/** Log a gap in vehicle events */
 	public void logGap() {
 		p_stamp = null;
-		if (isArchiveEnabled()) {
-			FLUSH.addJob(new Job() {
-				public void perform() throws IOException {
-					appendEvent(null, "*\n");
-				}
-			});
-		}
+		if (isArchiveEnabled())
+			appendEvent(TimeSteward.currentTimeMillis(), "*\n");
 	}
 
 	/** Time stamp of most recent vehicle event */
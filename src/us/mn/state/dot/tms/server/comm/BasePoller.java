@@ -82,7 +82,8 @@ abstract public class BasePoller implements DevicePoller {
 	};
 
 	/** Scheduler for processing comm operations */
-	static private final Scheduler COMM = new Scheduler("commx", HANDLER);
+	static private final Scheduler COMM = new Scheduler("commx", HANDLER,
+		true);
 
 	/** Worker for logging to debug logs */
 	static private final Worker LOGGER = new Worker("logger", HANDLER);
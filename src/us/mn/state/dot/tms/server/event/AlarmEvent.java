@@ -37,12 +37,7 @@ public class AlarmEvent extends BaseEvent {
 
 	/** Purge old records */
 	static public void purgeRecords() throws TMSException {
-		int age = getPurgeDays();
-		if (store != null && age > 0) {
-			store.update("DELETE FROM " + TABLE +
-				" WHERE event_date < now() - '" + age +
-				" days'::interval;");
-		}
+		purgeTable(TABLE, getPurgeDays());
 	}
 
 	/** Is the specified event an alarm event? */
@@ -31,6 +31,16 @@ abstract public class BaseEvent implements Storable {
 	/** SQL connection */
 	static public SQLConnection store;
 
+	/** Purge old records from an event table.
+	 * @param table Event table name.
+	 * @param age Purge threshold (days), or 0 to keep all records. */
+	static protected void purgeTable(String table, int age)
+		throws TMSException
+	{
+		if (store != null)
+			EventPartitions.purge(store, table, age);
+	}
+
 	/** Event type */
 	public final EventType event_type;
 
@@ -0,0 +1,174 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2026  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server.event;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import us.mn.state.dot.sched.DebugLog;
+import us.mn.state.dot.tms.TMSException;
+import us.mn.state.dot.tms.server.ResultFactory;
+import us.mn.state.dot.tms.server.SQLConnection;
+
+/**
+ * Event table partitions.  An event table can be converted to a table
+ * partitioned by day on event_date (see sql/partition_events.sql).  For a
+ * partitioned table, partitions are created ahead of time, and old events
+ * are purged by dropping whole partitions instead of deleting rows.  Tables
+ * which are not partitioned (and default partitions) are purged with DELETE.
+ * Day bounds are computed by the database, using its time zone.
+ *
+ * @author Douglas Lau
+ */
+final class EventPartitions {
+
+	/** Partition debug log */
+	static private final DebugLog PART_LOG = new DebugLog("partition");
+
+	/** Number of days to create partitions ahead of time */
+	static private final int DAYS_AHEAD = 7;
+
+	/** Don't allow instantiation */
+	private EventPartitions() { }
+
+	/** Purge old records from an event table.
+	 * @param store SQL connection.
+	 * @param table Event table name (with schema).
+	 * @param age Purge threshold (days), or 0 to keep all records. */
+	static void purge(SQLConnection store, String table, int age)
+		throws TMSException
+	{
+		if (isPartitioned(store, table)) {
+			createAhead(store, table);
+			if (age > 0) {
+				dropOld(store, table, age);
+				String def = lookupDefault(store, table);
+				if (def != null)
+					deleteOld(store, def, age);
+			}
+		} else if (age > 0)
+			deleteOld(store, table, age);
+	}
+
+	/** Delete records older than a threshold from a table */
+	static private void deleteOld(SQLConnection store, String table,
+		int age) throws TMSException
+	{
+		store.update("DELETE FROM " + table +
+			" WHERE event_date < now() - '" + age +
+			" days'::interval;");
+	}
+
+	/** Lookup the default partition of a partitioned table.
+	 * @return Default partition name (with schema), or null. */
+	static private String lookupDefault(SQLConnection store, String table)
+		throws TMSException
+	{
+		final String[] def = new String[1];
+		store.query("SELECT n.nspname || '.' || c.relname " +
+			"FROM pg_partitioned_table p " +
+			"JOIN pg_class c ON p.partdefid = c.oid " +
+			"JOIN pg_namespace n ON c.relnamespace = n.oid " +
+			"WHERE p.partrelid = '" + table + "'::regclass;",
+			new ResultFactory()
+		{
+			public void create(ResultSet row) throws Exception {
+				def[0] = row.getString(1);
+			}
+		});
+		return def[0];
+	}
+
+	/** Check if an event table is partitioned */
+	static private boolean isPartitioned(SQLConnection store, String table)
+		throws TMSException
+	{
+		final boolean[] part = new boolean[1];
+		store.query("SELECT 1 FROM pg_partitioned_table " +
+			"WHERE partrelid = '" + table + "'::regclass;",
+			new ResultFactory()
+		{
+			public void create(ResultSet row) {
+				part[0] = true;
+			}
+		});
+		return part[0];
+	}
+
+	/** Create partitions ahead of time */
+	static private void createAhead(SQLConnection store, String table)
+		throws TMSException
+	{
+		final ArrayList<String[]> days = new ArrayList<String[]>();
+		store.query("SELECT to_char(d, 'YYYYMMDD'), " +
+			"to_char(d, 'YYYY-MM-DD'), " +
+			"to_char(d + 1, 'YYYY-MM-DD') " +
+			"FROM (SELECT current_date + i AS d " +
+			"FROM generate_series(0, " + DAYS_AHEAD + ") AS i) " +
+			"AS days;", new ResultFactory()
+		{
+			public void create(ResultSet row) throws Exception {
+				days.add(new String[] {
+					row.getString(1),
+					row.getString(2),
+					row.getString(3)
+				});
+			}
+		});
+		for (String[] day: days) {
+			String name = table + "_p" + day[0];
+			String from = day[1];
+			String to = day[2];
+			try {
+				store.update("CREATE TABLE IF NOT EXISTS " +
+					name + " PARTITION OF " + table +
+					" FOR VALUES FROM ('" + from +
+					"') TO ('" + to + "');");
+			}
+			catch (TMSException e) {
+				// This can happen if the default partition
+				// contains events for the day
+				PART_LOG.log("Create " + name + " -> " +
+					e.getMessage());
+			}
+		}
+	}
+
+	/** Drop partitions containing only events older than a threshold */
+	static private void dropOld(SQLConnection store, String table,
+		int age) throws TMSException
+	{
+		final ArrayList<String> old = new ArrayList<String>();
+		// Default partitions have no upper bound, so are never dropped
+		store.query("SELECT n.nspname || '.' || c.relname " +
+			"FROM pg_inherits i " +
+			"JOIN pg_class c ON i.inhrelid = c.oid " +
+			"JOIN pg_namespace n ON c.relnamespace = n.oid " +
+			"WHERE i.inhparent = '" + table + "'::regclass " +
+			"AND substring(pg_get_expr(c.relpartbound, c.oid) " +
+			"FROM 'TO \\(''([^'']+)''\\)')::timestamptz <= " +
+			"now() - '" + age + " days'::interval;",
+			new ResultFactory()
+		{
+			public void create(ResultSet row) throws Exception {
+				old.add(row.getString(1));
+			}
+		});
+		for (String p: old) {
+			store.update("DROP TABLE " + p + ";");
+			if (PART_LOG.isOpen())
+				PART_LOG.log("Dropped " + p);
+		}
+	}
+}
@@ -0,0 +1,202 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2026  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server.event;
+
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import us.mn.state.dot.sched.DebugLog;
+import us.mn.state.dot.sched.ExceptionHandler;
+import us.mn.state.dot.sched.Work;
+import us.mn.state.dot.sched.Worker;
+import us.mn.state.dot.tms.TMSException;
+
+/**
+ * Event writer stores events to the database on a dedicated thread.  Events
+ * are queued in a bounded queue, and written in batches, as a JDBC batch of
+ * single-row prepared INSERTs for each event table, all in one transaction.
+ * Producers may be holding locks (such as the SONAR namespace lock), so they
+ * never wait -- if the queue is full, the event is dropped.  Queued events
+ * are flushed when the server shuts down.
+ *
+ * @author Douglas Lau
+ */
+public final class EventWriter {
+
+	/** Event writer debug log */
+	static private final DebugLog EV_LOG = new DebugLog("event_writer");
+
+	/** Maximum number of queued events */
+	static private final int QUEUE_SIZE = 16384;
+
+	/** Maximum number of events to write in one batch */
+	static private final int BATCH_SIZE = 500;
+
+	/** Maximum time to spend flushing events on shutdown (ms) */
+	static private final long FLUSH_MS = 10000;
+
+	/** Exception handler */
+	static private final ExceptionHandler HANDLER = new ExceptionHandler()
+	{
+		public boolean handle(Exception e) {
+			e.printStackTrace();
+			return true;
+		}
+	};
+
+	/** Queue of events to write */
+	static private final ArrayBlockingQueue<BaseEvent> QUEUE =
+		new ArrayBlockingQueue<BaseEvent>(QUEUE_SIZE);
+
+	/** Worker thread for writing events */
+	static private final Worker WRITER = new Worker("event_writer",
+		HANDLER);
+
+	/** Flag to indicate drain work is scheduled */
+	static private final AtomicBoolean scheduled = new AtomicBoolean();
+
+	/** Count of events written */
+	static private final AtomicLong n_written = new AtomicLong();
+
+	/** Count of batches written */
+	static private final AtomicLong n_batches = new AtomicLong();
+
+	/** Count of events dropped because the queue was full (or could not
+	 * be flushed on shutdown) */
+	static private final AtomicLong n_dropped = new AtomicLong();
+
+	/** Count of events which could not be stored */
+	static private final AtomicLong n_failed = new AtomicLong();
+
+	/** Don't allow instantiation */
+	private EventWriter() { }
+
+	/** Add an event to be written.
+	 * @param ev Event to write.
+	 * @return true if the event was queued, false if dropped. */
+	static public boolean add(BaseEvent ev) {
+		boolean q = QUEUE.offer(ev);
+		if (q)
+			scheduleDrain();
+		else {
+			long n = n_dropped.incrementAndGet();
+			if (EV_LOG.isOpen())
+				EV_LOG.log("Queue full, dropped " + n);
+		}
+		return q;
+	}
+
+	/** Schedule work to drain the queue, unless already scheduled */
+	static private void scheduleDrain() {
+		if (scheduled.compareAndSet(false, true)) {
+			WRITER.addWork(new Work() {
+				public void perform() {
+					drain();
+				}
+			});
+		}
+	}
+
+	/** Drain all queued events */
+	static private void drain() {
+		// Clear the flag first, so events added while draining will
+		// schedule another drain
+		scheduled.set(false);
+		ArrayList<BaseEvent> batch = new ArrayList<BaseEvent>(
+			BATCH_SIZE);
+		while (QUEUE.drainTo(batch, BATCH_SIZE) > 0) {
+			write(batch);
+			batch.clear();
+		}
+	}
+
+	/** Flush all queued events on the calling thread.  This is called on
+	 * shutdown, when the writer thread may not get another chance to
+	 * run.  Events which can't be written within a time limit are counted
+	 * as dropped. */
+	static public void flush() {
+		long end = System.currentTimeMillis() + FLUSH_MS;
+		ArrayList<BaseEvent> batch = new ArrayList<BaseEvent>(
+			BATCH_SIZE);
+		while (System.currentTimeMillis() < end) {
+			if (QUEUE.drainTo(batch, BATCH_SIZE) == 0)
+				break;
+			write(batch);
+			batch.clear();
+		}
+		int n = QUEUE.drainTo(batch);
+		if (n > 0) {
+			n_dropped.addAndGet(n);
+			if (EV_LOG.isOpen())
+				EV_LOG.log("Shutdown, dropped " + n);
+		}
+	}
+
+	/** Write a batch of events */
+	static private void write(ArrayList<BaseEvent> batch) {
+		try {
+			BaseEvent.store.createAll(batch);
+			n_written.addAndGet(batch.size());
+			n_batches.incrementAndGet();
+		}
+		catch (TMSException e) {
+			if (EV_LOG.isOpen())
+				EV_LOG.log("Batch failed: " + e.getMessage());
+			// The batch transaction was rolled back, so store
+			// events individually -- one bad event should not
+			// cause the whole batch to be lost
+			for (BaseEvent ev: batch)
+				writeEvent(ev);
+		}
+	}
+
+	/** Write one event */
+	static private void writeEvent(BaseEvent ev) {
+		try {
+			ev.doStore();
+			n_written.incrementAndGet();
+		}
+		catch (TMSException e) {
+			n_failed.incrementAndGet();
+			HANDLER.handle(e);
+		}
+	}
+
+	/** Get the number of queued events */
+	static public int getQueued() {
+		return QUEUE.size();
+	}
+
+	/** Get the count of events written */
+	static public long getWritten() {
+		return n_written.get();
+	}
+
+	/** Get the count of batches written */
+	static public long getBatches() {
+		return n_batches.get();
+	}
+
+	/** Get the count of events dropped because the queue was full */
+	static public long getDropped() {
+		return n_dropped.get();
+	}
+
+	/** Get the count of events which could not be stored */
+	static public long getFailed() {
+		return n_failed.get();
+	}
+}
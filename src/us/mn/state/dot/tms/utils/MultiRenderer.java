@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2009-2020  Minnesota Department of Transportation
+ * Copyright (C) 2009-2026  Minnesota Department of Transportation
  * Copyright (C) 2019-2020  SRF Consulting Group
  *
  * This program is free software; you can redistribute it and/or modify
@@ -773,7 +773,7 @@ public class MultiRenderer extends MultiAdapter {
 	private void renderGlyph(Glyph g, DmsColor fg, int x, int y) {
 		x--;
 		y--;
-		RasterGraphic rg = GlyphHelper.createBitmap(g);
+		RasterGraphic rg = GlyphHelper.lookupBitmap(g);
 		if (rg != null) {
 			try {
 				raster.copy(rg, x, y, fg);
@@ -0,0 +1,73 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2026  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.sched;
+
+/**
+ * Shared harness for the benchmark programs (*Bench) in the test tree.  An
+ * operation is run repeatedly for a warm-up period, then timed for a
+ * measuring period.
+ *
+ * @author Doug Lau
+ */
+public final class Bench {
+
+	/** Operation to benchmark */
+	public interface Op {
+
+		/** Run the operation once.
+		 * @return Number of units (records, objects, etc.) done. */
+		int run() throws Exception;
+	}
+
+	/** Don't allow instantiation */
+	private Bench() { }
+
+	/** Get the measuring period from command-line arguments.
+	 * @param args Arguments; the first is the period (seconds).
+	 * @return Measuring period (ms), 1 second by default. */
+	static public long parseMillis(String[] args) {
+		return (args.length > 0)
+		      ? Long.parseLong(args[0]) * 1000
+		      : 1000;
+	}
+
+	/** Time an operation, after warming up for a quarter of the
+	 * measuring period.
+	 * @param ms Measuring period (ms).
+	 * @param op Operation to time.
+	 * @return Nanoseconds per unit done. */
+	static public long time(long ms, Op op) throws Exception {
+		long end = System.currentTimeMillis() + ms / 4;
+		while (System.currentTimeMillis() < end)
+			op.run();
+		long n = 0;
+		long t0 = System.nanoTime();
+		end = System.currentTimeMillis() + ms;
+		while (System.currentTimeMillis() < end)
+			n += op.run();
+		long t1 = System.nanoTime();
+		return (t1 - t0) / Math.max(n, 1);
+	}
+
+	/** Get heap used (bytes) after garbage collection */
+	static public long usedHeap() throws InterruptedException {
+		Runtime rt = Runtime.getRuntime();
+		for (int i = 0; i < 4; i++) {
+			System.gc();
+			Thread.sleep(50);
+		}
+		return rt.totalMemory() - rt.freeMemory();
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2026  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.sched;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.TreeSet;
+import junit.framework.TestCase;
+
+/**
+ * Timer wheel tests
+ *
+ * @author Douglas Lau
+ */
+public class TimerWheelTest extends TestCase {
+
+	static private class TestJob extends Job {
+		private TestJob(int ms) {
+			super(ms);
+		}
+		public void perform() { }
+	}
+
+	public TimerWheelTest(String name) {
+		super(name);
+	}
+
+	public void testOrder() {
+		Random rand = new Random(42);
+		long start = TimeSteward.currentTimeMillis();
+		TimerWheel wheel = new TimerWheel(start);
+		TreeSet<Job> todo = new TreeSet<Job>();
+		for (int i = 0; i < 5000; i++) {
+			int ms = (i % 10 == 0) ? rand.nextInt(20000000)
+			                       : rand.nextInt(100000);
+			Job job = new TestJob(ms);
+			wheel.add(job);
+			todo.add(job);
+		}
+		assertTrue(wheel.size() == 5000);
+		ArrayList<Job> due = new ArrayList<Job>();
+		long now = start;
+		while (wheel.size() > 0) {
+			long next = wheel.nextTime();
+			assertTrue(next > now);
+			now = Math.max(next, now + rand.nextInt(5000));
+			wheel.advance(now, due);
+			for (Job job: due) {
+				assertTrue(job == todo.pollFirst());
+				assertTrue(job.getNextTime() <= now);
+			}
+			due.clear();
+			if (!todo.isEmpty())
+				assertTrue(todo.first().getNextTime() > now);
+		}
+		assertTrue(todo.isEmpty());
+		assertTrue(wheel.nextTime() == Long.MAX_VALUE);
+	}
+
+	public void testRemove() {
+		long start = TimeSteward.currentTimeMillis();
+		TimerWheel wheel = new TimerWheel(start);
+		Job j0 = new TestJob(10);
+		Job j1 = new TestJob(1000);
+		Job j2 = new TestJob(1000000);
+		assertTrue(wheel.add(j0));
+		assertTrue(wheel.add(j1));
+		assertTrue(wheel.add(j2));
+		assertFalse(wheel.add(j1));
+		assertTrue(wheel.remove(j1));
+		assertFalse(wheel.remove(j1));
+		assertTrue(wheel.remove(j2));
+		assertTrue(wheel.size() == 1);
+		ArrayList<Job> due = new ArrayList<Job>();
+		wheel.advance(start + 2000000, due);
+		assertTrue(due.size() == 1);
+		assertTrue(due.get(0) == j0);
+		assertTrue(wheel.size() == 0);
+	}
+
+	public void testScheduler() throws InterruptedException {
+		Scheduler sched = new Scheduler("wheel", null, true);
+		final ArrayList<Integer> done = new ArrayList<Integer>();
+		for (int i = 0; i < 100; i++) {
+			final int n = i;
+			sched.addJob(new Job() {
+				public void perform() {
+					synchronized (done) {
+						done.add(n);
+					}
+				}
+			});
+		}
+		Job never = new TestJob(500) {
+			public void perform() {
+				synchronized (done) {
+					done.add(-1);
+				}
+			}
+		};
+		sched.addJob(never);
+		sched.removeJob(never);
+		Thread.sleep(1000);
+		synchronized (done) {
+			assertTrue(done.size() == 100);
+			for (int i = 0; i < 100; i++)
+				assertTrue(done.get(i) == i);
+		}
+		sched.dispose();
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * SONAR -- Simple Object Notification And Replication
+ * Copyright (C) 2026  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.sonar;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import us.mn.state.dot.sched.Bench;
+
+/**
+ * Message decoder benchmark.  This decodes a typical enumeration payload
+ * (as received by a client at login) in network-sized chunks, and prints
+ * nanoseconds per record.
+ *
+ * java -cp ... us.mn.state.dot.sonar.MessageDecoderBench [seconds]
+ *
+ * @author Douglas Lau
+ */
+public class MessageDecoderBench {
+
+	/** Number of objects in payload */
+	static private final int N_OBJECTS = 1000;
+
+	/** Size of each chunk read from the network (bytes) */
+	static private final int CHUNK_BYTES = 16384;
+
+	/** DMS attributes (name, value) */
+	static private final String[][] ATTRS = {
+		{ "notes", "I-35W NB @ 46th St — gantry" },
+		{ "geoLoc", "V35WN46" },
+		{ "controller", "ctl_dms_35wn46" },
+		{ "pin", "1" },
+		{ "signConfig", "sc_125x27_full" },
+		{ "msgCurrent", "usr_8c0f1e2a" },
+		{ "expireTime", "" },
+		{ "msgUser", "[jl4][fo3]EXIT 12[nl]CLOSED[np]USE[nl]EXIT 14" },
+	};
+
+	/** Encode the payload.
+	 * @return Encoded bytes. */
+	static private byte[] encodePayload() throws IOException {
+		MessageEncoder enc = new MessageEncoder(1 << 16);
+		String[] param = new String[1];
+		for (int i = 0; i < N_OBJECTS; i++) {
+			String oname = "dms/V" + (1000 + i);
+			enc.encode(Message.OBJECT, oname);
+			for (String[] a: ATTRS) {
+				param[0] = a[1];
+				String an = oname + "/" + a[0];
+				enc.encode(Message.ATTRIBUTE, an, param);
+			}
+		}
+		enc.flush();
+		ByteBuffer buf = enc.getBuffer();
+		buf.flip();
+		byte[] b = new byte[buf.remaining()];
+		buf.get(b);
+		return b;
+	}
+
+	/** Decode the payload, one chunk at a time.
+	 * @return Number of parameters decoded. */
+	static private int decodePayload(ByteBuffer in, MessageDecoder dec,
+		byte[] payload) throws IOException
+	{
+		int n = 0;
+		for (int off = 0; off < payload.length; off += CHUNK_BYTES) {
+			int len = Math.min(CHUNK_BYTES, payload.length - off);
+			in.put(payload, off, len);
+			List<String> p = dec.decode();
+			while (p != null) {
+				n += p.size();
+				p = dec.decode();
+			}
+		}
+		return n;
+	}
+
+	/** Run the benchmark */
+	static public void main(String[] args) throws Exception {
+		long ms = Bench.parseMillis(args);
+		final byte[] payload = encodePayload();
+		final ByteBuffer in = ByteBuffer.allocate(CHUNK_BYTES * 2);
+		final MessageDecoder dec = new MessageDecoder(in);
+		final int records = N_OBJECTS * (ATTRS.length + 1);
+		long ns = Bench.time(ms, new Bench.Op() {
+			public int run() throws IOException {
+				decodePayload(in, dec, payload);
+				return records;
+			}
+		});
+		System.out.println("dms: " + ns + " ns/record, " +
+			payload.length / records + " bytes/record");
+	}
+}
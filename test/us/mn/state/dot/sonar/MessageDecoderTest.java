@@ -0,0 +1,82 @@
+/*
+ * SONAR -- Simple Object Notification And Replication
+ * Copyright (C) 2021  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.sonar;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+import junit.framework.TestCase;
+
+/**
+ * Message decoder tests
+ *
+ * @author Douglas Lau
+ */
+public class MessageDecoderTest extends TestCase {
+
+	static private final Charset UTF8 = Charset.forName("UTF-8");
+
+	public MessageDecoderTest(String name) {
+		super(name);
+	}
+
+	public void testRecords() throws IOException {
+		ByteBuffer in = ByteBuffer.allocate(64);
+		MessageDecoder dec = new MessageDecoder(in);
+		in.put("t\u001fdms\u001eo\u001fV1\u001e".getBytes(UTF8));
+		assertEquals(Arrays.asList("t", "dms"), dec.decode());
+		assertEquals(Arrays.asList("o", "V1"), dec.decode());
+		assertNull(dec.decode());
+	}
+
+	public void testEmpty() throws IOException {
+		ByteBuffer in = ByteBuffer.allocate(64);
+		MessageDecoder dec = new MessageDecoder(in);
+		in.put("t\u001e\u001ea\u001fx\u001f\u001e".getBytes(UTF8));
+		assertEquals(Arrays.asList("t"), dec.decode());
+		assertEquals(Arrays.asList(""), dec.decode());
+		assertEquals(Arrays.asList("a", "x", ""), dec.decode());
+	}
+
+	public void testMultiByte() throws IOException {
+		ByteBuffer in = ByteBuffer.allocate(64);
+		MessageDecoder dec = new MessageDecoder(in);
+		String p = "\u00b0 \u20ac \ud83d\ude97";
+		in.put(("a\u001fx\u001f" + p + "\u001e").getBytes(UTF8));
+		assertEquals(Arrays.asList("a", "x", p), dec.decode());
+	}
+
+	public void testSplit() throws IOException {
+		ByteBuffer in = ByteBuffer.allocate(8);
+		MessageDecoder dec = new MessageDecoder(in);
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 20; i++)
+			sb.append("\u20ac");
+		String p = sb.toString();
+		byte[] b = ("a\u001fx\u001f" + p + "\u001e").getBytes(UTF8);
+		List<String> params = null;
+		for (int i = 0; i < b.length; i += 5) {
+			in.put(b, i, Math.min(5, b.length - i));
+			List<String> r = dec.decode();
+			if (r != null) {
+				assertNull(params);
+				params = r;
+			}
+		}
+		assertEquals(Arrays.asList("a", "x", p), params);
+	}
+}
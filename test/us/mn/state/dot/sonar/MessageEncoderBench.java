@@ -0,0 +1,109 @@
+/*
+ * SONAR -- Simple Object Notification And Replication
+ * Copyright (C) 2026  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.sonar;
+
+import java.io.IOException;
+import us.mn.state.dot.sched.Bench;
+
+/**
+ * Message encoder benchmark.  This encodes typical DMS and detector
+ * enumeration payloads and prints nanoseconds and bytes per record.
+ *
+ * java -cp ... us.mn.state.dot.sonar.MessageEncoderBench [seconds]
+ *
+ * @author Douglas Lau
+ */
+public class MessageEncoderBench {
+
+	/** Number of objects per payload */
+	static private final int N_OBJECTS = 100;
+
+	/** DMS attributes (name, value) */
+	static private final String[][] DMS_ATTRS = {
+		{ "notes", "I-35W NB @ 46th St — gantry" },
+		{ "geoLoc", "V35WN46" },
+		{ "controller", "ctl_dms_35wn46" },
+		{ "pin", "1" },
+		{ "signConfig", "sc_125x27_full" },
+		{ "msgCurrent", "usr_8c0f1e2a" },
+		{ "msgSched", "sch_2b4d9e11" },
+		{ "expireTime", "1792345678000" },
+		{ "msgUser", "[jl4][fo3]EXIT 12[nl]CLOSED[np]USE[nl]EXIT 14" },
+		{ "status", "{\"faults\":\"\",\"photocells\":[]}" },
+	};
+
+	/** Detector attributes (name, value) */
+	static private final String[][] DET_ATTRS = {
+		{ "r_node", "rnd_12345" },
+		{ "controller", "ctl_det_1234" },
+		{ "pin", "7" },
+		{ "laneCode", "" },
+		{ "laneNumber", "2" },
+		{ "abandoned", "false" },
+		{ "forceFail", "false" },
+		{ "autoFail", "false" },
+		{ "fieldLength", "22.0" },
+		{ "fake", "" },
+		{ "notes", "" },
+	};
+
+	/** Encode one payload of objects.
+	 * @return Number of records encoded. */
+	static private int encodePayload(MessageEncoder enc, String tname,
+		String[][] attrs) throws IOException
+	{
+		int n = 0;
+		String[] param = new String[1];
+		for (int i = 0; i < N_OBJECTS; i++) {
+			String oname = tname + "/" + (1000 + i);
+			enc.encode(Message.OBJECT, oname);
+			n++;
+			for (String[] a: attrs) {
+				param[0] = a[1];
+				String an = oname + "/" + a[0];
+				enc.encode(Message.ATTRIBUTE, an, param);
+				n++;
+			}
+		}
+		enc.flush();
+		return n;
+	}
+
+	/** Time encoding a payload */
+	static private void time(final String tname, final String[][] attrs,
+		long ms) throws Exception
+	{
+		final MessageEncoder enc = new MessageEncoder(1 << 16);
+		int n = encodePayload(enc, tname, attrs);
+		int bytes = enc.getBuffer().position();
+		enc.getBuffer().clear();
+		long ns = Bench.time(ms, new Bench.Op() {
+			public int run() throws IOException {
+				int r = encodePayload(enc, tname, attrs);
+				enc.getBuffer().clear();
+				return r;
+			}
+		});
+		System.out.println(tname + ": " + ns + " ns/record, " +
+			bytes / n + " bytes/record");
+	}
+
+	/** Run the benchmark */
+	static public void main(String[] args) throws Exception {
+		long ms = Bench.parseMillis(args);
+		time("dms", DMS_ATTRS, ms);
+		time("detector", DET_ATTRS, ms);
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * SONAR -- Simple Object Notification And Replication
+ * Copyright (C) 2026  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.sonar;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import junit.framework.TestCase;
+
+/**
+ * Message encoder tests
+ *
+ * @author Douglas Lau
+ */
+public class MessageEncoderTest extends TestCase {
+
+	static private final Charset UTF8 = Charset.forName("UTF-8");
+
+	public MessageEncoderTest(String name) {
+		super(name);
+	}
+
+	private String encode(Message m, String name, String[] params)
+		throws IOException
+	{
+		MessageEncoder enc = new MessageEncoder(16);
+		enc.encode(m, name, params);
+		enc.flush();
+		ByteBuffer buf = enc.getBuffer();
+		buf.flip();
+		byte[] b = new byte[buf.remaining()];
+		buf.get(b);
+		return new String(b, UTF8);
+	}
+
+	public void testAscii() throws IOException {
+		assertEquals("t\u001e", encode(Message.TYPE, null, null));
+		assertEquals("s\u001fdms\u001e",
+			encode(Message.SHOW, "dms", null));
+		assertEquals("a\u001fdms/V1/msg\u001f[jl3][nl]A\u001fB\u001e",
+			encode(Message.ATTRIBUTE, "dms/V1/msg",
+			new String[] { "[jl3][nl]A", "B" }));
+	}
+
+	public void testStrip() throws IOException {
+		assertEquals("a\u001fx/y/z\u001fA B C\u001e",
+			encode(Message.ATTRIBUTE, "x/y/z",
+			new String[] { "A\u001fB\u001eC" }));
+	}
+
+	public void testMultiByte() throws IOException {
+		String p = "\u00b0 \u20ac \ud83d\ude97";
+		assertEquals("a\u001fx/y/z\u001f" + p + "\u001e",
+			encode(Message.ATTRIBUTE, "x/y/z", new String[] { p }));
+	}
+
+	public void testUnpairedSurrogate() throws IOException {
+		assertEquals("a\u001fx/y/z\u001fA?B\u001e",
+			encode(Message.ATTRIBUTE, "x/y/z",
+			new String[] { "A\ud83dB" }));
+	}
+
+	public void testExpand() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 1000; i++)
+			sb.append('\u20ac');
+		String p = sb.toString();
+		assertEquals("a\u001fx/y/z\u001f" + p + "\u001e",
+			encode(Message.ATTRIBUTE, "x/y/z", new String[] { p }));
+	}
+
+	public void testExpandMixed() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 1000; i++)
+			sb.append((i % 3 == 0) ? "\ud83d\ude97" : "A\u20ac");
+		String p = sb.toString();
+		assertEquals("a\u001fx/y/z\u001f" + p + "\u001e",
+			encode(Message.ATTRIBUTE, "x/y/z", new String[] { p }));
+	}
+
+	public void testAsciiCapacity() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 100000; i++)
+			sb.append('A');
+		MessageEncoder enc = new MessageEncoder(16);
+		enc.encode(Message.ATTRIBUTE, "x/y/z",
+			new String[] { sb.toString() });
+		// 100 KB of ASCII fits in a 128 KB buffer
+		assertTrue(enc.getBuffer().capacity() <= 131072);
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2026  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms;
+
+import java.util.Random;
+import us.mn.state.dot.sched.Bench;
+
+/**
+ * Bitmap graphic benchmark.  This times bitmap operations for typical
+ * 1-line, 3-line and full-matrix signs, and prints nanoseconds per
+ * operation.
+ *
+ * java -cp ... us.mn.state.dot.tms.BitmapGraphicBench [seconds]
+ *
+ * @author Douglas Lau
+ */
+public class BitmapGraphicBench {
+
+	/** Sign sizes (name, width, height) */
+	static private final Object[][] SIGNS = {
+		{ "1-line", 96, 7 },
+		{ "3-line", 125, 27 },
+		{ "full-matrix", 288, 120 },
+	};
+
+	/** Glyph width (pixels) */
+	static private final int GLYPH_WIDTH = 5;
+
+	/** Glyph height (pixels) */
+	static private final int GLYPH_HEIGHT = 7;
+
+	/** Number of times to repeat each operation per run */
+	static private final int REPEAT = 100;
+
+	/** Sink for operation results */
+	static private volatile int sink;
+
+	/** Bitmap operation to benchmark */
+	static private abstract class Op implements Bench.Op {
+		final String name;
+		Op(String n) {
+			name = n;
+		}
+		abstract int op();
+		public int run() {
+			int r = 0;
+			for (int i = 0; i < REPEAT; i++)
+				r += op();
+			sink = r;
+			return REPEAT;
+		}
+	}
+
+	/** Create a random bitmap */
+	static private BitmapGraphic createRandom(Random rnd, int w, int h) {
+		BitmapGraphic bg = new BitmapGraphic(w, h);
+		rnd.nextBytes(bg.getPixelData());
+		return bg;
+	}
+
+	/** Time an operation */
+	static private void time(String sign, Op op, long ms)
+		throws Exception
+	{
+		System.out.println(sign + " " + op.name + ": " +
+			Bench.time(ms, op) + " ns/op");
+	}
+
+	/** Run the benchmark */
+	static public void main(String[] args) throws Exception {
+		long ms = Bench.parseMillis(args);
+		Random rnd = new Random(1);
+		for (Object[] sign: SIGNS) {
+			String name = (String) sign[0];
+			final int w = (Integer) sign[1];
+			final int h = (Integer) sign[2];
+			final BitmapGraphic a = createRandom(rnd, w, h);
+			final BitmapGraphic b = createRandom(rnd, w, h);
+			final BitmapGraphic c = new BitmapGraphic(w, h);
+			final BitmapGraphic glyph = createRandom(rnd,
+				GLYPH_WIDTH, GLYPH_HEIGHT);
+			time(name, new Op("getLitCount") {
+				int op() {
+					return a.getLitCount();
+				}
+			}, ms);
+			time(name, new Op("copy") {
+				int op() {
+					c.copy(a);
+					return 0;
+				}
+			}, ms);
+			time(name, new Op("union") {
+				int op() {
+					c.union(b);
+					return 0;
+				}
+			}, ms);
+			time(name, new Op("difference") {
+				int op() {
+					c.difference(b);
+					return 0;
+				}
+			}, ms);
+			time(name, new Op("outline") {
+				int op() {
+					c.copy(a);
+					c.outline();
+					return 0;
+				}
+			}, ms);
+			time(name, new Op("render_line") {
+				int op() {
+					int x = 0;
+					while (x + GLYPH_WIDTH <= w) {
+						c.copy(glyph, x, 0,
+							DmsColor.AMBER);
+						x += GLYPH_WIDTH + 1;
+					}
+					return x;
+				}
+			}, ms);
+		}
+	}
+}
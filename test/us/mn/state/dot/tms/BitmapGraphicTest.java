@@ -0,0 +1,160 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2026  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms;
+
+import java.util.Random;
+import junit.framework.TestCase;
+
+/**
+ * Bitmap graphic test cases.  Bitmap operations are checked against the
+ * same operations done one pixel at a time.
+ *
+ * @author Doug Lau
+ */
+public class BitmapGraphicTest extends TestCase {
+
+	/** Sizes to test (width, height) */
+	static private final int[][] SIZES = {
+		{ 1, 1 }, { 7, 3 }, { 9, 7 }, { 63, 5 }, { 64, 2 }, { 65, 4 },
+		{ 125, 27 }, { 160, 54 },
+	};
+
+	private final Random rnd = new Random(1234);
+
+	public BitmapGraphicTest(String name) {
+		super(name);
+	}
+
+	private BitmapGraphic createRandom(int w, int h) {
+		BitmapGraphic bg = new BitmapGraphic(w, h);
+		for (int y = 0; y < h; y++) {
+			for (int x = 0; x < w; x++) {
+				if (rnd.nextInt(3) == 0)
+					bg.setPixel(x, y, DmsColor.AMBER);
+			}
+		}
+		return bg;
+	}
+
+	private boolean isLit(BitmapGraphic bg, int x, int y) {
+		return x >= 0 && x < bg.getWidth() && y >= 0 &&
+		       y < bg.getHeight() && bg.getPixel(x, y).isLit();
+	}
+
+	private void assertSame(BitmapGraphic a, BitmapGraphic b) {
+		assertTrue(a.getWidth() == b.getWidth());
+		assertTrue(a.getHeight() == b.getHeight());
+		for (int y = 0; y < a.getHeight(); y++) {
+			for (int x = 0; x < a.getWidth(); x++)
+				assertTrue(isLit(a, x, y) == isLit(b, x, y));
+		}
+	}
+
+	public void testLitCount() {
+		for (int[] sz: SIZES) {
+			BitmapGraphic bg = createRandom(sz[0], sz[1]);
+			int n_lit = 0;
+			for (int y = 0; y < sz[1]; y++) {
+				for (int x = 0; x < sz[0]; x++) {
+					if (isLit(bg, x, y))
+						n_lit++;
+				}
+			}
+			// Set padding bits, which must not be counted
+			byte[] p = bg.getPixelData();
+			int rem = (sz[0] * sz[1]) % 8;
+			if (rem > 0)
+				p[p.length - 1] |= 0xFF >> rem;
+			assertTrue(bg.getLitCount() == n_lit);
+		}
+	}
+
+	public void testUnionDifference() {
+		for (int[] sz: SIZES) {
+			BitmapGraphic a = createRandom(sz[0], sz[1]);
+			BitmapGraphic b = createRandom(sz[0], sz[1]);
+			BitmapGraphic u = new BitmapGraphic(sz[0], sz[1]);
+			u.copy(a);
+			u.union(b);
+			BitmapGraphic d = new BitmapGraphic(sz[0], sz[1]);
+			d.copy(a);
+			d.difference(b);
+			for (int y = 0; y < sz[1]; y++) {
+				for (int x = 0; x < sz[0]; x++) {
+					boolean la = isLit(a, x, y);
+					boolean lb = isLit(b, x, y);
+					assertTrue(isLit(u, x, y) == (la && lb));
+					assertTrue(isLit(d, x, y) == (la && !lb));
+				}
+			}
+		}
+	}
+
+	public void testCopyCentered() {
+		BitmapGraphic a = createRandom(37, 9);
+		BitmapGraphic b = createRandom(20, 14);
+		b.copy(a);
+		// common region: 20x9, centered
+		for (int y = 0; y < 9; y++) {
+			for (int x = 0; x < 20; x++)
+				assertTrue(isLit(b, x, y + 2) == isLit(a, x + 8, y));
+		}
+	}
+
+	public void testGlyphBlit() {
+		BitmapGraphic r = createRandom(125, 27);
+		BitmapGraphic before = new BitmapGraphic(125, 27);
+		before.copy(r);
+		BitmapGraphic g = createRandom(11, 7);
+		for (int x0 = 0; x0 < 16; x0++) {
+			r.copy(before);
+			r.copy(g, x0 + 3, 5, DmsColor.AMBER);
+			for (int y = 0; y < 27; y++) {
+				for (int x = 0; x < 125; x++) {
+					boolean lit = isLit(before, x, y) ||
+						isLit(g, x - x0 - 3, y - 5);
+					assertTrue(isLit(r, x, y) == lit);
+				}
+			}
+		}
+		try {
+			r.copy(g, 120, 0, DmsColor.AMBER);
+			fail("glyph off raster");
+		}
+		catch (IndexOutOfBoundsException e) {
+			// expected
+		}
+	}
+
+	public void testOutline() {
+		for (int[] sz: SIZES) {
+			BitmapGraphic a = createRandom(sz[0], sz[1]);
+			BitmapGraphic o = new BitmapGraphic(sz[0], sz[1]);
+			o.copy(a);
+			o.outline();
+			for (int y = 0; y < sz[1]; y++) {
+				for (int x = 0; x < sz[0]; x++) {
+					boolean near = false;
+					for (int dy = -1; dy <= 1; dy++) {
+						for (int dx = -1; dx <= 1; dx++)
+							near |= isLit(a, x+dx, y+dy);
+					}
+					boolean lit = near && !isLit(a, x, y);
+					assertTrue(isLit(o, x, y) == lit);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2026  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import java.util.Arrays;
+import junit.framework.TestCase;
+
+/**
+ * Archive samples job test cases
+ * @author Doug Lau
+ */
+public class ArchiveSamplesJobTest extends TestCase {
+
+	static private final String NAME = "123.v30";
+
+	static private boolean merges(String name, byte[] archived,
+		byte[] current, byte[] merged)
+	{
+		return Arrays.equals(merged, ArchiveSamplesJob.mergeSamples(
+			name, archived, current));
+	}
+
+	public ArchiveSamplesJobTest(String name) {
+		super(name);
+	}
+
+	public void testMergeUpdated() {
+		byte[] archived = { 1, -1, -1, -1 };
+		byte[] current = { 1, -1, 3, -1 };
+		assertTrue(merges(NAME, archived, current, current));
+	}
+
+	public void testMergeAppended() {
+		byte[] archived = { 'a', '\n' };
+		byte[] current = { 'a', '\n', 'b', '\n' };
+		assertTrue(merges("123.vlog", archived, current, current));
+	}
+
+	public void testMergeRecreated() {
+		byte[] archived = { 1, 2, -1, -1 };
+		byte[] current = { -1, -1, 3, -1 };
+		byte[] merged = { 1, 2, 3, -1 };
+		assertTrue(merges(NAME, archived, current, merged));
+	}
+
+	public void testMergeRecreatedLog() {
+		byte[] archived = { 'a', '\n' };
+		byte[] current = { 'b', '\n', 'c', '\n' };
+		byte[] merged = { 'a', '\n', 'b', '\n', 'c', '\n' };
+		assertTrue(merges("123.vlog", archived, current, merged));
+	}
+
+	public void testMergeRecreatedShort() {
+		byte[] archived = { 0, 5, -1, -1, 1, -1 };
+		byte[] current = { -1, -1, 0, 7, -1, -1 };
+		byte[] merged = { 0, 5, 0, 7, 1, -1 };
+		assertTrue(merges("123.c30", archived, current, merged));
+	}
+
+	public void testMergeLengthMismatch() {
+		byte[] archived = { 1, 2, 3 };
+		byte[] current = { -1, 4 };
+		assertTrue(merges(NAME, archived, current, current));
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2026  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import java.lang.reflect.Constructor;
+import java.util.Date;
+import us.mn.state.dot.sched.Bench;
+import us.mn.state.dot.sonar.Message;
+import us.mn.state.dot.sonar.MessageEncoder;
+import us.mn.state.dot.sonar.SonarObject;
+import us.mn.state.dot.sonar.server.AttributeDispatcher;
+import us.mn.state.dot.sonar.server.ServerNamespace;
+import us.mn.state.dot.tms.BaseHelper;
+
+/**
+ * Attribute dispatcher benchmark.  This enumerates every gettable attribute
+ * of detector and dms objects, the way a client enumeration does without
+ * snapshots, and prints objects enumerated per second.
+ *
+ * java -cp ... us.mn.state.dot.tms.server.AttributeDispatcherBench [seconds]
+ *
+ * @author Douglas Lau
+ */
+public class AttributeDispatcherBench {
+
+	/** Number of objects of each type */
+	static private final int N_OBJECTS = 1000;
+
+	/** Create detector objects */
+	static private SonarObject[] createDetectors() throws Exception {
+		SonarObject[] objs = new SonarObject[N_OBJECTS];
+		for (int i = 0; i < N_OBJECTS; i++)
+			objs[i] = new DetectorImpl("D" + i);
+		return objs;
+	}
+
+	/** Create DMS objects.  The public constructor stores a geo_loc in
+	 * the database, so use the constructor for loading instead. */
+	static private SonarObject[] createDms() throws Exception {
+		Constructor<DMSImpl> c = DMSImpl.class.getDeclaredConstructor(
+			String.class, String.class, String.class, int.class,
+			String.class, String.class, String.class, int.class,
+			boolean.class, String.class, String.class, String.class,
+			String.class, String.class, Integer.class,
+			Integer.class,
+			String.class, String.class, Date.class);
+		c.setAccessible(true);
+		SonarObject[] objs = new SonarObject[N_OBJECTS];
+		for (int i = 0; i < N_OBJECTS; i++) {
+			objs[i] = c.newInstance("V" + i, null, null, 1,
+				"I-35W NB @ 46th St", null, null, 0, false,
+				null, null, null, null, null, null, null, null,
+				null, null);
+		}
+		return objs;
+	}
+
+	/** Enumerate all attributes of some objects.
+	 * @return Number of attributes enumerated. */
+	static private int enumerate(AttributeDispatcher d, MessageEncoder enc,
+		SonarObject[] objs) throws Exception
+	{
+		int n = 0;
+		for (SonarObject o: objs) {
+			for (String a: d.getGettableAttributes()) {
+				String[] v = d.getValue(o, a);
+				enc.encode(Message.ATTRIBUTE, a, v);
+				n++;
+			}
+			enc.encode(Message.OBJECT, o.getName());
+			enc.getBuffer().clear();
+		}
+		return n;
+	}
+
+	/** Time enumerating one type */
+	static private void time(String tname, final AttributeDispatcher d,
+		final SonarObject[] objs, long ms) throws Exception
+	{
+		final MessageEncoder enc = new MessageEncoder(1 << 16);
+		long ns = Bench.time(ms, new Bench.Op() {
+			public int run() throws Exception {
+				enumerate(d, enc, objs);
+				return objs.length;
+			}
+		});
+		System.out.println(tname + ": " + 1000000000L / ns +
+			" objects/s, " + d.getGettableAttributes().length +
+			" attributes");
+	}
+
+	/** Run the benchmark */
+	static public void main(String[] args) throws Exception {
+		long ms = Bench.parseMillis(args);
+		ServerNamespace ns = new ServerNamespace();
+		BaseObjectImpl.namespace = ns;
+		BaseHelper.namespace = ns;
+		time("detector", new AttributeDispatcher(DetectorImpl.class,
+			ns), createDetectors(), ms);
+		time("dms", new AttributeDispatcher(DMSImpl.class, ns),
+			createDms(), ms);
+	}
+}
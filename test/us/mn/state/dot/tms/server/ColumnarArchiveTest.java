@@ -0,0 +1,85 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2026  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import junit.framework.TestCase;
+
+/**
+ * Columnar archive test cases
+ * @author Doug Lau
+ */
+public class ColumnarArchiveTest extends TestCase {
+
+	public ColumnarArchiveTest(String name) {
+		super(name);
+	}
+
+	public void testArchive() throws IOException {
+		checkArchive((short) 0);
+	}
+
+	public void testDeflate() throws IOException {
+		checkArchive(ColumnarArchive.FLAG_DEFLATE);
+	}
+
+	private void checkArchive(short flags) throws IOException {
+		File dir = File.createTempFile("tcol", "");
+		dir.delete();
+		dir.mkdir();
+		byte[] v30 = new byte[2880];
+		Arrays.fill(v30, (byte) -1);
+		v30[0] = 5;
+		byte[] c30 = new byte[2880];
+		for (int i = 0; i < c30.length; i++)
+			c30[i] = (byte) i;
+		byte[] empty = new byte[0];
+		writeFile(new File(dir, "100.v30"), v30);
+		writeFile(new File(dir, "100.c30"), c30);
+		writeFile(new File(dir, "99.v30"), empty);
+		File tcol = new File(dir.getPath() + ".tcol");
+		try {
+			ColumnarArchive.write(tcol, dir, dir.list(), flags);
+			ColumnarArchive ca = new ColumnarArchive(tcol);
+			assertTrue(ca.size() == 3);
+			assertTrue(ca.getName(0).equals("100.c30"));
+			assertTrue(ca.getName(1).equals("100.v30"));
+			assertTrue(ca.getName(2).equals("99.v30"));
+			assertTrue(Arrays.equals(ca.read("100.v30"), v30));
+			assertTrue(Arrays.equals(ca.read("100.c30"), c30));
+			assertTrue(Arrays.equals(ca.read("99.v30"), empty));
+			assertTrue(ca.read("101.v30") == null);
+		}
+		finally {
+			for (File f: dir.listFiles())
+				f.delete();
+			dir.delete();
+			tcol.delete();
+		}
+	}
+
+	private void writeFile(File f, byte[] data) throws IOException {
+		FileOutputStream fos = new FileOutputStream(f);
+		try {
+			fos.write(data);
+		}
+		finally {
+			fos.close();
+		}
+	}
+}
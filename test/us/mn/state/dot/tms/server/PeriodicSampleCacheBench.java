@@ -0,0 +1,76 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2026  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import us.mn.state.dot.sched.Bench;
+
+/**
+ * Periodic sample cache memory footprint benchmark.  This creates caches for
+ * a number of detectors, each holding the samples which are normally cached
+ * between purges, and prints the heap used per cache.
+ *
+ * java -cp ... us.mn.state.dot.tms.server.PeriodicSampleCacheBench [dets]
+ *
+ * @author Douglas Lau
+ */
+public class PeriodicSampleCacheBench {
+
+	/** Number of caches per detector */
+	static private final int CACHES_PER_DET = 7;
+
+	/** Sample period (seconds) */
+	static private final int PERIOD_SEC = 30;
+
+	/** Number of samples per cache (10 minutes) */
+	static private final int N_SAMPLES = 20;
+
+	/** Run the benchmark */
+	static public void main(String[] args) throws Exception {
+		int n_dets = (args.length > 0)
+		           ? Integer.parseInt(args[0])
+		           : 5000;
+		int n_caches = n_dets * CACHES_PER_DET;
+		long now = System.currentTimeMillis();
+		long pms = PERIOD_SEC * 1000L;
+		long stamp = now / pms * pms - N_SAMPLES * pms;
+		long before = Bench.usedHeap();
+		PeriodicSampleCache[] caches =
+			new PeriodicSampleCache[n_caches];
+		long t0 = System.nanoTime();
+		for (int c = 0; c < n_caches; c++) {
+			PeriodicSampleCache cache = new PeriodicSampleCache(
+				PeriodicSampleType.VEH_COUNT);
+			for (int i = 1; i <= N_SAMPLES; i++) {
+				cache.add(new PeriodicSample(stamp + pms * i,
+					PERIOD_SEC, i), "bench");
+			}
+			caches[c] = cache;
+		}
+		long t1 = System.nanoTime();
+		long after = Bench.usedHeap();
+		for (PeriodicSampleCache cache: caches)
+			cache.purge(stamp + pms * N_SAMPLES / 2);
+		long t2 = System.nanoTime();
+		long bytes = after - before;
+		System.out.println(n_caches + " caches, " + N_SAMPLES +
+			" samples each");
+		System.out.println("heap: " + bytes / 1024 + " KiB, " +
+			bytes / n_caches + " bytes per cache");
+		System.out.println("add: " + (t1 - t0) / (n_caches *
+			(long) N_SAMPLES) + " ns per sample");
+		System.out.println("purge: " + (t2 - t1) / n_caches +
+			" ns per cache");
+	}
+}
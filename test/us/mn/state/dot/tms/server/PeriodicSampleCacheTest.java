@@ -60,7 +60,7 @@ public class PeriodicSampleCacheTest extends TestCase {
 
 	public void testOccupancy() {
 		PeriodicSampleCache cache = new PeriodicSampleCache(
-			PeriodicSampleType.OCCUPANCY);
+			PeriodicSampleType.SPEED);
 		assertTrue(isEmpty(cache));
 		cache.add(new PeriodicSample(T[1], 30, 5), "test");
 		assertFalse(isEmpty(cache));
@@ -141,6 +141,27 @@ public class PeriodicSampleCacheTest extends TestCase {
 		assertFalse(it.hasNext());
 	}
 
+	public void testOrder() {
+		PeriodicSampleCache cache = new PeriodicSampleCache(
+			PeriodicSampleType.SCAN);
+		cache.add(new PeriodicSample(T[5], 30, 500), "test");
+		cache.add(new PeriodicSample(T[3], 30, 300), "test");
+		cache.add(new PeriodicSample(T[1], 30, 100), "test");
+		cache.add(new PeriodicSample(T[3], 30, 333), "test");
+		cache.add(new PeriodicSample(T[4], 30, 400), "test");
+		Iterator<PeriodicSample> it = cache.iterator();
+		assertTrue(it.hasNext());
+		PeriodicSample ps = it.next();
+		assertTrue(ps.stamp == T[1] && ps.value == 100);
+		assertTrue(it.next().value == 300);
+		assertTrue(it.next().value == 400);
+		ps = it.next();
+		assertTrue(ps.stamp == T[5] && ps.value == 500);
+		assertFalse(it.hasNext());
+		cache.purge(T[11]);
+		assertTrue(isEmpty(cache));
+	}
+
 	private boolean isEmpty(PeriodicSampleCache cache) {
 		return !cache.iterator().hasNext();
 	}